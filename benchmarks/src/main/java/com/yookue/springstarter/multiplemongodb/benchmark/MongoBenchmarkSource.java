@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.benchmark;
+
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import jakarta.annotation.Nonnull;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataConfigurationUtils;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoManagedTypes;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import com.yookue.springstarter.multiplemongodb.benchmark.entity.Customer;
+import com.yookue.springstarter.multiplemongodb.benchmark.entity.Invoice;
+import com.yookue.springstarter.multiplemongodb.benchmark.entity.Order;
+import com.yookue.springstarter.multiplemongodb.benchmark.entity.Product;
+import com.yookue.springstarter.multiplemongodb.benchmark.entity.Review;
+import com.yookue.springstarter.multiplemongodb.benchmark.entity.Shipment;
+import lombok.Getter;
+
+
+/**
+ * Data source of the benchmarks, which is built the same way as the auto-configurations build a data source
+ * <p>
+ * The sources share the custom conversions and the managed types, as {@code MongoClassicPreConfiguration} shares them,
+ * and each source has its own mapping context, converter and template, over a stand-in client
+ *
+ * @author David Hsing
+ */
+@Getter
+class MongoBenchmarkSource {
+    private final MongoMappingContext mappingContext;
+    private final MappingMongoConverter converter;
+    private final MongoTemplate template;
+
+    MongoBenchmarkSource(@Nonnull MongoProperties properties, @Nonnull List<Document> documents, @Nonnull MongoCustomConversions conversions, @Nonnull MongoManagedTypes types) {
+        mappingContext = MongoDataConfigurationUtils.mongoMappingContext(properties, conversions, types);
+        mappingContext.afterPropertiesSet();
+        MongoDatabaseFactory factory = MongoDataConfigurationUtils.mongoDatabaseFactory(MongoStandInClients.client(documents), properties, null);
+        converter = MongoDataConfigurationUtils.mappingMongoConverter(properties, factory, mappingContext, conversions);
+        converter.afterPropertiesSet();
+        template = MongoDataConfigurationUtils.mongoTemplate(factory, converter);
+    }
+
+    /**
+     * Returns the specified count of sources, which coexist in the same JVM as the data sources of an application
+     *
+     * @param count the count of sources
+     * @param documents the canned documents of every find
+     *
+     * @return the specified count of sources
+     */
+    @Nonnull
+    static List<MongoBenchmarkSource> sources(int count, @Nonnull List<Document> documents) {
+        return sources(count, new MongoProperties(), documents);
+    }
+
+    /**
+     * Returns the specified count of sources with the properties, which coexist in the same JVM as the data sources of an application
+     *
+     * @param count the count of sources
+     * @param properties the properties of every source, such as the type key
+     * @param documents the canned documents of every find
+     *
+     * @return the specified count of sources
+     */
+    @Nonnull
+    static List<MongoBenchmarkSource> sources(int count, @Nonnull MongoProperties properties, @Nonnull List<Document> documents) {
+        MongoCustomConversions conversions = MongoDataConfigurationUtils.mongoCustomConversions();
+        MongoManagedTypes types = MongoManagedTypes.from(Customer.class, Invoice.class, Order.class, Product.class, Review.class, Shipment.class);
+        List<MongoBenchmarkSource> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new MongoBenchmarkSource(properties, documents, conversions, types));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a customer with all the fields populated
+     *
+     * @param index the index of the customer
+     *
+     * @return a customer with all the fields populated
+     */
+    @Nonnull
+    static Customer customer(int index) {
+        Customer.Address address = new Customer.Address();
+        address.setCountry("China");    // $NON-NLS-1$
+        address.setCity("Shanghai");    // $NON-NLS-1$
+        address.setStreet("No. " + index + ", Century Avenue");    // $NON-NLS-1$ // $NON-NLS-2$
+        address.setZipCode("200120");    // $NON-NLS-1$
+        Customer customer = new Customer();
+        customer.setId(String.format("%024x", index));    // $NON-NLS-1$
+        customer.setName("Customer " + index);    // $NON-NLS-1$
+        customer.setEmail("customer" + index + "@example.com");    // $NON-NLS-1$ // $NON-NLS-2$
+        customer.setLevel(index % 5);
+        customer.setPoints(index * 100L);
+        customer.setActive(index % 2 == 0);
+        customer.setCreatedAt(Instant.ofEpochMilli(1700000000000L + index));
+        customer.setTags(IntStream.range(0, 4).mapToObj(tag -> "tag" + tag).toList());    // $NON-NLS-1$
+        customer.setAddress(address);
+        return customer;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.benchmark;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import com.yookue.springstarter.multiplemongodb.benchmark.entity.Customer;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+
+
+/**
+ * Benchmark of the read and write throughput of the mapping converter, with one or three coexisting mapping contexts
+ * <p>
+ * With three contexts, each operation goes to the next data source in turn, as an application that spreads its work over the data sources.
+ * The type mode writes the type key as the class name ({@code class}), writes no type key ({@code null}), or writes a short type key with an alias ({@code alias}),
+ * and {@link #writeBson(DocumentSize)} counts the encoded bytes in {@code bsonBytes}, whose rate divided by the score is the encoded size of each document.
+ * Run with {@code -prof gc} to see the allocation per document
+ *
+ * @author David Hsing
+ */
+@State(value = Scope.Thread)
+@BenchmarkMode(value = Mode.Throughput)
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2)
+public class MongoConverterBenchmark {
+    private static final DocumentCodec CODEC = new DocumentCodec();
+
+    @Param(value = {"1", "3"})
+    private int contexts;
+
+    @Param(value = {"class", "null", "alias"})
+    private String typeMode;
+
+    private List<MongoBenchmarkSource> sources;
+    private Customer customer;
+    private Document document;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ExtendedMongoProperties properties = new ExtendedMongoProperties();
+        switch (typeMode) {
+            case "null" -> properties.setNullTypeKey(true);    // $NON-NLS-1$
+            case "alias" -> {    // $NON-NLS-1$
+                properties.setTypeKey("_t");    // $NON-NLS-1$
+                properties.setTypeAliases(Map.of("customer", Customer.class.getName()));    // $NON-NLS-1$
+            }
+            default -> {
+            }
+        }
+        sources = MongoBenchmarkSource.sources(contexts, properties, List.of());
+        customer = MongoBenchmarkSource.customer(1);
+        document = new Document();
+        sources.get(0).getConverter().write(customer, document);
+    }
+
+    @Benchmark
+    public Customer read() {
+        return nextConverter().read(Customer.class, document);
+    }
+
+    @Benchmark
+    public Document write() {
+        Document target = new Document();
+        nextConverter().write(customer, target);
+        return target;
+    }
+
+    /**
+     * Writes the entity and encodes it as the driver does before sending
+     */
+    @Benchmark
+    public RawBsonDocument writeBson(DocumentSize size) {
+        Document target = new Document();
+        nextConverter().write(customer, target);
+        RawBsonDocument result = new RawBsonDocument(target, CODEC);
+        size.bsonBytes += result.getByteBuffer().remaining();
+        return result;
+    }
+
+    private MappingMongoConverter nextConverter() {
+        MongoBenchmarkSource source = sources.get(next);
+        next = (next + 1) % contexts;
+        return source.getConverter();
+    }
+
+
+    /**
+     * The encoded bytes of the written documents, which are reported as a rate in the same unit as the score
+     *
+     * @author David Hsing
+     */
+    @State(value = Scope.Thread)
+    @AuxCounters(value = AuxCounters.Type.OPERATIONS)
+    public static class DocumentSize {
+        public long bsonBytes;
+
+        @Setup(value = Level.Iteration)
+        public void reset() {
+            bsonBytes = 0L;
+        }
+    }
+}
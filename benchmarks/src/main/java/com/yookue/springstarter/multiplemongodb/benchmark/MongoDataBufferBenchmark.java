@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.benchmark;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.unit.DataSize;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.yookue.springstarter.multiplemongodb.gridfs.ReactiveMongoGridFsChannelTemplate;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import com.yookue.springstarter.multiplemongodb.raw.ReactiveMongoRawTemplate;
+import io.netty.buffer.PooledByteBufAllocator;
+import reactor.core.publisher.Flux;
+
+
+/**
+ * Benchmark of the data buffers of 256 KB chunks, with the default factory or the pooled factories of netty
+ * <p>
+ * Each operation moves a file of four chunks through the reactive GridFS template or the raw template, or a page of small documents through the raw template,
+ * over a stand-in server without any I/O.
+ * The uploads and the raw documents allocate their buffers from the factory, while the downloads wrap the chunks as read by the driver.
+ * Run with {@code -prof gc} to see the allocation per operation
+ *
+ * @author David Hsing
+ */
+@State(value = Scope.Thread)
+@BenchmarkMode(value = Mode.Throughput)
+@OutputTimeUnit(value = TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2)
+public class MongoDataBufferBenchmark {
+    private static final int CHUNK_SIZE = (int) DataSize.ofKilobytes(256L).toBytes();
+    private static final int CHUNKS = 4;
+    private static final int SMALL_DOCUMENTS = 100;
+    private static final String FILENAME = "benchmark.bin";    // $NON-NLS-1$
+    private static final String COLLECTION = "benchmark";    // $NON-NLS-1$
+
+    @Param(value = {"default", "pooled-heap", "pooled-direct"})
+    private String factory;
+
+    private DataBufferFactory bufferFactory;
+    private byte[] payload;
+    private ReactiveMongoGridFsChannelTemplate gridFsTemplate;
+    private ReactiveMongoRawTemplate rawTemplate;
+    private ReactiveMongoRawTemplate smallRawTemplate;
+    private GridFSFile file;
+
+    @Setup
+    public void setup() {
+        bufferFactory = switch (factory) {
+            case "pooled-heap" -> new NettyDataBufferFactory(new PooledByteBufAllocator(false));    // $NON-NLS-1$
+            case "pooled-direct" -> new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);    // $NON-NLS-1$
+            default -> DefaultDataBufferFactory.sharedInstance;
+        };
+        payload = new byte[CHUNK_SIZE];
+        Arrays.fill(payload, (byte) 'x');
+        ObjectId id = new ObjectId();
+        List<RawBsonDocument> chunks = new ArrayList<>(CHUNKS);
+        List<RawBsonDocument> documents = new ArrayList<>(CHUNKS);
+        for (int i = 0; i < CHUNKS; i++) {
+            chunks.add(new RawBsonDocument(new BsonDocument("files_id", new BsonObjectId(id)).append("n", new BsonInt32(i)).append("data", new BsonBinary(payload)), new BsonDocumentCodec()));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+            documents.add(new RawBsonDocument(new BsonDocument("_id", new BsonInt32(i)).append("text", new BsonString(new String(payload))), new BsonDocumentCodec()));    // $NON-NLS-1$ // $NON-NLS-2$
+        }
+        List<RawBsonDocument> smallDocuments = new ArrayList<>(SMALL_DOCUMENTS);
+        for (int i = 0; i < SMALL_DOCUMENTS; i++) {
+            smallDocuments.add(new RawBsonDocument(new BsonDocument("_id", new BsonInt32(i)).append("name", new BsonString("Customer " + i)).append("email", new BsonString("customer" + i + "@example.com")), new BsonDocumentCodec()));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+        }
+        ExtendedMongoProperties.GridFsChannel properties = new ExtendedMongoProperties.GridFsChannel();
+        properties.setChunkSize(DataSize.ofBytes(CHUNK_SIZE));
+        gridFsTemplate = new ReactiveMongoGridFsChannelTemplate(MongoReactiveStandInClients.factory(chunks), null, bufferFactory, properties);
+        rawTemplate = new ReactiveMongoRawTemplate(new ReactiveMongoTemplate(MongoReactiveStandInClients.factory(documents)), bufferFactory, new ExtendedMongoProperties.Raw());
+        smallRawTemplate = new ReactiveMongoRawTemplate(new ReactiveMongoTemplate(MongoReactiveStandInClients.factory(smallDocuments)), bufferFactory, new ExtendedMongoProperties.Raw());
+        file = new GridFSFile(new BsonObjectId(id), FILENAME, (long) CHUNK_SIZE * CHUNKS, CHUNK_SIZE, new Date(), null);
+    }
+
+    /**
+     * Allocates a chunk from the factory, fills and releases it
+     */
+    @Benchmark
+    public int chunk() {
+        DataBuffer buffer = bufferFactory.allocateBuffer(CHUNK_SIZE).write(payload);
+        int count = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return count;
+    }
+
+    @Benchmark
+    public ObjectId upload() {
+        return gridFsTemplate.upload(Flux.range(0, CHUNKS).map(index -> bufferFactory.allocateBuffer(CHUNK_SIZE).write(payload)), FILENAME).block();
+    }
+
+    @Benchmark
+    public Integer download() {
+        return consume(gridFsTemplate.download(file));
+    }
+
+    @Benchmark
+    public Integer json() {
+        return consume(rawTemplate.findJson(new Query(), COLLECTION));
+    }
+
+    /**
+     * Relays a page of small documents as JSON, where the allocation per document matters more than the copying
+     */
+    @Benchmark
+    public Integer smallJson() {
+        return consume(smallRawTemplate.findJson(new Query(), COLLECTION));
+    }
+
+    /**
+     * Returns the count of the bytes of the buffers, and releases them as a web server does after writing
+     */
+    private static Integer consume(@Nonnull Flux<DataBuffer> buffers) {
+        return buffers.map(buffer -> {
+            int count = buffer.readableByteCount();
+            DataBufferUtils.release(buffer);
+            return count;
+        }).reduce(0, Integer::sum).block();
+    }
+}
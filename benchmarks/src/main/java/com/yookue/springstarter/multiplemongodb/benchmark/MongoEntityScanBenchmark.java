@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.benchmark;
+
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataConfigurationUtils;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.data.mongodb.MongoManagedTypes;
+import com.yookue.springstarter.multiplemongodb.benchmark.entity.Customer;
+import com.yookue.springstarter.multiplemongodb.index.MongoEntityIndexLoader;
+
+
+/**
+ * Benchmark of the startup cost of the shared managed types, by the classpath scanning or by the build-time entity index
+ * <p>
+ * Each fork measures the first call only, as the startup does, before the entity classes are loaded
+ *
+ * @author David Hsing
+ */
+@State(value = Scope.Benchmark)
+@BenchmarkMode(value = Mode.SingleShotTime)
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 20)
+public class MongoEntityScanBenchmark {
+    private GenericApplicationContext context;
+
+    @Setup
+    public void setup() {
+        context = new GenericApplicationContext();
+        AutoConfigurationPackages.register(context, Customer.class.getPackageName());
+        context.refresh();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MongoManagedTypes scan() throws ClassNotFoundException {
+        return MongoDataConfigurationUtils.mongoManagedTypes(context);
+    }
+
+    @Benchmark
+    public MongoManagedTypes index() throws IOException, ClassNotFoundException {
+        return MongoEntityIndexLoader.loadManagedTypes(context.getClassLoader());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.benchmark;
+
+
+import java.util.List;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import org.bson.BsonObjectId;
+import org.bson.RawBsonDocument;
+import org.reactivestreams.Subscriber;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Utilities for the in-process stand-in of the mongo server, for the reactive benchmarks
+ * <p>
+ * The stand-in answers every find with the canned raw documents and acknowledges every write without any I/O,
+ * so the benchmarks measure the buffers and the templates only
+ *
+ * @author David Hsing
+ */
+abstract class MongoReactiveStandInClients {
+    /**
+     * Returns a stand-in database factory that answers every find with the specified documents
+     *
+     * @param documents the canned documents of every find
+     *
+     * @return a stand-in database factory that answers every find with the specified documents
+     */
+    @Nonnull
+    static ReactiveMongoDatabaseFactory factory(@Nonnull List<RawBsonDocument> documents) {
+        MongoDatabase database = database("benchmark", documents);    // $NON-NLS-1$
+        MongoExceptionTranslator translator = new MongoExceptionTranslator();
+        return MongoStandInClients.proxy(ReactiveMongoDatabaseFactory.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getMongoDatabase" -> Mono.just(database);    // $NON-NLS-1$
+            case "getExceptionTranslator" -> translator;    // $NON-NLS-1$
+            case "getCodecRegistry" -> MongoClientSettings.getDefaultCodecRegistry();    // $NON-NLS-1$
+            case "isTransactionActive" -> false;    // $NON-NLS-1$
+            default -> MongoStandInClients.unsupported(method);
+        });
+    }
+
+    @Nonnull
+    private static MongoDatabase database(@Nonnull String name, @Nonnull List<RawBsonDocument> documents) {
+        return MongoStandInClients.proxy(MongoDatabase.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> name;    // $NON-NLS-1$
+            case "getCodecRegistry" -> MongoClientSettings.getDefaultCodecRegistry();    // $NON-NLS-1$
+            case "getCollection" -> collection(new MongoNamespace(name, (String) args[0]), documents);    // $NON-NLS-1$
+            default -> MongoStandInClients.unsupported(method);
+        });
+    }
+
+    @Nonnull
+    private static MongoCollection<?> collection(@Nonnull MongoNamespace namespace, @Nonnull List<RawBsonDocument> documents) {
+        return MongoStandInClients.proxy(MongoCollection.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getNamespace" -> namespace;    // $NON-NLS-1$
+            case "getDocumentClass" -> RawBsonDocument.class;    // $NON-NLS-1$
+            case "getCodecRegistry" -> MongoClientSettings.getDefaultCodecRegistry();    // $NON-NLS-1$
+            case "find" -> findPublisher(documents);    // $NON-NLS-1$
+            case "insertOne" -> Mono.just(InsertOneResult.acknowledged(new BsonObjectId()));    // $NON-NLS-1$
+            case "insertMany" -> Mono.just(InsertManyResult.acknowledged(Map.of()));    // $NON-NLS-1$
+            case "deleteMany" -> Mono.just(DeleteResult.acknowledged(0L));    // $NON-NLS-1$
+            case "createIndex" -> Mono.just(method.getName());    // $NON-NLS-1$
+            default -> MongoStandInClients.unsupported(method);
+        });
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private static FindPublisher<?> findPublisher(@Nonnull List<RawBsonDocument> documents) {
+        return MongoStandInClients.proxy(FindPublisher.class, (proxy, method, args) -> switch (method.getName()) {
+            case "first" -> Mono.justOrEmpty(documents.stream().findFirst());    // $NON-NLS-1$
+            case "subscribe" -> {    // $NON-NLS-1$
+                Flux.fromIterable(documents).subscribe((Subscriber<RawBsonDocument>) args[0]);
+                yield null;
+            }
+            default -> MongoStandInClients.unsupported(method);
+        });
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.benchmark;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.result.InsertOneResult;
+
+
+/**
+ * Utilities for the in-process stand-in of the mongo server, for the benchmarks
+ * <p>
+ * The stand-in answers every find with the canned documents and acknowledges every insert without any I/O,
+ * so the benchmarks measure the mapping and the template only
+ *
+ * @author David Hsing
+ */
+abstract class MongoStandInClients {
+    /**
+     * Returns a stand-in client that answers every find with the specified documents
+     *
+     * @param documents the canned documents of every find
+     *
+     * @return a stand-in client that answers every find with the specified documents
+     */
+    @Nonnull
+    static MongoClient client(@Nonnull List<Document> documents) {
+        return proxy(MongoClient.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getDatabase" -> database((String) args[0], documents);    // $NON-NLS-1$
+            case "close" -> null;    // $NON-NLS-1$
+            default -> unsupported(method);
+        });
+    }
+
+    @Nonnull
+    private static MongoDatabase database(@Nonnull String name, @Nonnull List<Document> documents) {
+        return proxy(MongoDatabase.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> name;    // $NON-NLS-1$
+            case "getCodecRegistry" -> MongoClientSettings.getDefaultCodecRegistry();    // $NON-NLS-1$
+            case "getCollection" -> collection(new MongoNamespace(name, (String) args[0]), documents);    // $NON-NLS-1$
+            default -> unsupported(method);
+        });
+    }
+
+    @Nonnull
+    private static MongoCollection<?> collection(@Nonnull MongoNamespace namespace, @Nonnull List<Document> documents) {
+        return proxy(MongoCollection.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getNamespace" -> namespace;    // $NON-NLS-1$
+            case "getDocumentClass" -> Document.class;    // $NON-NLS-1$
+            case "getCodecRegistry" -> MongoClientSettings.getDefaultCodecRegistry();    // $NON-NLS-1$
+            case "find" -> findIterable(documents);    // $NON-NLS-1$
+            case "insertOne" -> InsertOneResult.acknowledged(new BsonObjectId());    // $NON-NLS-1$
+            case "countDocuments", "estimatedDocumentCount" -> (long) documents.size();    // $NON-NLS-1$ // $NON-NLS-2$
+            default -> unsupported(method);
+        });
+    }
+
+    @Nonnull
+    private static FindIterable<?> findIterable(@Nonnull List<Document> documents) {
+        return proxy(FindIterable.class, (proxy, method, args) -> switch (method.getName()) {
+            case "first" -> documents.isEmpty() ? null : documents.get(0);    // $NON-NLS-1$
+            case "iterator", "cursor" -> cursor(documents.iterator());    // $NON-NLS-1$ // $NON-NLS-2$
+            default -> unsupported(method);
+        });
+    }
+
+    @Nonnull
+    private static MongoCursor<?> cursor(@Nonnull Iterator<Document> iterator) {
+        return proxy(MongoCursor.class, (proxy, method, args) -> switch (method.getName()) {
+            case "hasNext" -> iterator.hasNext();    // $NON-NLS-1$
+            case "next" -> iterator.next();    // $NON-NLS-1$
+            case "tryNext" -> iterator.hasNext() ? iterator.next() : null;    // $NON-NLS-1$
+            case "available" -> iterator.hasNext() ? 1 : 0;    // $NON-NLS-1$
+            case "close" -> null;    // $NON-NLS-1$
+            default -> unsupported(method);
+        });
+    }
+
+    /**
+     * Returns a proxy of the specified type, which returns itself for the fluent methods, such as {@code withReadPreference}
+     */
+    @Nonnull
+    static <T> T proxy(@Nonnull Class<T> type, @Nonnull InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];    // $NON-NLS-1$
+                    case "hashCode" -> System.identityHashCode(proxy);    // $NON-NLS-1$
+                    default -> type.getSimpleName();
+                };
+            }
+            if (method.getReturnType().isInstance(proxy) && method.getReturnType() != Object.class) {
+                return proxy;
+            }
+            return handler.invoke(proxy, method, args);
+        }));
+    }
+
+    static Object unsupported(@Nonnull Method method) {
+        throw new UnsupportedOperationException("The stand-in server does not support " + method.getName());    // $NON-NLS-1$
+    }
+}
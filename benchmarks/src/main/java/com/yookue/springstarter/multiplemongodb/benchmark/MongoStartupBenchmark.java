@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.benchmark;
+
+
+import java.security.CodeSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionEvaluationReport;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.util.ClassUtils;
+import com.yookue.springstarter.multiplemongodb.config.MongoSourcesAutoConfiguration;
+import com.yookue.springstarter.multiplemongodb.config.PrimaryMongoAutoConfiguration;
+import com.yookue.springstarter.multiplemongodb.config.SecondaryMongoAutoConfiguration;
+import com.yookue.springstarter.multiplemongodb.config.TertiaryMongoAutoConfiguration;
+
+
+/**
+ * Benchmark of the startup cost of the application context, with one, three or eight data sources
+ * <p>
+ * Each operation boots an application with all the auto-configurations on the classpath, the first three data sources are {@code primary},
+ * {@code secondary} and {@code tertiary}, the others are named sources. The clients never reach a server, as the driver connects lazily.
+ * Run with {@code -prof gc} to see the allocation per startup. At the end of each trial, the startup steps of the last boot are printed,
+ * with the time spent in the beans of each declaring class, the time of the configuration class parsing (where the conditions are evaluated)
+ * and of the steps of this starter, and the summary of the condition evaluation report with the configuration classes of this starter that did not match
+ *
+ * @author David Hsing
+ */
+@State(value = Scope.Benchmark)
+@BenchmarkMode(value = Mode.SingleShotTime)
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(value = 3)
+public class MongoStartupBenchmark {
+    private static final String STARTER_STEP = "multiplemongo.";    // $NON-NLS-1$
+    private static final String INSTANTIATE_STEP = "spring.beans.instantiate";    // $NON-NLS-1$
+    private static final String PARSE_STEP = "spring.context.config-classes.parse";    // $NON-NLS-1$
+    private static final int STARTUP_CAPACITY = 50000;
+
+    @Param(value = {"1", "3", "8"})
+    private int sources;
+
+    private ConfigurableApplicationContext context;
+    private BufferingApplicationStartup startup;
+    private String report;
+
+    @Benchmark
+    public ConfigurableApplicationContext boot() {
+        startup = new BufferingApplicationStartup(STARTUP_CAPACITY);
+        SpringApplication application = new SpringApplication(StartupApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setBannerMode(Banner.Mode.OFF);
+        application.setLogStartupInfo(false);
+        application.setApplicationStartup(startup);
+        application.setDefaultProperties(sourceProperties(sources));
+        context = application.run();
+        return context;
+    }
+
+    @TearDown(value = Level.Iteration)
+    public void tearDownIteration() {
+        if (context != null) {
+            report = startupReport(context, startup.getBufferedTimeline(), sources);
+            context.close();
+            context = null;
+        }
+    }
+
+    @TearDown(value = Level.Trial)
+    public void tearDownTrial() {
+        if (report != null) {
+            System.out.println();
+            System.out.print(report);
+        }
+    }
+
+    @Nonnull
+    private static Properties sourceProperties(int count) {
+        Properties properties = new Properties();
+        properties.setProperty("logging.level.root", "warn");    // $NON-NLS-1$ // $NON-NLS-2$
+        String[] reserved = {PrimaryMongoAutoConfiguration.PROPERTIES_PREFIX, SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, TertiaryMongoAutoConfiguration.PROPERTIES_PREFIX};
+        for (int i = 0; i < count; i++) {
+            String prefix = (i < reserved.length) ? reserved[i] : MongoSourcesAutoConfiguration.PROPERTIES_PREFIX + ".source" + (i + 1);    // $NON-NLS-1$
+            properties.setProperty(prefix + ".uri", "mongodb://localhost/benchmark" + (i + 1) + "?serverSelectionTimeoutMS=100");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        }
+        return properties;
+    }
+
+    /**
+     * Returns the report of a boot
+     * <p>
+     * The time of a bean is its own instantiation, without the beans it depends on, and is charged to the configuration class that declares it,
+     * to the class of its static factory method (as the beans of the named sources), or to its own type
+     */
+    @Nonnull
+    private static String startupReport(@Nonnull ConfigurableApplicationContext context, @Nonnull StartupTimeline timeline, int count) {
+        ConfigurableListableBeanFactory factory = context.getBeanFactory();
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents();
+        Map<Long, Duration> children = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            Long parent = event.getStartupStep().getParentId();
+            if (parent != null && INSTANTIATE_STEP.equals(event.getStartupStep().getName())) {
+                children.merge(parent, event.getDuration(), Duration::plus);
+            }
+        }
+        Map<String, Duration> classes = new HashMap<>();
+        Map<String, Duration> steps = new TreeMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            StartupStep step = event.getStartupStep();
+            if (INSTANTIATE_STEP.equals(step.getName())) {
+                Duration own = event.getDuration().minus(children.getOrDefault(step.getId(), Duration.ZERO));
+                classes.merge(declaringClass(factory, tagValue(step, "beanName")), own, Duration::plus);    // $NON-NLS-1$
+            } else if (step.getName().startsWith(STARTER_STEP) || PARSE_STEP.equals(step.getName())) {
+                steps.merge(step.getName(), event.getDuration(), Duration::plus);
+                counts.merge(step.getName(), 1, Integer::sum);
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Last startup with %d data sources, %d steps%n", count, events.size()));    // $NON-NLS-1$
+        builder.append(String.format("Bean instantiation by declaring class (ms)%n"));    // $NON-NLS-1$
+        Duration others = Duration.ZERO;
+        List<Map.Entry<String, Duration>> sorted = classes.entrySet().stream().sorted(Map.Entry.<String, Duration>comparingByValue().reversed()).toList();
+        for (Map.Entry<String, Duration> entry : sorted) {
+            if (starterClass(entry.getKey())) {
+                builder.append(String.format("  %10.3f  %s%n", millis(entry.getValue()), ClassUtils.getShortName(entry.getKey())));    // $NON-NLS-1$
+            } else {
+                others = others.plus(entry.getValue());
+            }
+        }
+        builder.append(String.format("  %10.3f  %s%n", millis(others), "(other classes)"));    // $NON-NLS-1$ // $NON-NLS-2$
+        builder.append(String.format("Configuration class parsing and steps of the starter (ms)%n"));    // $NON-NLS-1$
+        steps.forEach((name, duration) -> builder.append(String.format("  %10.3f  %s x%d%n", millis(duration), name, counts.get(name))));    // $NON-NLS-1$
+        conditionReport(builder, ConditionEvaluationReport.get(factory));
+        return builder.toString();
+    }
+
+    private static void conditionReport(@Nonnull StringBuilder builder, @Nonnull ConditionEvaluationReport report) {
+        int matched = 0, unmatched = 0, starterMatched = 0, starterUnmatched = 0;
+        Map<String, String> misses = new LinkedHashMap<>();
+        for (Map.Entry<String, ConditionEvaluationReport.ConditionAndOutcomes> entry : new TreeMap<>(report.getConditionAndOutcomesBySource()).entrySet()) {
+            boolean starter = starterClass(entry.getKey().split("#", 2)[0]);    // $NON-NLS-1$
+            if (entry.getValue().isFullMatch()) {
+                matched++;
+                starterMatched += starter ? 1 : 0;
+            } else {
+                unmatched++;
+                starterUnmatched += starter ? 1 : 0;
+                if (starter && !entry.getKey().contains("#")) {    // $NON-NLS-1$
+                    for (ConditionEvaluationReport.ConditionAndOutcome outcome : entry.getValue()) {
+                        if (!outcome.getOutcome().isMatch()) {
+                            misses.put(ClassUtils.getShortName(entry.getKey()), outcome.getOutcome().getMessage());
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        builder.append(String.format("Condition evaluation report: %d matched, %d unmatched, %d exclusions, %d unconditional%n", matched, unmatched, report.getExclusions().size(), report.getUnconditionalClasses().size()));    // $NON-NLS-1$
+        builder.append(String.format("  starter: %d matched, %d unmatched%n", starterMatched, starterUnmatched));    // $NON-NLS-1$
+        misses.forEach((source, message) -> builder.append(String.format("  - %s: %s%n", source, message)));    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    private static String declaringClass(@Nonnull ConfigurableListableBeanFactory factory, String beanName) {
+        if (beanName == null || !factory.containsBeanDefinition(beanName)) {
+            return String.valueOf(beanName);
+        }
+        BeanDefinition definition = factory.getBeanDefinition(beanName);
+        if (definition.getFactoryBeanName() != null && factory.containsBeanDefinition(definition.getFactoryBeanName())) {
+            definition = factory.getBeanDefinition(definition.getFactoryBeanName());
+        }
+        return String.valueOf(definition.getBeanClassName());
+    }
+
+    /**
+     * Returns whether the class is shipped by this starter, including the utilities that are located under the packages of spring boot
+     */
+    private static boolean starterClass(@Nonnull String className) {
+        ClassLoader loader = MongoStartupBenchmark.class.getClassLoader();
+        if (!ClassUtils.isPresent(className, loader)) {
+            return false;
+        }
+        CodeSource source = ClassUtils.resolveClassName(className, loader).getProtectionDomain().getCodeSource();
+        return source != null && source.equals(MongoSourcesAutoConfiguration.class.getProtectionDomain().getCodeSource());
+    }
+
+    private static String tagValue(@Nonnull StartupStep step, @Nonnull String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (key.equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static double millis(@Nonnull Duration duration) {
+        return duration.toNanos() / 1_000_000D;
+    }
+
+
+    /**
+     * Application of the benchmark, with all the auto-configurations on the classpath
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class StartupApplication {
+    }
+}
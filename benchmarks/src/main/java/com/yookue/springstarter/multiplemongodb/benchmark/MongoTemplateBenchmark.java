@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.benchmark;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import com.yookue.springstarter.multiplemongodb.benchmark.entity.Customer;
+
+
+/**
+ * Benchmark of the overhead of the mongo template, with one or three coexisting mapping contexts
+ * <p>
+ * The templates run over a stand-in client without any I/O, so the difference to {@link MongoConverterBenchmark#read()} is the overhead of the template itself,
+ * such as the query mapping, the collection preparation and the callbacks
+ *
+ * @author David Hsing
+ */
+@State(value = Scope.Thread)
+@BenchmarkMode(value = Mode.Throughput)
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2)
+public class MongoTemplateBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param(value = {"1", "3"})
+    private int contexts;
+
+    private List<MongoBenchmarkSource> sources;
+    private Customer customer;
+    private Query query;
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<Document> documents = new ArrayList<>(PAGE_SIZE);
+        sources = MongoBenchmarkSource.sources(contexts, documents);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Document document = new Document();
+            sources.get(0).getConverter().write(MongoBenchmarkSource.customer(i), document);
+            documents.add(document);
+        }
+        customer = MongoBenchmarkSource.customer(0);
+        query = Query.query(Criteria.where("level").gte(0)).limit(PAGE_SIZE);    // $NON-NLS-1$
+    }
+
+    @Benchmark
+    public Customer findById() {
+        return nextTemplate().findById(customer.getId(), Customer.class);
+    }
+
+    @Benchmark
+    public List<Customer> find() {
+        return nextTemplate().find(query, Customer.class);
+    }
+
+    @Benchmark
+    public Customer insert() {
+        return nextTemplate().insert(customer);
+    }
+
+    private MongoTemplate nextTemplate() {
+        MongoBenchmarkSource source = sources.get(next);
+        next = (next + 1) % contexts;
+        return source.getTemplate();
+    }
+}
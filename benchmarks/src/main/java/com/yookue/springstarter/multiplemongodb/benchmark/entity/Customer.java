@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.benchmark.entity;
+
+
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Entity of customers, for the benchmarks
+ *
+ * @author David Hsing
+ */
+@Document(collection = "customers")
+@Getter
+@Setter
+public class Customer {
+    @Id
+    private String id;
+
+    private String name;
+
+    private String email;
+
+    private int level;
+
+    private long points;
+
+    private boolean active;
+
+    private Instant createdAt;
+
+    private List<String> tags;
+
+    private Address address;
+
+
+    /**
+     * Address of customers, for the benchmarks
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    public static class Address {
+        private String country;
+
+        private String city;
+
+        private String street;
+
+        private String zipCode;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.async;
+
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+
+/**
+ * Async template of a data source, which runs the blocking calls of the template or the repositories on its own threads
+ * <p>
+ * On Java 21 or later, each call runs on a virtual thread, otherwise on a pool of platform threads.
+ * The calls that run at the same time are capped (by default to the max size of the connection pool), the others wait on the template rather than in the wait queue of the driver.
+ * The calls do not join the transactions of the calling threads
+ *
+ * @author David Hsing
+ */
+public class MongoAsyncTemplate implements AutoCloseable {
+    private final MongoTemplate template;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final Executor executor;
+    private final boolean virtualThreads;
+
+    /**
+     * Constructs a new async template
+     *
+     * @param source the name of the data source
+     * @param template the template of the data source
+     * @param maxConcurrency the max count of the calls that run at the same time
+     * @param virtualThreads whether to run the calls on virtual threads, if the runtime supports
+     */
+    public MongoAsyncTemplate(@Nonnull String source, @Nonnull MongoTemplate template, int maxConcurrency, boolean virtualThreads) {
+        Assert.isTrue(maxConcurrency > 0, "Max concurrency must be positive");
+        this.template = template;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.virtualThreads = virtualThreads && Runtime.version().feature() >= 21;
+        String threadPrefix = "mongo-async-" + source + "-";    // $NON-NLS-1$ // $NON-NLS-2$
+        if (this.virtualThreads) {
+            SimpleAsyncTaskExecutor alias = new SimpleAsyncTaskExecutor(threadPrefix);
+            alias.setVirtualThreads(true);
+            this.executor = alias;
+        } else {
+            ThreadPoolExecutor alias = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory(threadPrefix));
+            alias.allowCoreThreadTimeOut(true);
+            this.executor = alias;
+        }
+    }
+
+    /**
+     * Runs the action with the template
+     *
+     * @param action the action to run, such as {@code template -> template.findAll(Foo.class)}
+     *
+     * @return a future of the result of the action
+     */
+    @Nonnull
+    public <T> CompletableFuture<T> execute(@Nonnull Function<? super MongoTemplate, ? extends T> action) {
+        return submit(() -> action.apply(template));
+    }
+
+    /**
+     * Runs the action, such as a call of the repositories of the data source
+     *
+     * @param action the action to run, such as {@code () -> fooRepository.findByName(name)}
+     *
+     * @return a future of the result of the action
+     */
+    @Nonnull
+    public <T> CompletableFuture<T> submit(@Nonnull Supplier<? extends T> action) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(ex);
+            }
+            try {
+                return action.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    @Nonnull
+    public CompletableFuture<Void> run(@Nonnull Runnable action) {
+        return submit(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    @Nonnull
+    public MongoTemplate getTemplate() {
+        return template;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the count of the calls that are running
+     *
+     * @return the count of the calls that are running
+     */
+    public int getRunningCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public void close() {
+        if (executor instanceof SimpleAsyncTaskExecutor alias) {
+            alias.close();
+        } else if (executor instanceof ThreadPoolExecutor alias) {
+            alias.shutdown();
+        }
+    }
+}
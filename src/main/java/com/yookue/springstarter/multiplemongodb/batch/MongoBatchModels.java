@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.batch;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.util.Assert;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+
+
+/**
+ * Utilities for converting the entities into the write models of the batch writers
+ * <p>
+ * The entities are converted on the calling threads, into raw documents, so that the sizes of the batches are known before flushing
+ *
+ * @author David Hsing
+ */
+abstract class MongoBatchModels {
+    private static final String ID_FIELD = "_id";    // $NON-NLS-1$
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+
+    @Nonnull
+    static BatchModel insertModel(@Nonnull MongoConverter converter, @Nonnull Codec<Document> codec, @Nonnull Object entity) {
+        RawBsonDocument document = toDocument(converter, codec, entity);
+        return new BatchModel(new InsertOneModel<>(document), document.getByteBuffer().remaining());
+    }
+
+    @Nonnull
+    static BatchModel upsertModel(@Nonnull MongoConverter converter, @Nonnull Codec<Document> codec, @Nonnull Object entity) {
+        RawBsonDocument document = toDocument(converter, codec, entity);
+        BsonDocument filter = new BsonDocument(ID_FIELD, document.get(ID_FIELD));
+        return new BatchModel(new ReplaceOneModel<>(filter, document, UPSERT), document.getByteBuffer().remaining());
+    }
+
+    @Nonnull
+    static BatchModel deleteModel(@Nonnull MongoConverter converter, @Nonnull Object entity) {
+        MongoPersistentEntity<?> persistentEntity = converter.getMappingContext().getRequiredPersistentEntity(entity.getClass());
+        return deleteModel(converter, entity.getClass(), persistentEntity.getIdentifierAccessor(entity).getRequiredIdentifier());
+    }
+
+    @Nonnull
+    static BatchModel deleteModel(@Nonnull MongoConverter converter, @Nonnull Class<?> entityClass, @Nonnull Object id) {
+        MongoPersistentProperty property = converter.getMappingContext().getRequiredPersistentEntity(entityClass).getRequiredIdProperty();
+        Bson filter = Filters.eq(ID_FIELD, converter.convertId(id, property.getFieldType()));
+        return new BatchModel(new DeleteOneModel<>(filter), 0L);
+    }
+
+    /**
+     * Splits the models into the batches, each of them is no larger than the max size, except a single model that is larger than the max size
+     */
+    @Nonnull
+    static List<List<WriteModel<RawBsonDocument>>> partition(@Nonnull List<BatchModel> models, long maxBytes) {
+        List<List<WriteModel<RawBsonDocument>>> result = new ArrayList<>();
+        List<WriteModel<RawBsonDocument>> batch = new ArrayList<>();
+        long bytes = 0L;
+        for (BatchModel model : models) {
+            if (!batch.isEmpty() && bytes + model.bytes() > maxBytes) {
+                result.add(batch);
+                batch = new ArrayList<>();
+                bytes = 0L;
+            }
+            batch.add(model.model());
+            bytes += model.bytes();
+        }
+        if (!batch.isEmpty()) {
+            result.add(batch);
+        }
+        return result;
+    }
+
+    @Nonnull
+    static Throwable translate(@Nonnull PersistenceExceptionTranslator translator, @Nonnull Throwable cause) {
+        if (cause instanceof RuntimeException alias) {
+            Throwable translated = translator.translateExceptionIfPossible(alias);
+            return (translated == null) ? cause : translated;
+        }
+        return cause;
+    }
+
+    /**
+     * Converts the entity into a raw document, with a generated {@code ObjectId} if the entity has no id
+     * <p>
+     * The generated id is also set to the entity, if the id property is mutable and convertible from {@code ObjectId}
+     */
+    @Nonnull
+    private static RawBsonDocument toDocument(@Nonnull MongoConverter converter, @Nonnull Codec<Document> codec, @Nonnull Object entity) {
+        Assert.notNull(entity, "Entity must not be null");
+        Document document = new Document();
+        converter.write(entity, document);
+        if (document.get(ID_FIELD) == null) {
+            ObjectId id = new ObjectId();
+            document.put(ID_FIELD, id);
+            populateId(converter, entity, id);
+        }
+        return new RawBsonDocument(document, codec);
+    }
+
+    private static void populateId(@Nonnull MongoConverter converter, @Nonnull Object entity, @Nonnull ObjectId id) {
+        MongoPersistentEntity<?> persistentEntity = converter.getMappingContext().getPersistentEntity(entity.getClass());
+        MongoPersistentProperty property = (persistentEntity == null) ? null : persistentEntity.getIdProperty();
+        if (property == null || property.isImmutable() || !converter.getConversionService().canConvert(ObjectId.class, property.getType())) {
+            return;
+        }
+        PersistentPropertyAccessor<?> accessor = persistentEntity.getPropertyAccessor(entity);
+        accessor.setProperty(property, converter.getConversionService().convert(id, property.getType()));
+    }
+
+
+    /**
+     * A write model with the size of its document
+     *
+     * @author David Hsing
+     */
+    record BatchModel(@Nonnull WriteModel<RawBsonDocument> model, long bytes) {
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.batch;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import jakarta.annotation.Nonnull;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+
+
+/**
+ * Batch writer of a data source, which groups the writes of many threads into unordered bulk writes
+ * <p>
+ * The operations are queued without locking, and flushed on a single background thread, when the count or the size of the pending operations reaches the limit,
+ * or when the linger time elapses. Each operation has its own future, which fails with the error of its own document only.
+ * The writes bypass the entity callbacks, the lifecycle events and the optimistic locking of the template
+ *
+ * @author David Hsing
+ */
+public class MongoBatchWriter implements AutoCloseable {
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final MongoTemplate template;
+    private final Codec<Document> codec;
+    private final PersistenceExceptionTranslator translator;
+    private final int maxOperations;
+    private final long maxBytes;
+    private final Queue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingOperations = new AtomicInteger();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledThreadPoolExecutor flusher;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new batch writer
+     *
+     * @param template the template of the data source
+     * @param properties the properties of the batch writer
+     */
+    public MongoBatchWriter(@Nonnull MongoTemplate template, @Nonnull ExtendedMongoProperties.Batch properties) {
+        Assert.isTrue(properties.getMaxOperations() != null && properties.getMaxOperations() > 0, "Max operations must be positive");
+        Assert.isTrue(properties.getLinger() != null && !properties.getLinger().isNegative() && !properties.getLinger().isZero(), "Linger must be positive");
+        this.template = template;
+        this.codec = template.getMongoDatabaseFactory().getCodecRegistry().get(Document.class);
+        this.translator = template.getMongoDatabaseFactory().getExceptionTranslator();
+        this.maxOperations = properties.getMaxOperations();
+        this.maxBytes = (properties.getMaxSize() == null) ? Long.MAX_VALUE : properties.getMaxSize().toBytes();
+        this.flusher = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("mongo-batch-"));    // $NON-NLS-1$
+        this.flusher.setRemoveOnCancelPolicy(true);
+        long linger = properties.getLinger().toNanos();
+        this.flusher.scheduleWithFixedDelay(this::drain, linger, linger, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Inserts the entity, an {@code ObjectId} is generated if the entity has no id
+     *
+     * @param entity the entity to insert
+     *
+     * @return a future that completes when the entity has been inserted
+     */
+    @Nonnull
+    public CompletableFuture<Void> insert(@Nonnull Object entity) {
+        return enqueue(entity.getClass(), MongoBatchModels.insertModel(template.getConverter(), codec, entity));
+    }
+
+    /**
+     * Inserts the entity, or replaces the document that has the same id
+     *
+     * @param entity the entity to upsert
+     *
+     * @return a future that completes when the entity has been upserted
+     */
+    @Nonnull
+    public CompletableFuture<Void> upsert(@Nonnull Object entity) {
+        return enqueue(entity.getClass(), MongoBatchModels.upsertModel(template.getConverter(), codec, entity));
+    }
+
+    /**
+     * Deletes the document of the entity by its id
+     *
+     * @param entity the entity to delete
+     *
+     * @return a future that completes when the document has been deleted, or does not exist
+     */
+    @Nonnull
+    public CompletableFuture<Void> delete(@Nonnull Object entity) {
+        return enqueue(entity.getClass(), MongoBatchModels.deleteModel(template.getConverter(), entity));
+    }
+
+    @Nonnull
+    public CompletableFuture<Void> delete(@Nonnull Class<?> entityClass, @Nonnull Object id) {
+        return enqueue(entityClass, MongoBatchModels.deleteModel(template.getConverter(), entityClass, id));
+    }
+
+    /**
+     * Flushes the pending operations immediately
+     *
+     * @return a future that completes when the pending operations have been written
+     */
+    @Nonnull
+    public CompletableFuture<Void> flush() {
+        Assert.state(!closed, "Batch writer has been closed");
+        return CompletableFuture.runAsync(this::drain, flusher);
+    }
+
+    /**
+     * Returns the count of the operations that are waiting for flushing
+     *
+     * @return the count of the operations that are waiting for flushing
+     */
+    public int getPendingOperations() {
+        return Math.max(pendingOperations.get(), 0);
+    }
+
+    /**
+     * Flushes the pending operations and stops the background thread
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.execute(this::drain);
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30L, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            write.future().completeExceptionally(new IllegalStateException("Batch writer has been closed"));
+        }
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> enqueue(@Nonnull Class<?> entityClass, @Nonnull MongoBatchModels.BatchModel model) {
+        Assert.state(!closed, "Batch writer has been closed");
+        PendingWrite write = new PendingWrite(template.getCollectionName(entityClass), model, new CompletableFuture<>());
+        queue.add(write);
+        int operations = pendingOperations.incrementAndGet();
+        long bytes = pendingBytes.addAndGet(model.bytes());
+        if ((operations >= maxOperations || bytes >= maxBytes) && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::drain);
+        }
+        return write.future();
+    }
+
+    /**
+     * Writes the pending operations in batches, this only runs on the background thread
+     */
+    private void drain() {
+        flushRequested.set(false);
+        while (!queue.isEmpty()) {
+            List<PendingWrite> writes = new ArrayList<>();
+            long bytes = 0L;
+            PendingWrite write;
+            while (writes.size() < maxOperations && bytes < maxBytes && (write = queue.poll()) != null) {
+                writes.add(write);
+                bytes += write.model().bytes();
+            }
+            pendingOperations.addAndGet(-writes.size());
+            pendingBytes.addAndGet(-bytes);
+            Map<String, List<PendingWrite>> collections = writes.stream().collect(Collectors.groupingBy(PendingWrite::collectionName, LinkedHashMap::new, Collectors.toList()));
+            collections.forEach(this::bulkWrite);
+        }
+    }
+
+    private void bulkWrite(@Nonnull String collectionName, @Nonnull List<PendingWrite> writes) {
+        List<WriteModel<RawBsonDocument>> models = writes.stream().map(write -> write.model().model()).toList();
+        try {
+            template.getCollection(collectionName).withDocumentClass(RawBsonDocument.class).bulkWrite(models, UNORDERED);
+            writes.forEach(write -> write.future().complete(null));
+        } catch (MongoBulkWriteException ex) {
+            Map<Integer, BulkWriteError> errors = ex.getWriteErrors().stream().collect(Collectors.toMap(BulkWriteError::getIndex, Function.identity(), (former, latter) -> former));
+            for (int i = 0; i < writes.size(); i++) {
+                BulkWriteError error = errors.get(i);
+                if (error != null) {
+                    writes.get(i).future().completeExceptionally(MongoBatchModels.translate(translator, new MongoWriteException(error, ex.getServerAddress(), ex.getErrorLabels())));
+                } else if (ex.getWriteConcernError() != null) {
+                    writes.get(i).future().completeExceptionally(MongoBatchModels.translate(translator, ex));
+                } else {
+                    writes.get(i).future().complete(null);
+                }
+            }
+        } catch (RuntimeException ex) {
+            Throwable cause = MongoBatchModels.translate(translator, ex);
+            writes.forEach(write -> write.future().completeExceptionally(cause));
+        }
+    }
+
+
+    /**
+     * An operation that is waiting for flushing
+     *
+     * @author David Hsing
+     */
+    private record PendingWrite(@Nonnull String collectionName, @Nonnull MongoBatchModels.BatchModel model, @Nonnull CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.batch;
+
+
+import java.time.Duration;
+import jakarta.annotation.Nonnull;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.reactivestreams.Publisher;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.util.Assert;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Reactive batch writer of a data source, which groups the elements of a publisher into unordered bulk writes
+ * <p>
+ * The elements are requested only as fast as the bulk writes complete, one bulk write at a time, so a fast publisher is slowed down by the database.
+ * A batch is flushed when it reaches the count or the size limit, or when the linger time elapses.
+ * The writes bypass the entity callbacks, the lifecycle events and the optimistic locking of the template
+ *
+ * @author David Hsing
+ */
+public class ReactiveMongoBatchWriter {
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final ReactiveMongoTemplate template;
+    private final Codec<Document> codec;
+    private final PersistenceExceptionTranslator translator;
+    private final int maxOperations;
+    private final long maxBytes;
+    private final Duration linger;
+
+    /**
+     * Constructs a new reactive batch writer
+     *
+     * @param template the reactive template of the data source
+     * @param properties the properties of the batch writer
+     */
+    public ReactiveMongoBatchWriter(@Nonnull ReactiveMongoTemplate template, @Nonnull ExtendedMongoProperties.Batch properties) {
+        Assert.isTrue(properties.getMaxOperations() != null && properties.getMaxOperations() > 0, "Max operations must be positive");
+        Assert.isTrue(properties.getLinger() != null && !properties.getLinger().isNegative() && !properties.getLinger().isZero(), "Linger must be positive");
+        this.template = template;
+        this.codec = template.getMongoDatabaseFactory().getCodecRegistry().get(Document.class);
+        this.translator = template.getMongoDatabaseFactory().getExceptionTranslator();
+        this.maxOperations = properties.getMaxOperations();
+        this.maxBytes = (properties.getMaxSize() == null) ? Long.MAX_VALUE : properties.getMaxSize().toBytes();
+        this.linger = properties.getLinger();
+    }
+
+    /**
+     * Inserts the entities, an {@code ObjectId} is generated for each entity that has no id
+     *
+     * @param entityClass the class of the entities, which determines the collection
+     * @param entities the entities to insert
+     *
+     * @return the results of the bulk writes
+     */
+    @Nonnull
+    public <T> Flux<BulkWriteResult> insert(@Nonnull Class<T> entityClass, @Nonnull Publisher<? extends T> entities) {
+        return bulkWrite(entityClass, Flux.from(entities).map(entity -> MongoBatchModels.insertModel(template.getConverter(), codec, entity)));
+    }
+
+    /**
+     * Inserts the entities, or replaces the documents that have the same ids
+     *
+     * @param entityClass the class of the entities, which determines the collection
+     * @param entities the entities to upsert
+     *
+     * @return the results of the bulk writes
+     */
+    @Nonnull
+    public <T> Flux<BulkWriteResult> upsert(@Nonnull Class<T> entityClass, @Nonnull Publisher<? extends T> entities) {
+        return bulkWrite(entityClass, Flux.from(entities).map(entity -> MongoBatchModels.upsertModel(template.getConverter(), codec, entity)));
+    }
+
+    /**
+     * Deletes the documents by the ids
+     *
+     * @param entityClass the class of the entities, which determines the collection
+     * @param ids the ids of the documents to delete
+     *
+     * @return the results of the bulk writes
+     */
+    @Nonnull
+    public Flux<BulkWriteResult> delete(@Nonnull Class<?> entityClass, @Nonnull Publisher<?> ids) {
+        return bulkWrite(entityClass, Flux.from(ids).map(id -> MongoBatchModels.deleteModel(template.getConverter(), entityClass, id)));
+    }
+
+    @Nonnull
+    private Flux<BulkWriteResult> bulkWrite(@Nonnull Class<?> entityClass, @Nonnull Flux<MongoBatchModels.BatchModel> models) {
+        String collectionName = template.getCollectionName(entityClass);
+        return models.bufferTimeout(maxOperations, linger, true)
+            .concatMapIterable(batch -> MongoBatchModels.partition(batch, maxBytes), 1)
+            .concatMap(batch -> template.getCollection(collectionName).flatMap(collection -> Mono.from(collection.withDocumentClass(RawBsonDocument.class).bulkWrite(batch, UNORDERED))), 1)
+            .onErrorMap(ex -> MongoBatchModels.translate(translator, ex));
+    }
+}
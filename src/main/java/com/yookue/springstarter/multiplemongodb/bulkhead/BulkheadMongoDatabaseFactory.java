@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.bulkhead;
+
+
+import jakarta.annotation.Nonnull;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+
+
+/**
+ * Classic database factory that admits each operation by the bulkhead of the data source
+ * <p>
+ * Each call that talks to the server takes a permit of the bulkhead, including the cursor batches and the calls bound to sessions
+ *
+ * @author David Hsing
+ */
+public class BulkheadMongoDatabaseFactory extends SimpleMongoClientDatabaseFactory {
+    private final MongoSourceBulkhead bulkhead;
+
+    public BulkheadMongoDatabaseFactory(@Nonnull MongoClient client, @Nonnull String databaseName, @Nonnull MongoSourceBulkhead bulkhead) {
+        super(client, databaseName);
+        this.bulkhead = bulkhead;
+    }
+
+    @Nonnull
+    @Override
+    public MongoDatabase getMongoDatabase(@Nonnull String dbName) throws DataAccessException {
+        return MongoBulkheadProxies.classicDatabase(super.getMongoDatabase(dbName), bulkhead);
+    }
+
+    @Nonnull
+    public MongoSourceBulkhead getBulkhead() {
+        return bulkhead;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.bulkhead;
+
+
+import jakarta.annotation.Nonnull;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Reactive database factory that admits each operation by the bulkhead of the data source, when the operation is subscribed
+ * <p>
+ * The permit of the bulkhead is held until the operation terminates or is cancelled, including the calls bound to sessions.
+ * The priority is read from the Reactor context with {@link MongoBulkheadContextHolder#CONTEXT_KEY}, or from the subscribing thread
+ *
+ * @author David Hsing
+ */
+public class BulkheadReactiveMongoDatabaseFactory extends SimpleReactiveMongoDatabaseFactory {
+    private final MongoSourceBulkhead bulkhead;
+
+    public BulkheadReactiveMongoDatabaseFactory(@Nonnull MongoClient client, @Nonnull String databaseName, @Nonnull MongoSourceBulkhead bulkhead) {
+        super(client, databaseName);
+        this.bulkhead = bulkhead;
+    }
+
+    @Nonnull
+    @Override
+    public Mono<MongoDatabase> getMongoDatabase(@Nonnull String dbName) throws DataAccessException {
+        return super.getMongoDatabase(dbName).map(database -> MongoBulkheadProxies.reactiveDatabase(database, bulkhead));
+    }
+
+    @Nonnull
+    public MongoSourceBulkhead getBulkhead() {
+        return bulkhead;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.bulkhead;
+
+
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Holder for the bulkhead priority of the current thread
+ * <p>
+ * For reactive operations, write the priority into the Reactor context with {@link #CONTEXT_KEY}, such as {@code contextWrite(Context.of(MongoBulkheadContextHolder.CONTEXT_KEY, MongoBulkheadPriority.LOW))}
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
+public abstract class MongoBulkheadContextHolder {
+    public static final String CONTEXT_KEY = MongoBulkheadContextHolder.class.getName() + ".PRIORITY";    // $NON-NLS-1$
+    private static final ThreadLocal<MongoBulkheadPriority> PRIORITY = new ThreadLocal<>();
+
+    @Nullable
+    public static MongoBulkheadPriority getPriority() {
+        return PRIORITY.get();
+    }
+
+    public static void setPriority(@Nullable MongoBulkheadPriority priority) {
+        if (priority == null) {
+            PRIORITY.remove();
+        } else {
+            PRIORITY.set(priority);
+        }
+    }
+
+    public static void clearPriority() {
+        PRIORITY.remove();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.bulkhead;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import reactor.core.publisher.Flux;
+
+
+/**
+ * Utilities for the proxies of the databases of the bulkhead factories
+ * <p>
+ * The proxies take a permit of the bulkhead around each call that talks to the server, and return it when the call completes.
+ * The collections and the iterables are proxied as well, so the finds, the cursor batches ({@code getMore}) and the calls bound to sessions are all admitted.
+ * For the reactive clients, a permit is taken when a publisher is subscribed, and returned when it terminates or is cancelled
+ *
+ * @author David Hsing
+ */
+abstract class MongoBulkheadProxies {
+    private static final Set<String> CURSOR_METHODS = Set.of("hasNext", "next", "tryNext", "forEachRemaining");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+
+    @Nonnull
+    static MongoDatabase classicDatabase(@Nonnull MongoDatabase database, @Nonnull MongoSourceBulkhead bulkhead) {
+        return proxy(MongoDatabase.class, new ClassicHandler(database, bulkhead));
+    }
+
+    @Nonnull
+    static com.mongodb.reactivestreams.client.MongoDatabase reactiveDatabase(@Nonnull com.mongodb.reactivestreams.client.MongoDatabase database, @Nonnull MongoSourceBulkhead bulkhead) {
+        return proxy(com.mongodb.reactivestreams.client.MongoDatabase.class, new ReactiveHandler(database, bulkhead));
+    }
+
+    @Nonnull
+    private static <T> T proxy(@Nonnull Class<T> type, @Nonnull InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(MongoBulkheadProxies.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    @Nullable
+    private static Object invoke(@Nonnull Object target, @Nonnull Method method, @Nullable Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+
+    /**
+     * Handler of the classic databases, collections, iterables and cursors
+     */
+    private record ClassicHandler(@Nonnull Object target, @Nonnull MongoSourceBulkhead bulkhead) implements InvocationHandler {
+        @Override
+        public Object invoke(@Nonnull Object proxy, @Nonnull Method method, @Nullable Object[] args) throws Throwable {
+            Class<?> type = method.getReturnType();
+            if (isLazy(type)) {
+                Object result = MongoBulkheadProxies.invoke(target, method, args);
+                return (result == null) ? null : proxy(type, new ClassicHandler(result, bulkhead));
+            }
+            if (!isRemote(method)) {
+                return MongoBulkheadProxies.invoke(target, method, args);
+            }
+            Object result;
+            bulkhead.admit(MongoBulkheadContextHolder.getPriority());
+            try {
+                result = MongoBulkheadProxies.invoke(target, method, args);
+            } finally {
+                bulkhead.release();
+            }
+            return (result != null && MongoCursor.class.isAssignableFrom(type)) ? proxy(type, new ClassicHandler(result, bulkhead)) : result;
+        }
+
+        /**
+         * Returns whether the type is a database, a collection or an iterable, whose methods return without talking to the server
+         */
+        private boolean isLazy(@Nonnull Class<?> type) {
+            return type == MongoDatabase.class || type == MongoCollection.class || (type.isInterface() && MongoIterable.class.isAssignableFrom(type));
+        }
+
+        /**
+         * Returns whether the call may talk to the server, a cursor does only when its current batch is exhausted
+         */
+        private boolean isRemote(@Nonnull Method method) {
+            if (method.getDeclaringClass() == Object.class) {
+                return false;
+            }
+            if (target instanceof MongoCursor<?> cursor) {
+                return CURSOR_METHODS.contains(method.getName()) && cursor.available() == 0;
+            }
+            return !method.getName().startsWith("get");    // $NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Handler of the reactive databases, collections and publishers
+     */
+    private record ReactiveHandler(@Nonnull Object target, @Nonnull MongoSourceBulkhead bulkhead) implements InvocationHandler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(@Nonnull Object proxy, @Nonnull Method method, @Nullable Object[] args) throws Throwable {
+            if (target instanceof Publisher<?> publisher && "subscribe".equals(method.getName()) && args != null && args.length == 1) {    // $NON-NLS-1$
+                subscribe(publisher, (Subscriber<Object>) args[0]);
+                return null;
+            }
+            Class<?> type = method.getReturnType();
+            Object result = MongoBulkheadProxies.invoke(target, method, args);
+            if (result != null && type.isInterface() && isProxied(type)) {
+                return proxy(type, new ReactiveHandler(result, bulkhead));
+            }
+            return result;
+        }
+
+        private boolean isProxied(@Nonnull Class<?> type) {
+            return type == com.mongodb.reactivestreams.client.MongoDatabase.class || type == com.mongodb.reactivestreams.client.MongoCollection.class || Publisher.class.isAssignableFrom(type);
+        }
+
+        private void subscribe(@Nonnull Publisher<?> publisher, @Nonnull Subscriber<Object> subscriber) {
+            Flux.deferContextual(context -> {
+                bulkhead.admit(context.getOrDefault(MongoBulkheadContextHolder.CONTEXT_KEY, MongoBulkheadContextHolder.getPriority()));
+                return Flux.from(publisher).doFinally(signal -> bulkhead.release());
+            }).subscribe(subscriber);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.bulkhead;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.util.Assert;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+
+/**
+ * Bulkhead of a client of a data source, which sheds the operations before they join the wait queue of the connection pool
+ * <p>
+ * Each operation takes a permit when it is admitted and returns it when it completes, the permits are counted by a lock-free counter.
+ * An operation is admitted only if the permits in use are below the max pool size plus the wait queue threshold of its priority,
+ * so the operations in flight are capped at the max pool size plus the max wait queue size, even under a burst.
+ * The low priority operations are shed first, the high priority operations are never shed but still take permits.
+ * <p>
+ * The bulkhead also listens to the connection pool of its client, for the max pool size and for the connections in use and the check-outs that are waiting
+ *
+ * @author David Hsing
+ */
+public class MongoSourceBulkhead implements ConnectionPoolListener {
+    private final String source;
+    private final String flavor;
+    private final int maxWaitQueueSize;
+    private final int lowPriorityWaitQueueSize;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int maxPoolSize = ConnectionPoolSettings.builder().build().getMaxSize();
+
+    /**
+     * Constructs a new bulkhead
+     *
+     * @param source the name of the data source
+     * @param flavor the flavor of the client, such as {@code classic} or {@code reactive}
+     * @param maxWaitQueueSize the max count of the operations beyond the max pool size, at which the normal priority operations are shed
+     * @param lowPriorityRatio the ratio of the max wait queue size, at which the low priority operations are shed
+     */
+    public MongoSourceBulkhead(@Nonnull String source, @Nonnull String flavor, int maxWaitQueueSize, double lowPriorityRatio) {
+        Assert.isTrue(maxWaitQueueSize >= 0, "Max wait queue size must not be negative");
+        Assert.isTrue(lowPriorityRatio >= 0.0D && lowPriorityRatio <= 1.0D, "Low priority ratio must be between 0 and 1");
+        this.source = source;
+        this.flavor = flavor;
+        this.maxWaitQueueSize = maxWaitQueueSize;
+        this.lowPriorityWaitQueueSize = (int) (maxWaitQueueSize * lowPriorityRatio);
+    }
+
+    /**
+     * Admits an operation by taking a permit, or sheds it if the permits in use have reached the limit of its priority
+     * <p>
+     * Each successful call must be paired with a call of {@link #release()} when the operation completes
+     *
+     * @param priority the priority of the operation, {@code null} for normal
+     *
+     * @throws MongoSourceOverloadedException if the operation is shed
+     */
+    public void admit(@Nullable MongoBulkheadPriority priority) throws MongoSourceOverloadedException {
+        if (priority == MongoBulkheadPriority.HIGH) {
+            inFlight.incrementAndGet();
+            return;
+        }
+        int limit = maxPoolSize + (priority == MongoBulkheadPriority.LOW ? lowPriorityWaitQueueSize : maxWaitQueueSize);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                throw new MongoSourceOverloadedException(source, current);
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the permit of an admitted operation
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    @Override
+    public void connectionPoolCreated(@Nonnull ConnectionPoolCreatedEvent event) {
+        maxPoolSize = event.getSettings().getMaxSize();
+    }
+
+    @Override
+    public void connectionCheckOutStarted(@Nonnull ConnectionCheckOutStartedEvent event) {
+        waiting.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(@Nonnull ConnectionCheckedOutEvent event) {
+        waiting.decrementAndGet();
+        inUse.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutFailed(@Nonnull ConnectionCheckOutFailedEvent event) {
+        waiting.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedIn(@Nonnull ConnectionCheckedInEvent event) {
+        inUse.decrementAndGet();
+    }
+
+    @Nonnull
+    public String getSource() {
+        return source;
+    }
+
+    @Nonnull
+    public String getFlavor() {
+        return flavor;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public int getMaxWaitQueueSize() {
+        return maxWaitQueueSize;
+    }
+
+    public int getInFlight() {
+        return Math.max(inFlight.get(), 0);
+    }
+
+    public int getWaitQueueSize() {
+        return Math.max(waiting.get(), 0);
+    }
+
+    public int getInUse() {
+        return Math.max(inUse.get(), 0);
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.bulkhead;
+
+
+import jakarta.annotation.Nonnull;
+import org.springframework.dao.TransientDataAccessResourceException;
+import lombok.Getter;
+
+
+/**
+ * Exception thrown when an operation is shed by the bulkhead of a data source
+ *
+ * @author David Hsing
+ */
+@Getter
+@SuppressWarnings("unused")
+public class MongoSourceOverloadedException extends TransientDataAccessResourceException {
+    private static final long serialVersionUID = 1L;
+
+    private final String source;
+    private final int inFlight;
+
+    public MongoSourceOverloadedException(@Nonnull String source, int inFlight) {
+        super("Data source '" + source + "' is overloaded, " + inFlight + " operations are in flight");
+        this.source = source;
+        this.inFlight = inFlight;
+    }
+}
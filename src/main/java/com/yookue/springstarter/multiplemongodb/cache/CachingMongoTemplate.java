@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.cache;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.Document;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import com.mongodb.client.MongoCollection;
+
+
+/**
+ * Template that serves the queries on the cached collections from the query cache of the data source
+ * <p>
+ * The finds and the counts are served from the cache, the writes invalidate the collection at once, and the change stream invalidates it on the writes of the others.
+ * The operations within sessions or transactions bypass the cache
+ *
+ * @author David Hsing
+ */
+public class CachingMongoTemplate extends MongoTemplate {
+    private final MongoQueryCache queryCache;
+
+    /**
+     * Constructs a new caching template
+     *
+     * @param factory the database factory of the data source
+     * @param converter the converter of the data source
+     * @param queryCache the query cache of the data source
+     */
+    public CachingMongoTemplate(@Nonnull MongoDatabaseFactory factory, @Nullable MongoConverter converter, @Nonnull MongoQueryCache queryCache) {
+        super(factory, converter);
+        this.queryCache = queryCache;
+    }
+
+    @Nonnull
+    public MongoQueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    @Nonnull
+    @Override
+    protected MongoCollection<Document> prepareCollection(@Nonnull MongoCollection<Document> collection) {
+        MongoCollection<Document> prepared = super.prepareCollection(collection);
+        if (AopUtils.isAopProxy(collection) || !queryCache.isCached(prepared.getNamespace().getCollectionName())) {
+            return prepared;
+        }
+        return MongoQueryCacheProxies.classicCollection(prepared, queryCache);
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.cache;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.util.Assert;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+
+/**
+ * Query cache of a data source, which keeps the results of the queries on the cached collections
+ * <p>
+ * The results are keyed by the collection, the normalized filter, the projection, the sort and the other options of the queries, and kept as raw documents,
+ * so each hit decodes its own copy. The entries are indexed by collection, so invalidating a collection only touches its own entries. The entries are bounded by count and time to live, the oldest entries are evicted first.
+ * A change stream on the cached collections invalidates the entries of a collection once any document of it changes, no matter which client changes it.
+ * The cache is bypassed while the change stream is not open, such as on a standalone server
+ *
+ * @author David Hsing
+ */
+public class MongoQueryCache implements SmartLifecycle {
+    private static final long MIN_RETRY_MILLIS = 1000L, MAX_RETRY_MILLIS = 30000L;
+    private static final String NAMESPACE_COLLECTION = "ns.coll", OPERATION_TYPE = "operationType", NAMESPACE = "ns";    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+
+    private final String source;
+    private final MongoDatabaseFactory factory;
+    private final Map<String, AtomicLong> versions;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final int maxResultSize;
+    private final Map<String, Map<Key, Entry>> entries;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), invalidations = new LongAdder();
+    private volatile boolean active;
+    private volatile boolean running;
+    private Thread watcher;
+
+    /**
+     * Constructs a new query cache
+     *
+     * @param source the name of the data source
+     * @param factory the database factory of the data source, which opens the change stream
+     * @param collections the names of the cached collections
+     * @param ttl the time to live of the entries
+     * @param maxEntries the max count of the entries
+     * @param maxResultSize the max count of the documents of a cached result, the larger results are not cached
+     */
+    public MongoQueryCache(@Nonnull String source, @Nonnull MongoDatabaseFactory factory, @Nonnull Collection<String> collections, @Nonnull Duration ttl, int maxEntries, int maxResultSize) {
+        Assert.isTrue(!ttl.isNegative() && !ttl.isZero(), "Ttl must be positive");
+        Assert.isTrue(maxEntries > 0, "Max entries must be positive");
+        Assert.isTrue(maxResultSize > 0, "Max result size must be positive");
+        this.source = source;
+        this.factory = factory;
+        this.versions = collections.stream().distinct().collect(Collectors.toUnmodifiableMap(Function.identity(), name -> new AtomicLong()));
+        this.entries = versions.keySet().stream().collect(Collectors.toUnmodifiableMap(Function.identity(), name -> new ConcurrentHashMap<>()));
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.maxResultSize = maxResultSize;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || versions.isEmpty()) {
+            return;
+        }
+        running = true;
+        watcher = new Thread(this::watch, "mongo-query-cache-" + source);    // $NON-NLS-1$
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        active = false;
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+        invalidateAll();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns whether the collection is cached
+     *
+     * @param collectionName the name of the collection
+     *
+     * @return whether the collection is cached
+     */
+    public boolean isCached(@Nonnull String collectionName) {
+        return versions.containsKey(collectionName);
+    }
+
+    /**
+     * Returns whether the cache serves the queries, which means the change stream is open
+     *
+     * @return whether the cache serves the queries
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Invalidates the entries of the collection
+     *
+     * @param collectionName the name of the collection
+     */
+    public void invalidate(@Nonnull String collectionName) {
+        AtomicLong version = versions.get(collectionName);
+        if (version != null) {
+            version.incrementAndGet();
+            entries.get(collectionName).clear();
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Invalidates all the entries
+     */
+    public void invalidateAll() {
+        versions.values().forEach(AtomicLong::incrementAndGet);
+        entries.values().forEach(Map::clear);
+        invalidations.increment();
+    }
+
+    @Nonnull
+    public String getSource() {
+        return source;
+    }
+
+    @Nonnull
+    public Set<String> getCollections() {
+        return versions.keySet();
+    }
+
+    public int getSize() {
+        return entries.values().stream().mapToInt(Map::size).sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    int getMaxResultSize() {
+        return maxResultSize;
+    }
+
+    /**
+     * Returns the version of the collection, which must be taken before querying, and passed back on putting the result
+     */
+    long version(@Nonnull String collectionName) {
+        AtomicLong version = versions.get(collectionName);
+        return (version == null) ? -1L : version.get();
+    }
+
+    /**
+     * Returns the cached documents of a find, or {@code null} if absent
+     */
+    @Nullable
+    List<RawBsonDocument> getDocuments(@Nonnull Key key) {
+        Entry entry = get(key);
+        return (entry == null) ? null : entry.documents();
+    }
+
+    /**
+     * Returns the cached result of a count, or {@code null} if absent
+     */
+    @Nullable
+    Long getCount(@Nonnull Key key) {
+        Entry entry = get(key);
+        return (entry == null) ? null : entry.count();
+    }
+
+    /**
+     * Puts the documents of a find, unless the collection has been invalidated since the version was taken
+     */
+    void putDocuments(@Nonnull Key key, long version, @Nonnull List<RawBsonDocument> documents) {
+        put(key, version, documents, null);
+    }
+
+    /**
+     * Puts the result of a count, unless the collection has been invalidated since the version was taken
+     */
+    void putCount(@Nonnull Key key, long version, long count) {
+        put(key, version, null, count);
+    }
+
+    @Nullable
+    private Entry get(@Nonnull Key key) {
+        Map<Key, Entry> region = entries.get(key.collection());
+        Entry entry = (region == null) ? null : region.get(key);
+        if (entry != null && active && entry.expiresAt() - System.nanoTime() > 0L) {
+            hits.increment();
+            return entry;
+        }
+        if (entry != null) {
+            region.remove(key, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void put(@Nonnull Key key, long version, @Nullable List<RawBsonDocument> documents, @Nullable Long count) {
+        AtomicLong current = versions.get(key.collection());
+        if (!active || current == null || current.get() != version) {
+            return;
+        }
+        Map<Key, Entry> region = entries.get(key.collection());
+        Entry entry = new Entry(documents, count, System.nanoTime() + ttlNanos, sequence.incrementAndGet());
+        region.put(key, entry);
+        if (current.get() != version) {
+            region.remove(key, entry);
+        } else if (getSize() > maxEntries) {
+            evict();
+        }
+    }
+
+    /**
+     * Evicts the expired entries, then the oldest entries, down to nine tenths of the max count, so that the eviction is amortized over the puts
+     */
+    private synchronized void evict() {
+        if (getSize() <= maxEntries) {
+            return;
+        }
+        long now = System.nanoTime();
+        entries.values().forEach(region -> region.values().removeIf(entry -> entry.expiresAt() - now <= 0L));
+        int excess = getSize() - (maxEntries - maxEntries / 10);
+        if (excess > 0) {
+            List<Map.Entry<Key, Entry>> candidates = new ArrayList<>();
+            entries.values().forEach(region -> candidates.addAll(region.entrySet()));
+            candidates.stream().sorted(Comparator.comparingLong(alias -> alias.getValue().sequence())).limit(excess).toList().forEach(alias -> entries.get(alias.getKey().collection()).remove(alias.getKey(), alias.getValue()));
+        }
+    }
+
+    /**
+     * Watches the cached collections, and reopens the change stream after a failure, all the entries are invalidated meanwhile, as the changes may be missed
+     */
+    private void watch() {
+        long retryMillis = MIN_RETRY_MILLIS;
+        List<Bson> pipeline = List.of(
+            Aggregates.match(Filters.or(Filters.in(NAMESPACE_COLLECTION, versions.keySet()), Filters.in(OPERATION_TYPE, OperationType.DROP_DATABASE.getValue(), OperationType.INVALIDATE.getValue()))),
+            Aggregates.project(Projections.include(OPERATION_TYPE, NAMESPACE)));
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = factory.getMongoDatabase().watch(pipeline).maxAwaitTime(1L, TimeUnit.SECONDS).cursor()) {
+                invalidateAll();
+                active = true;
+                retryMillis = MIN_RETRY_MILLIS;
+                while (running) {
+                    ChangeStreamDocument<Document> event = cursor.tryNext();
+                    if (event == null) {
+                        continue;
+                    }
+                    if (event.getNamespace() == null || event.getNamespace().getCollectionName() == null) {
+                        invalidateAll();
+                    } else {
+                        invalidate(event.getNamespace().getCollectionName());
+                    }
+                }
+            } catch (RuntimeException ignored) {
+                active = false;
+                invalidateAll();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(retryMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                retryMillis = Math.min(retryMillis * 2L, MAX_RETRY_MILLIS);
+            }
+        }
+        active = false;
+    }
+
+
+    /**
+     * The key of a cached result, the spec holds the operation, the normalized filter and the options of the query
+     *
+     * @author David Hsing
+     */
+    record Key(@Nonnull String collection, @Nonnull BsonDocument spec) {
+    }
+
+
+    /**
+     * A cached result, either the documents of a find or the result of a count, with its expiration and the sequence of putting
+     *
+     * @author David Hsing
+     */
+    private record Entry(@Nullable List<RawBsonDocument> documents, @Nullable Long count, long expiresAt, long sequence) {
+    }
+}
@@ -0,0 +1,589 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.cache;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonReader;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.session.ClientSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Utilities for the proxies of the collections of the caching templates
+ * <p>
+ * The proxies serve the finds and the counts without sessions from the cache, record the options of the finds into the keys,
+ * and invalidate the collection after each write. Any other call passes through, so does a find with an option that is not known to be safe to cache
+ *
+ * @author David Hsing
+ */
+abstract class MongoQueryCacheProxies {
+    private static final Set<String> WRITE_METHODS = Set.of("insertOne", "insertMany", "updateOne", "updateMany", "replaceOne", "deleteOne", "deleteMany", "findOneAndDelete", "findOneAndReplace", "findOneAndUpdate", "bulkWrite", "drop", "renameCollection");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$ // $NON-NLS-9$ // $NON-NLS-10$ // $NON-NLS-11$ // $NON-NLS-12$ // $NON-NLS-13$
+    private static final Set<String> KEYED_OPTIONS = Set.of("filter", "projection", "sort", "skip", "limit", "collation", "hint", "hintString", "min", "max", "returnKey", "showRecordId", "let");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$ // $NON-NLS-9$ // $NON-NLS-10$ // $NON-NLS-11$ // $NON-NLS-12$ // $NON-NLS-13$
+    private static final Set<String> NEUTRAL_OPTIONS = Set.of("batchSize", "maxTime", "maxAwaitTime", "comment", "noCursorTimeout", "allowDiskUse", "timeoutMode");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$
+    private static final String FIND = "find", FIRST = "first", COUNT = "countDocuments", OPERATION = "operation";    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    static MongoCollection<Document> classicCollection(@Nonnull MongoCollection<Document> collection, @Nonnull MongoQueryCache cache) {
+        return (MongoCollection<Document>) Proxy.newProxyInstance(MongoQueryCacheProxies.class.getClassLoader(), new Class<?>[]{MongoCollection.class}, new ClassicCollectionHandler(collection, cache));
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    static com.mongodb.reactivestreams.client.MongoCollection<Document> reactiveCollection(@Nonnull com.mongodb.reactivestreams.client.MongoCollection<Document> collection, @Nonnull MongoQueryCache cache) {
+        return (com.mongodb.reactivestreams.client.MongoCollection<Document>) Proxy.newProxyInstance(MongoQueryCacheProxies.class.getClassLoader(), new Class<?>[]{com.mongodb.reactivestreams.client.MongoCollection.class}, new ReactiveCollectionHandler(collection, cache));
+    }
+
+    @Nullable
+    private static Object invoke(@Nonnull Object target, @Nonnull Method method, @Nullable Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+    private static boolean hasSession(@Nullable Object[] args) {
+        return args != null && args.length > 0 && args[0] instanceof ClientSession;
+    }
+
+    /**
+     * Returns whether the call is a find that returns documents, which may be {@code find()}, {@code find(filter)}, {@code find(class)} or {@code find(filter, class)}
+     */
+    private static boolean isDocumentFind(@Nonnull Method method, @Nullable Object[] args) {
+        return FIND.equals(method.getName()) && !hasSession(args) && (args == null || args.length == 0 || !(args[args.length - 1] instanceof Class<?> type) || type == Document.class);
+    }
+
+    @Nonnull
+    private static QuerySpec findSpec(@Nonnull String collectionName, @Nonnull CodecRegistry registry, @Nullable Object[] args) {
+        QuerySpec spec = new QuerySpec(collectionName, registry);
+        spec.record("filter", (args != null && args.length > 0 && args[0] instanceof Bson filter) ? filter : new BsonDocument());    // $NON-NLS-1$
+        return spec;
+    }
+
+    /**
+     * Returns the spec of a count, or {@code null} if the count is not cacheable
+     */
+    @Nullable
+    private static QuerySpec countSpec(@Nonnull String collectionName, @Nonnull CodecRegistry registry, @Nullable Object[] args) {
+        if (hasSession(args)) {
+            return null;
+        }
+        QuerySpec spec = new QuerySpec(collectionName, registry);
+        spec.record("filter", (args != null && args.length > 0 && args[0] instanceof Bson filter) ? filter : new BsonDocument());    // $NON-NLS-1$
+        if (args != null && args.length > 1 && args[1] instanceof CountOptions options) {
+            spec.record("skip", options.getSkip());    // $NON-NLS-1$
+            spec.record("limit", options.getLimit());    // $NON-NLS-1$
+            spec.record("hint", options.getHint());    // $NON-NLS-1$
+            spec.record("hintString", options.getHintString());    // $NON-NLS-1$
+            spec.record("collation", options.getCollation());    // $NON-NLS-1$
+        }
+        return spec.isCacheable() ? spec : null;
+    }
+
+    @Nonnull
+    private static Document decode(@Nonnull Codec<Document> codec, @Nonnull RawBsonDocument document) {
+        try (BsonReader reader = document.asBsonReader()) {
+            return codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+
+    /**
+     * The spec of a query, which records the options that affect the results, and becomes the key of the cache
+     *
+     * @author David Hsing
+     */
+    private static final class QuerySpec {
+        private final String collectionName;
+        private final CodecRegistry registry;
+        private final BsonDocument spec = new BsonDocument();
+        private boolean cacheable = true;
+
+        private QuerySpec(@Nonnull String collectionName, @Nonnull CodecRegistry registry) {
+            this.collectionName = collectionName;
+            this.registry = registry;
+        }
+
+        private void record(@Nonnull Method method, @Nullable Object[] args) {
+            if (NEUTRAL_OPTIONS.contains(method.getName())) {
+                return;
+            }
+            if (KEYED_OPTIONS.contains(method.getName()) && args != null && args.length == 1) {
+                record(method.getName(), args[0]);
+            } else {
+                cacheable = false;
+            }
+        }
+
+        private void record(@Nonnull String option, @Nullable Object value) {
+            BsonValue result = toBsonValue(option, value);
+            if (result == null) {
+                cacheable = false;
+            } else {
+                spec.put(option, result);
+            }
+        }
+
+        private boolean isCacheable() {
+            return cacheable;
+        }
+
+        @Nonnull
+        private MongoQueryCache.Key key(@Nonnull String operation) {
+            BsonDocument result = spec.clone();
+            result.put(OPERATION, new BsonString(operation));
+            return new MongoQueryCache.Key(collectionName, result);
+        }
+
+        /**
+         * Converts the option into a bson value, the keys of the filter and the projection are sorted, as their order makes no difference
+         */
+        @Nullable
+        private BsonValue toBsonValue(@Nonnull String option, @Nullable Object value) {
+            if (value == null) {
+                return BsonNull.VALUE;
+            } else if (value instanceof Bson bson) {
+                BsonDocument document = bson.toBsonDocument(BsonDocument.class, registry);
+                return ("filter".equals(option) || "projection".equals(option)) ? sortKeys(document) : document;    // $NON-NLS-1$ // $NON-NLS-2$
+            } else if (value instanceof Number number) {
+                return new BsonInt64(number.longValue());
+            } else if (value instanceof Boolean bool) {
+                return BsonBoolean.valueOf(bool);
+            } else if (value instanceof String string) {
+                return new BsonString(string);
+            } else if (value instanceof Collation collation) {
+                return collation.asDocument();
+            }
+            return null;
+        }
+
+        @Nonnull
+        private static BsonDocument sortKeys(@Nonnull BsonDocument document) {
+            BsonDocument result = new BsonDocument();
+            new TreeMap<>(document).forEach(result::put);
+            return result;
+        }
+    }
+
+
+    /**
+     * The handler of the classic collections
+     *
+     * @author David Hsing
+     */
+    private record ClassicCollectionHandler(@Nonnull MongoCollection<Document> target, @Nonnull MongoQueryCache cache) implements InvocationHandler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String collectionName = target.getNamespace().getCollectionName();
+            if (isDocumentFind(method, args)) {
+                FindIterable<Document> iterable = (FindIterable<Document>) MongoQueryCacheProxies.invoke(target, method, args);
+                ClassicFindHandler handler = new ClassicFindHandler(iterable, findSpec(collectionName, target.getCodecRegistry(), args), target.getCodecRegistry().get(Document.class), cache);
+                return Proxy.newProxyInstance(MongoQueryCacheProxies.class.getClassLoader(), new Class<?>[]{FindIterable.class}, handler);
+            }
+            if (COUNT.equals(method.getName()) && cache.isActive()) {
+                QuerySpec spec = countSpec(collectionName, target.getCodecRegistry(), args);
+                if (spec != null) {
+                    MongoQueryCache.Key key = spec.key(COUNT);
+                    Long hit = cache.getCount(key);
+                    if (hit != null) {
+                        return hit;
+                    }
+                    long version = cache.version(collectionName);
+                    Long result = (Long) MongoQueryCacheProxies.invoke(target, method, args);
+                    if (result != null) {
+                        cache.putCount(key, version, result);
+                    }
+                    return result;
+                }
+            }
+            if (WRITE_METHODS.contains(method.getName())) {
+                try {
+                    return MongoQueryCacheProxies.invoke(target, method, args);
+                } finally {
+                    cache.invalidate(collectionName);
+                }
+            }
+            Object result = MongoQueryCacheProxies.invoke(target, method, args);
+            if (method.getName().startsWith("with") && result instanceof MongoCollection<?> alias && alias.getDocumentClass() == Document.class) {    // $NON-NLS-1$
+                return classicCollection((MongoCollection<Document>) alias, cache);
+            }
+            return result;
+        }
+    }
+
+
+    /**
+     * The handler of the classic find iterables, which records the options, and serves the cursors and the first documents from the cache
+     *
+     * @author David Hsing
+     */
+    private record ClassicFindHandler(@Nonnull FindIterable<Document> target, @Nonnull QuerySpec spec, @Nonnull Codec<Document> codec, @Nonnull MongoQueryCache cache) implements InvocationHandler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            boolean cacheable = spec.isCacheable() && cache.isActive();
+            switch (method.getName()) {
+                case "iterator", "cursor" -> {    // $NON-NLS-1$ // $NON-NLS-2$
+                    if (cacheable) {
+                        return cursor();
+                    }
+                }
+                case FIRST -> {
+                    if (cacheable) {
+                        return first();
+                    }
+                }
+                case "into" -> {    // $NON-NLS-1$
+                    if (cacheable) {
+                        try (MongoCursor<Document> cursor = cursor()) {
+                            cursor.forEachRemaining(((Collection<Document>) args[0])::add);
+                        }
+                        return args[0];
+                    }
+                }
+                default -> {
+                }
+            }
+            Object result = MongoQueryCacheProxies.invoke(target, method, args);
+            if (result == target) {
+                spec.record(method, args);
+                return proxy;
+            }
+            return result;
+        }
+
+        @Nonnull
+        private MongoCursor<Document> cursor() {
+            MongoQueryCache.Key key = spec.key(FIND);
+            List<RawBsonDocument> hit = cache.getDocuments(key);
+            if (hit != null) {
+                return new CachedCursor(codec, hit);
+            }
+            long version = cache.version(key.collection());
+            return new RecordingCursor(target.cursor(), codec, cache, key, version);
+        }
+
+        @Nullable
+        private Document first() {
+            MongoQueryCache.Key key = spec.key(FIRST);
+            List<RawBsonDocument> hit = cache.getDocuments(key);
+            if (hit != null) {
+                return hit.isEmpty() ? null : decode(codec, hit.get(0));
+            }
+            long version = cache.version(key.collection());
+            Document result = target.first();
+            cache.putDocuments(key, version, (result == null) ? List.of() : List.of(new RawBsonDocument(result, codec)));
+            return result;
+        }
+    }
+
+
+    /**
+     * A cursor over a cached result, each document is decoded on reading
+     *
+     * @author David Hsing
+     */
+    private static final class CachedCursor implements MongoCursor<Document> {
+        private final Codec<Document> codec;
+        private final Iterator<RawBsonDocument> iterator;
+        private final int count;
+        private int position;
+
+        private CachedCursor(@Nonnull Codec<Document> codec, @Nonnull List<RawBsonDocument> documents) {
+            this.codec = codec;
+            this.iterator = documents.iterator();
+            this.count = documents.size();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Nonnull
+        @Override
+        public Document next() {
+            if (!iterator.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            position++;
+            return decode(codec, iterator.next());
+        }
+
+        @Nullable
+        @Override
+        public Document tryNext() {
+            return iterator.hasNext() ? next() : null;
+        }
+
+        @Override
+        public int available() {
+            return count - position;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Nullable
+        @Override
+        public ServerCursor getServerCursor() {
+            return null;
+        }
+
+        @Nonnull
+        @Override
+        public ServerAddress getServerAddress() {
+            throw new UnsupportedOperationException("A cached cursor has no server address");
+        }
+    }
+
+
+    /**
+     * A cursor that records the documents it reads, and puts them into the cache once it is exhausted, unless they are too many
+     *
+     * @author David Hsing
+     */
+    private static final class RecordingCursor implements MongoCursor<Document> {
+        private final MongoCursor<Document> delegate;
+        private final Codec<Document> codec;
+        private final MongoQueryCache cache;
+        private final MongoQueryCache.Key key;
+        private final long version;
+        private List<RawBsonDocument> documents = new ArrayList<>();
+
+        private RecordingCursor(@Nonnull MongoCursor<Document> delegate, @Nonnull Codec<Document> codec, @Nonnull MongoQueryCache cache, @Nonnull MongoQueryCache.Key key, long version) {
+            this.delegate = delegate;
+            this.codec = codec;
+            this.cache = cache;
+            this.key = key;
+            this.version = version;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean result = delegate.hasNext();
+            if (!result && documents != null) {
+                cache.putDocuments(key, version, List.copyOf(documents));
+                documents = null;
+            }
+            return result;
+        }
+
+        @Nonnull
+        @Override
+        public Document next() {
+            Document result = delegate.next();
+            if (documents != null && documents.size() < cache.getMaxResultSize()) {
+                documents.add(new RawBsonDocument(result, codec));
+            } else {
+                documents = null;
+            }
+            return result;
+        }
+
+        @Nullable
+        @Override
+        public Document tryNext() {
+            documents = null;
+            return delegate.tryNext();
+        }
+
+        @Override
+        public int available() {
+            return delegate.available();
+        }
+
+        @Override
+        public void close() {
+            documents = null;
+            delegate.close();
+        }
+
+        @Nullable
+        @Override
+        public ServerCursor getServerCursor() {
+            return delegate.getServerCursor();
+        }
+
+        @Nonnull
+        @Override
+        public ServerAddress getServerAddress() {
+            return delegate.getServerAddress();
+        }
+    }
+
+
+    /**
+     * The handler of the reactive collections, the writes invalidate the collection once they terminate
+     *
+     * @author David Hsing
+     */
+    private record ReactiveCollectionHandler(@Nonnull com.mongodb.reactivestreams.client.MongoCollection<Document> target, @Nonnull MongoQueryCache cache) implements InvocationHandler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String collectionName = target.getNamespace().getCollectionName();
+            if (isDocumentFind(method, args)) {
+                FindPublisher<Document> publisher = (FindPublisher<Document>) MongoQueryCacheProxies.invoke(target, method, args);
+                ReactiveFindHandler handler = new ReactiveFindHandler(publisher, findSpec(collectionName, target.getCodecRegistry(), args), target.getCodecRegistry().get(Document.class), cache);
+                return Proxy.newProxyInstance(MongoQueryCacheProxies.class.getClassLoader(), new Class<?>[]{FindPublisher.class}, handler);
+            }
+            if (COUNT.equals(method.getName())) {
+                QuerySpec spec = countSpec(collectionName, target.getCodecRegistry(), args);
+                if (spec != null) {
+                    MongoQueryCache.Key key = spec.key(COUNT);
+                    return Mono.defer(() -> {
+                        Long hit = cache.isActive() ? cache.getCount(key) : null;
+                        if (hit != null) {
+                            return Mono.just(hit);
+                        }
+                        long version = cache.version(collectionName);
+                        return Mono.from(invokeQuietly(method, args)).doOnNext(count -> cache.putCount(key, version, count));
+                    });
+                }
+            }
+            if (WRITE_METHODS.contains(method.getName())) {
+                Publisher<?> publisher = (Publisher<?>) MongoQueryCacheProxies.invoke(target, method, args);
+                return Flux.from(publisher).doFinally(signal -> cache.invalidate(collectionName));
+            }
+            Object result = MongoQueryCacheProxies.invoke(target, method, args);
+            if (method.getName().startsWith("with") && result instanceof com.mongodb.reactivestreams.client.MongoCollection<?> alias && alias.getDocumentClass() == Document.class) {    // $NON-NLS-1$
+                return reactiveCollection((com.mongodb.reactivestreams.client.MongoCollection<Document>) alias, cache);
+            }
+            return result;
+        }
+
+        @Nonnull
+        @SuppressWarnings("unchecked")
+        private Publisher<Long> invokeQuietly(@Nonnull Method method, @Nullable Object[] args) {
+            try {
+                return (Publisher<Long>) MongoQueryCacheProxies.invoke(target, method, args);
+            } catch (Throwable ex) {
+                return Mono.error(ex);
+            }
+        }
+    }
+
+
+    /**
+     * The handler of the reactive find publishers, which records the options, and serves the subscriptions and the first documents from the cache
+     *
+     * @author David Hsing
+     */
+    private record ReactiveFindHandler(@Nonnull FindPublisher<Document> target, @Nonnull QuerySpec spec, @Nonnull Codec<Document> codec, @Nonnull MongoQueryCache cache) implements InvocationHandler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (spec.isCacheable() && "subscribe".equals(method.getName())) {    // $NON-NLS-1$
+                documents().subscribe((Subscriber<? super Document>) args[0]);
+                return null;
+            }
+            if (spec.isCacheable() && FIRST.equals(method.getName())) {
+                return first();
+            }
+            Object result = MongoQueryCacheProxies.invoke(target, method, args);
+            if (result == target) {
+                spec.record(method, args);
+                return proxy;
+            }
+            return result;
+        }
+
+        @Nonnull
+        private Flux<Document> documents() {
+            MongoQueryCache.Key key = spec.key(FIND);
+            return Flux.defer(() -> {
+                if (!cache.isActive()) {
+                    return Flux.from(target);
+                }
+                List<RawBsonDocument> hit = cache.getDocuments(key);
+                if (hit != null) {
+                    return Flux.fromIterable(hit).map(document -> decode(codec, document));
+                }
+                long version = cache.version(key.collection());
+                List<RawBsonDocument> documents = new ArrayList<>();
+                boolean[] overflow = {false};
+                return Flux.from(target).doOnNext(document -> {
+                    if (!overflow[0] && documents.size() < cache.getMaxResultSize()) {
+                        documents.add(new RawBsonDocument(document, codec));
+                    } else {
+                        overflow[0] = true;
+                    }
+                }).doOnComplete(() -> {
+                    if (!overflow[0]) {
+                        cache.putDocuments(key, version, List.copyOf(documents));
+                    }
+                });
+            });
+        }
+
+        @Nonnull
+        private Mono<Document> first() {
+            MongoQueryCache.Key key = spec.key(FIRST);
+            return Mono.defer(() -> {
+                if (!cache.isActive()) {
+                    return Mono.from(target.first());
+                }
+                List<RawBsonDocument> hit = cache.getDocuments(key);
+                if (hit != null) {
+                    return hit.isEmpty() ? Mono.empty() : Mono.just(decode(codec, hit.get(0)));
+                }
+                long version = cache.version(key.collection());
+                return Mono.from(target.first()).doOnSuccess(document -> cache.putDocuments(key, version, (document == null) ? List.of() : List.of(new RawBsonDocument(document, codec))));
+            });
+        }
+    }
+}
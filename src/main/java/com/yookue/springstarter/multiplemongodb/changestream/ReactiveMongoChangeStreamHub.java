@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.changestream;
+
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.util.Assert;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+
+/**
+ * Change stream hub of a data source, which shares one change stream of each collection or database with all the subscribers
+ * <p>
+ * The change stream of a collection opens when the first subscriber arrives, and closes after the grace period when the last subscriber leaves.
+ * The events are multicast without locking, and each subscriber has its own bounded buffer, a subscriber that overruns its buffer receives the buffered events and then fails with an overflow error, without slowing the others.
+ * The broken change streams resume from the last event, and the resume tokens are persisted periodically, so that the change streams resume after restarting
+ *
+ * @author David Hsing
+ */
+public class ReactiveMongoChangeStreamHub implements AutoCloseable {
+    private static final String DATABASE_KEY = "*";    // $NON-NLS-1$
+    private static final String ID_FIELD = "_id";    // $NON-NLS-1$
+    private static final String TOKEN_FIELD = "token";    // $NON-NLS-1$
+    private static final String UPDATED_FIELD = "updatedAt";    // $NON-NLS-1$
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+    private static final Set<Integer> HISTORY_LOST_CODES = Set.of(136, 280, 286);
+
+    private final ReactiveMongoTemplate template;
+    private final int bufferSize;
+    private final FullDocument fullDocument;
+    private final String tokenCollection;
+    private final String tokenPrefix;
+    private final Duration tokenInterval;
+    private final Duration gracePeriod;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Sinks.Empty<Void> shutdown = Sinks.empty();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new change stream hub
+     *
+     * @param source the name of the data source
+     * @param template the template of the data source
+     * @param properties the properties of the change stream hub
+     */
+    public ReactiveMongoChangeStreamHub(@Nonnull String source, @Nonnull ReactiveMongoTemplate template, @Nonnull ExtendedMongoProperties.ChangeStream properties) {
+        Assert.isTrue(properties.getBufferSize() != null && properties.getBufferSize() > 0, "Buffer size must be positive");
+        Assert.isTrue(properties.getTokenInterval() != null && !properties.getTokenInterval().isNegative() && !properties.getTokenInterval().isZero(), "Token interval must be positive");
+        this.template = template;
+        this.bufferSize = properties.getBufferSize();
+        this.fullDocument = (properties.getFullDocument() == null) ? FullDocument.DEFAULT : properties.getFullDocument();
+        this.tokenCollection = (BooleanUtils.isFalse(properties.getPersistTokens()) || StringUtils.isBlank(properties.getTokenCollection())) ? null : properties.getTokenCollection();
+        this.tokenPrefix = StringUtils.defaultIfBlank(properties.getTokenPrefix(), source);
+        this.tokenInterval = properties.getTokenInterval();
+        this.gracePeriod = (properties.getGracePeriod() == null) ? Duration.ZERO : properties.getGracePeriod();
+    }
+
+    /**
+     * Subscribes the change events of the collection of the entity class
+     *
+     * @param entityClass the entity class of the collection
+     *
+     * @return the change events, whose bodies are converted into the entity class
+     */
+    @Nonnull
+    public <T> Flux<ChangeStreamEvent<T>> subscribe(@Nonnull Class<T> entityClass) {
+        return subscribe(template.getCollectionName(entityClass), entityClass);
+    }
+
+    @Nonnull
+    public <T> Flux<ChangeStreamEvent<T>> subscribe(@Nonnull String collectionName, @Nonnull Class<T> entityClass) {
+        return subscribe(collectionName).map(event -> new ChangeStreamEvent<>(event.getRaw(), entityClass, template.getConverter()));
+    }
+
+    @Nonnull
+    public Flux<ChangeStreamEvent<Document>> subscribe(@Nonnull String collectionName) {
+        Assert.hasText(collectionName, "Collection name must not be empty");
+        return share(collectionName, collectionName);
+    }
+
+    /**
+     * Subscribes the change events of all the collections of the database
+     *
+     * @return the change events of all the collections of the database
+     */
+    @Nonnull
+    public Flux<ChangeStreamEvent<Document>> subscribeDatabase() {
+        return share(DATABASE_KEY, null);
+    }
+
+    /**
+     * Returns the count of the change streams that are open
+     *
+     * @return the count of the change streams that are open
+     */
+    public int getOpenStreams() {
+        return (int) channels.values().stream().filter(Channel::isOpen).count();
+    }
+
+    /**
+     * Returns the count of the subscribers of all the change streams
+     *
+     * @return the count of the subscribers of all the change streams
+     */
+    public int getSubscribers() {
+        return subscribers.get();
+    }
+
+    /**
+     * Persists the resume tokens of all the change streams immediately
+     *
+     * @return a mono that completes when the resume tokens have been persisted
+     */
+    @Nonnull
+    public Mono<Void> persistTokens() {
+        return Flux.fromIterable(channels.values()).flatMap(Channel::persistToken).then();
+    }
+
+    /**
+     * Closes all the change streams, and persists their resume tokens
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        shutdown.tryEmitEmpty();
+        try {
+            persistTokens().block(Duration.ofSeconds(10L));
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    @Nonnull
+    private Flux<ChangeStreamEvent<Document>> share(@Nonnull String key, @Nullable String collectionName) {
+        Assert.state(!closed, "Change stream hub has been closed");
+        Channel channel = channels.computeIfAbsent(key, alias -> new Channel(alias, collectionName));
+        return channel.events.onBackpressureBuffer(bufferSize)
+            .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+            .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    private static boolean isHistoryLost(@Nonnull Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongo && HISTORY_LOST_CODES.contains(mongo.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * The shared change stream of a collection or database
+     *
+     * @author David Hsing
+     */
+    private final class Channel {
+        private final String tokenId;
+        private final String collectionName;
+        private final AtomicReference<BsonValue> token = new AtomicReference<>();
+        private final AtomicReference<BsonValue> persisted = new AtomicReference<>();
+        private final AtomicReference<Disposable> persister = new AtomicReference<>();
+        private final Flux<ChangeStreamEvent<Document>> events;
+        private volatile boolean loaded;
+        private volatile boolean open;
+
+        private Channel(@Nonnull String key, @Nullable String collectionName) {
+            this.tokenId = tokenPrefix + ':' + key;
+            this.collectionName = collectionName;
+            this.events = Flux.defer(this::open)
+                .doOnNext(event -> token.set(event.getResumeToken()))
+                .repeatWhen(signals -> signals.takeWhile(signal -> !closed).delayElements(Duration.ofSeconds(1L)))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1L)).maxBackoff(Duration.ofSeconds(30L))
+                    .filter(ex -> !closed)
+                    .doBeforeRetry(signal -> resetIfHistoryLost(signal.failure())))
+                .takeUntilOther(shutdown.asMono())
+                .doOnSubscribe(subscription -> startPersisting())
+                .doFinally(signal -> stopPersisting())
+                .publish()
+                .refCount(1, gracePeriod);
+        }
+
+        private boolean isOpen() {
+            return open;
+        }
+
+        @Nonnull
+        private Flux<ChangeStreamEvent<Document>> open() {
+            Mono<Void> loading = (tokenCollection == null || loaded) ? Mono.empty() : loadToken();
+            return loading.thenMany(Flux.defer(() -> {
+                ChangeStreamOptions.ChangeStreamOptionsBuilder builder = ChangeStreamOptions.builder().fullDocumentLookup(fullDocument);
+                BsonValue current = token.get();
+                if (current != null) {
+                    builder.startAfter(current);
+                }
+                return template.changeStream(null, collectionName, builder.build(), Document.class);
+            }));
+        }
+
+        @Nonnull
+        private Mono<Void> loadToken() {
+            return template.getCollection(tokenCollection)
+                .flatMap(collection -> Mono.from(collection.withDocumentClass(BsonDocument.class).find(Filters.eq(ID_FIELD, tokenId)).first()))
+                .doOnNext(document -> {
+                    BsonValue value = document.get(TOKEN_FIELD);
+                    if (value != null && token.compareAndSet(null, value)) {
+                        persisted.set(value);
+                    }
+                })
+                .doOnSuccess(document -> loaded = true)
+                .then();
+        }
+
+        @Nonnull
+        private Mono<Void> persistToken() {
+            BsonValue current = token.get();
+            if (tokenCollection == null || current == null || current.equals(persisted.get())) {
+                return Mono.empty();
+            }
+            Document document = new Document(ID_FIELD, tokenId).append(TOKEN_FIELD, current).append(UPDATED_FIELD, new Date());
+            return template.getCollection(tokenCollection)
+                .flatMap(collection -> Mono.from(collection.replaceOne(Filters.eq(ID_FIELD, tokenId), document, UPSERT)))
+                .doOnSuccess(result -> persisted.set(current))
+                .then();
+        }
+
+        private void resetIfHistoryLost(@Nonnull Throwable ex) {
+            if (isHistoryLost(ex)) {
+                token.set(null);
+            }
+        }
+
+        private void startPersisting() {
+            open = true;
+            if (tokenCollection == null) {
+                return;
+            }
+            Disposable current = Flux.interval(tokenInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> persistToken().onErrorResume(ex -> Mono.empty()), 1)
+                .subscribe();
+            Disposable former = persister.getAndSet(current);
+            if (former != null) {
+                former.dispose();
+            }
+        }
+
+        private void stopPersisting() {
+            open = false;
+            Disposable current = persister.getAndSet(null);
+            if (current != null) {
+                current.dispose();
+                if (!closed) {
+                    persistToken().onErrorResume(ex -> Mono.empty()).subscribe();
+                }
+            }
+        }
+    }
+}
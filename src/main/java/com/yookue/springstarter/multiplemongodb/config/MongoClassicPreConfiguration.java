@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataConfigurationUtils;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScanPackages;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.data.mongodb.MongoManagedTypes;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import com.mongodb.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.index.MongoEntityIndexLoader;
+
+
+/**
+ * Pre-Configuration for classic mongo
+ * <p>
+ * Holds the beans that are shared by all the data sources, such as the result of the entity scanning and the custom conversions.
+ * The entities are read from the build-time index if {@code spring.multiple-mongo.entity-index-enabled} is {@code true} and the index is present,
+ * the packages of {@code @EntityScan} always take the classpath scanning, as the index does not know them
+ *
+ * @author David Hsing
+ * @see org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = MongoClassicPreConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = MongoClient.class)
+@AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
+public class MongoClassicPreConfiguration {
+    public static final String PROPERTIES_PREFIX = "spring.multiple-mongo";    // $NON-NLS-1$
+    public static final String MANAGED_TYPES = "mongoSharedManagedTypes";    // $NON-NLS-1$
+    public static final String CUSTOM_CONVERSIONS = "mongoSharedCustomConversions";    // $NON-NLS-1$
+    public static final String SCAN_ENTITIES_STEP = "multiplemongo.entities.scan";    // $NON-NLS-1$
+
+    @Bean(name = MANAGED_TYPES)
+    @ConditionalOnMissingBean(name = MANAGED_TYPES)
+    public MongoManagedTypes mongoManagedTypes(@Nonnull ApplicationContext context) throws IOException, ClassNotFoundException {
+        boolean indexEnabled = context.getEnvironment().getProperty(PROPERTIES_PREFIX + ".entity-index-enabled", Boolean.class, false) && !hasEntityScanPackages(context);    // $NON-NLS-1$
+        ApplicationStartup startup = (context instanceof ConfigurableApplicationContext alias) ? alias.getApplicationStartup() : ApplicationStartup.DEFAULT;
+        StartupStep step = startup.start(SCAN_ENTITIES_STEP);
+        MongoManagedTypes types = indexEnabled ? MongoEntityIndexLoader.loadManagedTypes(context.getClassLoader()) : null;
+        step.tag("index", String.valueOf(types != null));    // $NON-NLS-1$
+        if (types == null) {
+            types = MongoDataConfigurationUtils.mongoManagedTypes(context);
+        }
+        step.tag("entities", String.valueOf(types.toList().size()));    // $NON-NLS-1$
+        step.end();
+        return types;
+    }
+
+    @Bean(name = CUSTOM_CONVERSIONS)
+    @ConditionalOnMissingBean(name = CUSTOM_CONVERSIONS)
+    public MongoCustomConversions mongoCustomConversions() {
+        return MongoDataConfigurationUtils.mongoCustomConversions();
+    }
+
+    private static boolean hasEntityScanPackages(@Nonnull ApplicationContext context) {
+        return context instanceof ConfigurableApplicationContext alias && !EntityScanPackages.get(alias.getBeanFactory()).getPackageNames().isEmpty();
+    }
+}
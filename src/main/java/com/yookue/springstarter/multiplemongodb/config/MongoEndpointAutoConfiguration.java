@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.mongodb.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.endpoint.MultipleMongoEndpoint;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
+
+
+/**
+ * Configuration for the actuator endpoint of all the data sources
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.multiplemongodb.endpoint.MultipleMongoEndpoint
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "spring.multiple-mongo", name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = {MongoClient.class, Endpoint.class})
+@AutoConfigureAfter(value = {PrimaryMongoAutoConfiguration.class, SecondaryMongoAutoConfiguration.class, TertiaryMongoAutoConfiguration.class, MongoSourcesAutoConfiguration.class})
+public class MongoEndpointAutoConfiguration {
+    public static final String MULTIPLE_MONGO_ENDPOINT = "multipleMongoEndpoint";    // $NON-NLS-1$
+
+    @Bean(name = MULTIPLE_MONGO_ENDPOINT)
+    @ConditionalOnMissingBean(name = MULTIPLE_MONGO_ENDPOINT)
+    public MultipleMongoEndpoint multipleMongoEndpoint(@Nonnull ListableBeanFactory beanFactory) {
+        return new MultipleMongoEndpoint(MongoSourceClient.collect(beanFactory), beanFactory);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.util.ClassUtils;
+import com.mongodb.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.health.MongoSourcesHealthChecker;
+import com.yookue.springstarter.multiplemongodb.health.MongoSourcesHealthContributor;
+import com.yookue.springstarter.multiplemongodb.property.MongoHealthProperties;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
+
+
+/**
+ * Configuration for the health of all the data sources
+ * <p>
+ * The contributor is named {@code mongoHealthContributor}, so that it replaces the stock ones of Spring Boot, which only check the templates one by one.
+ * It is registered only if there is a client of any data source, otherwise the stock ones of Spring Boot remain in place
+ *
+ * @author David Hsing
+ * @see org.springframework.boot.actuate.autoconfigure.data.mongo.MongoHealthContributorAutoConfiguration
+ * @see org.springframework.boot.actuate.autoconfigure.data.mongo.MongoReactiveHealthContributorAutoConfiguration
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = MongoHealthAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = {MongoClient.class, HealthContributor.class})
+@AutoConfigureAfter(value = {PrimaryMongoAutoConfiguration.class, SecondaryMongoAutoConfiguration.class, TertiaryMongoAutoConfiguration.class, MongoSourcesAutoConfiguration.class})
+@AutoConfigureBefore(name = {
+    "org.springframework.boot.actuate.autoconfigure.data.mongo.MongoHealthContributorAutoConfiguration",
+    "org.springframework.boot.actuate.autoconfigure.data.mongo.MongoReactiveHealthContributorAutoConfiguration"
+})
+public class MongoHealthAutoConfiguration {
+    public static final String PROPERTIES_PREFIX = "spring.multiple-mongo.health";    // $NON-NLS-1$
+    public static final String HEALTH_PROPERTIES = "mongoHealthProperties";    // $NON-NLS-1$
+    public static final String HEALTH_CHECKER = "mongoSourcesHealthChecker";    // $NON-NLS-1$
+    public static final String HEALTH_CONTRIBUTOR = "mongoHealthContributor";    // $NON-NLS-1$
+
+    @Bean(name = HEALTH_PROPERTIES)
+    @ConditionalOnMissingBean(name = HEALTH_PROPERTIES)
+    @ConfigurationProperties(prefix = PROPERTIES_PREFIX)
+    public MongoHealthProperties healthProperties() {
+        return new MongoHealthProperties();
+    }
+
+    @Bean(name = HEALTH_CHECKER, destroyMethod = "close")
+    @ConditionalOnBean(name = HEALTH_PROPERTIES)
+    @Conditional(value = OnSourceClientsCondition.class)
+    @ConditionalOnMissingBean(name = HEALTH_CHECKER)
+    public MongoSourcesHealthChecker healthChecker(@Qualifier(value = HEALTH_PROPERTIES) @Nonnull MongoHealthProperties properties, @Nonnull ListableBeanFactory beanFactory) {
+        return new MongoSourcesHealthChecker(MongoSourceClient.collect(beanFactory), properties.getTimeout(), properties.getCacheTtl());
+    }
+
+    @Bean(name = HEALTH_CONTRIBUTOR)
+    @ConditionalOnBean(name = HEALTH_CHECKER)
+    @ConditionalOnMissingBean(name = HEALTH_CONTRIBUTOR)
+    public HealthContributor healthContributor(@Qualifier(value = HEALTH_CHECKER) @Nonnull MongoSourcesHealthChecker checker) {
+        return new MongoSourcesHealthContributor(checker);
+    }
+
+
+    /**
+     * Condition that matches if there is a classic or a reactive client of any data source
+     * <p>
+     * The clients are matched by their bean names as {@link MongoSourceClient#collect} does, so the stock client of Spring Boot does not match
+     *
+     * @author David Hsing
+     */
+    static class OnSourceClientsCondition extends SpringBootCondition {
+        private static final String REACTIVE_CLIENT_CLASS = "com.mongodb.reactivestreams.client.MongoClient";    // $NON-NLS-1$
+
+        @Override
+        public ConditionOutcome getMatchOutcome(@Nonnull ConditionContext context, @Nonnull AnnotatedTypeMetadata metadata) {
+            ConditionMessage.Builder message = ConditionMessage.forCondition("MongoSourceClients");    // $NON-NLS-1$
+            ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+            if (beanFactory != null) {
+                String classic = sourceClient(beanFactory, MongoClient.class, MongoSourcesRegistrar.MONGO_CLIENT);
+                if (classic != null) {
+                    return ConditionOutcome.match(message.found("client").items(classic));    // $NON-NLS-1$
+                }
+                if (ClassUtils.isPresent(REACTIVE_CLIENT_CLASS, context.getClassLoader())) {
+                    String reactive = sourceClient(beanFactory, ClassUtils.resolveClassName(REACTIVE_CLIENT_CLASS, context.getClassLoader()), MongoSourcesRegistrar.REACTIVE_MONGO_CLIENT);
+                    if (reactive != null) {
+                        return ConditionOutcome.match(message.found("client").items(reactive));    // $NON-NLS-1$
+                    }
+                }
+            }
+            return ConditionOutcome.noMatch(message.didNotFind("client of any data source").atAll());    // $NON-NLS-1$
+        }
+
+        @Nullable
+        private static String sourceClient(@Nonnull ConfigurableListableBeanFactory beanFactory, @Nonnull Class<?> type, @Nonnull String suffix) {
+            for (String beanName : beanFactory.getBeanNamesForType(type, true, false)) {
+                if (MongoSourcesRegistrar.sourceName(beanName, suffix) != null) {
+                    return beanName;
+                }
+            }
+            return null;
+        }
+    }
+}
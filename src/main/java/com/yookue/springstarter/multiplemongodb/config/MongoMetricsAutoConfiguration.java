@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.mongodb.MongoClientSettings;
+import com.yookue.springstarter.multiplemongodb.customizer.MongoSourceSettingsCustomizer;
+import com.yookue.springstarter.multiplemongodb.metrics.MongoSourceCommandMeterFilter;
+import com.yookue.springstarter.multiplemongodb.metrics.MongoSourceCommandTagsProvider;
+import com.yookue.springstarter.multiplemongodb.metrics.MongoSourceConnectionPoolListener;
+import com.yookue.springstarter.multiplemongodb.metrics.MongoSourceConnectionPoolTagsProvider;
+import com.yookue.springstarter.multiplemongodb.property.MongoMetricsProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.DefaultMongoCommandTagsProvider;
+import io.micrometer.core.instrument.binder.mongodb.DefaultMongoConnectionPoolTagsProvider;
+import io.micrometer.core.instrument.binder.mongodb.MongoCommandTagsProvider;
+import io.micrometer.core.instrument.binder.mongodb.MongoConnectionPoolTagsProvider;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+
+/**
+ * Configuration for the metrics of all the data sources
+ * <p>
+ * The command and connection pool listeners are registered on both the classic and the reactive clients of each data source,
+ * and the meters are tagged with {@code datasource}. The command timers publish the percentiles of the properties, p50 and p99 by default
+ *
+ * @author David Hsing
+ * @see org.springframework.boot.actuate.autoconfigure.metrics.mongo.MongoMetricsAutoConfiguration
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = MongoMetricsAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = {MongoClientSettings.class, MeterRegistry.class, MongoMetricsCommandListener.class})
+@ConditionalOnBean(value = MeterRegistry.class)
+@AutoConfigureAfter(name = {
+    "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+    "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+    "org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration"
+})
+public class MongoMetricsAutoConfiguration {
+    public static final String PROPERTIES_PREFIX = "spring.multiple-mongo.metrics";    // $NON-NLS-1$
+    public static final String METRICS_PROPERTIES = "mongoMetricsProperties";    // $NON-NLS-1$
+    public static final String COMMAND_CUSTOMIZER = "mongoSourceCommandMetricsCustomizer";    // $NON-NLS-1$
+    public static final String COMMAND_METER_FILTER = "mongoSourceCommandMeterFilter";    // $NON-NLS-1$
+    public static final String CONNECTION_POOL_CUSTOMIZER = "mongoSourceConnectionPoolMetricsCustomizer";    // $NON-NLS-1$
+
+    @Bean(name = METRICS_PROPERTIES)
+    @ConditionalOnMissingBean(name = METRICS_PROPERTIES)
+    @ConfigurationProperties(prefix = PROPERTIES_PREFIX)
+    public MongoMetricsProperties metricsProperties() {
+        return new MongoMetricsProperties();
+    }
+
+    @Bean(name = COMMAND_CUSTOMIZER)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "command.enabled", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnMissingBean(name = COMMAND_CUSTOMIZER)
+    public MongoSourceSettingsCustomizer commandMetricsCustomizer(@Nonnull MeterRegistry registry, @Nonnull ObjectProvider<MongoCommandTagsProvider> tagsProviders) {
+        MongoCommandTagsProvider delegate = tagsProviders.getIfAvailable(DefaultMongoCommandTagsProvider::new);
+        return (source, builder) -> builder.addCommandListener(new MongoMetricsCommandListener(registry, new MongoSourceCommandTagsProvider(source, delegate)));
+    }
+
+    @Bean(name = COMMAND_METER_FILTER)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "command.enabled", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnBean(name = METRICS_PROPERTIES)
+    @ConditionalOnMissingBean(name = COMMAND_METER_FILTER)
+    public MeterFilter commandMeterFilter(@Qualifier(value = METRICS_PROPERTIES) @Nonnull MongoMetricsProperties properties) {
+        return new MongoSourceCommandMeterFilter(properties.getCommand().getPercentiles());
+    }
+
+    @Bean(name = CONNECTION_POOL_CUSTOMIZER)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "connection-pool.enabled", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnMissingBean(name = CONNECTION_POOL_CUSTOMIZER)
+    public MongoSourceSettingsCustomizer connectionPoolMetricsCustomizer(@Nonnull MeterRegistry registry, @Nonnull ObjectProvider<MongoConnectionPoolTagsProvider> tagsProviders) {
+        MongoConnectionPoolTagsProvider delegate = tagsProviders.getIfAvailable(DefaultMongoConnectionPoolTagsProvider::new);
+        return (source, builder) -> builder.applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(new MongoSourceConnectionPoolListener(registry, new MongoSourceConnectionPoolTagsProvider(source, delegate))));
+    }
+}
@@ -17,18 +17,26 @@
 package com.yookue.springstarter.multiplemongodb.config;
 
 
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.BooleanUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
 import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import com.mongodb.reactivestreams.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.property.MongoDataBufferProperties;
+import io.netty.buffer.PooledByteBufAllocator;
 import reactor.core.publisher.Flux;
 
 
@@ -42,12 +50,42 @@ import reactor.core.publisher.Flux;
 @ConditionalOnClass(value = {MongoClient.class, Flux.class})
 @AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
 public class MongoReactivePreConfiguration {
+    public static final String PROPERTIES_PREFIX = "spring.multiple-mongo.data-buffer";    // $NON-NLS-1$
+    public static final String DATA_BUFFER_PROPERTIES = "mongoDataBufferProperties";    // $NON-NLS-1$
     public static final String DATA_BUFFER_FACTORY = "mongoDataBufferFactory";    // $NON-NLS-1$
 
+    @Bean(name = DATA_BUFFER_PROPERTIES)
+    @ConditionalOnMissingBean(name = DATA_BUFFER_PROPERTIES)
+    @ConfigurationProperties(prefix = PROPERTIES_PREFIX)
+    public MongoDataBufferProperties dataBufferProperties() {
+        return new MongoDataBufferProperties();
+    }
+
     @Primary
     @Bean(name = DATA_BUFFER_FACTORY)
     @ConditionalOnMissingBean(name = DATA_BUFFER_FACTORY)
     public DefaultDataBufferFactory dataBufferFactory() {
         return new DefaultDataBufferFactory();
     }
+
+
+    /**
+     * Configuration for the pooled data buffer factory, which allocates the buffers from the pooled allocator of netty
+     * <p>
+     * The buffers are reused instead of being collected as garbage, so they must be released after consuming,
+     * run the tests with {@code -Dio.netty.leakDetection.level=paranoid} to find the buffers that are never released
+     *
+     * @author David Hsing
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(value = PooledByteBufAllocator.class)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "pooled", havingValue = "true")
+    static class PooledDataBufferConfiguration {
+        @Primary
+        @Bean(name = DATA_BUFFER_FACTORY)
+        @ConditionalOnMissingBean(name = DATA_BUFFER_FACTORY)
+        public NettyDataBufferFactory dataBufferFactory(@Qualifier(value = DATA_BUFFER_PROPERTIES) @Nonnull MongoDataBufferProperties properties) {
+            return new NettyDataBufferFactory(BooleanUtils.isFalse(properties.getDirect()) ? new PooledByteBufAllocator(false) : PooledByteBufAllocator.DEFAULT);
+        }
+    }
 }
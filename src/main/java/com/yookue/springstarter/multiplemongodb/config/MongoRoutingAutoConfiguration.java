@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataConfigurationUtils;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import com.mongodb.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.property.MongoRoutingProperties;
+import com.yookue.springstarter.multiplemongodb.routing.MongoRoutingContextHolder;
+import com.yookue.springstarter.multiplemongodb.routing.MongoRoutingKeyResolver;
+import com.yookue.springstarter.multiplemongodb.routing.RoutingMongoDatabaseFactory;
+
+
+/**
+ * Configuration for classic routing mongo
+ * <p>
+ * The routing templates pick a data source per operation, by the key of {@link MongoRoutingKeyResolver}.
+ * They use the mapping converter of the default data source, so all the routed data sources should share the same entities.
+ * To route the repositories, set the {@code mongoTemplateRef} of {@code @EnableMongoRepositories} to {@link #MONGO_TEMPLATE}
+ *
+ * @author David Hsing
+ * @see org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = MongoRoutingAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true")
+@ConditionalOnClass(value = MongoClient.class)
+@AutoConfigureAfter(value = {PrimaryMongoAutoConfiguration.class, SecondaryMongoAutoConfiguration.class, TertiaryMongoAutoConfiguration.class, PrimaryMongoReactiveConfiguration.class, SecondaryMongoReactiveConfiguration.class, TertiaryMongoReactiveConfiguration.class, MongoSourcesAutoConfiguration.class})
+@AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
+public class MongoRoutingAutoConfiguration {
+    public static final String PROPERTIES_PREFIX = "spring.multiple-mongo.routing";    // $NON-NLS-1$
+    public static final String ROUTING_PROPERTIES = "mongoRoutingProperties";    // $NON-NLS-1$
+    public static final String KEY_RESOLVER = "mongoRoutingKeyResolver";    // $NON-NLS-1$
+    public static final String DATABASE_FACTORY = "routingMongoDatabaseFactory";    // $NON-NLS-1$
+    public static final String MONGO_TEMPLATE = "routingMongoTemplate";    // $NON-NLS-1$
+
+    @Bean(name = ROUTING_PROPERTIES)
+    @ConditionalOnMissingBean(name = ROUTING_PROPERTIES)
+    @ConfigurationProperties(prefix = PROPERTIES_PREFIX)
+    public MongoRoutingProperties mongoRoutingProperties() {
+        return new MongoRoutingProperties();
+    }
+
+    @Bean(name = KEY_RESOLVER)
+    @ConditionalOnMissingBean(name = KEY_RESOLVER)
+    public MongoRoutingKeyResolver mongoRoutingKeyResolver() {
+        return MongoRoutingContextHolder::getKey;
+    }
+
+    @Bean(name = DATABASE_FACTORY)
+    @ConditionalOnBean(name = {ROUTING_PROPERTIES, KEY_RESOLVER})
+    @ConditionalOnMissingBean(name = DATABASE_FACTORY)
+    public RoutingMongoDatabaseFactory mongoDatabaseFactory(@Qualifier(value = ROUTING_PROPERTIES) @Nonnull MongoRoutingProperties properties,
+        @Qualifier(value = KEY_RESOLVER) @Nonnull MongoRoutingKeyResolver resolver,
+        @Nonnull Map<String, MongoDatabaseFactory> factories) {
+        Map<String, MongoDatabaseFactory> sources = new LinkedHashMap<>();
+        factories.forEach((beanName, factory) -> {
+            String source = MongoSourcesRegistrar.sourceName(beanName, MongoSourcesRegistrar.DATABASE_FACTORY);
+            if (source != null && !(factory instanceof RoutingMongoDatabaseFactory)) {
+                sources.put(source, factory);
+            }
+        });
+        return new RoutingMongoDatabaseFactory(sources, properties.getTenants(), properties.getDefaultSource(), resolver);
+    }
+
+    @Bean(name = MONGO_TEMPLATE)
+    @ConditionalOnBean(name = {ROUTING_PROPERTIES, DATABASE_FACTORY})
+    @ConditionalOnMissingBean(name = MONGO_TEMPLATE)
+    public MongoTemplate mongoTemplate(@Qualifier(value = ROUTING_PROPERTIES) @Nonnull MongoRoutingProperties properties,
+        @Qualifier(value = DATABASE_FACTORY) @Nonnull MongoDatabaseFactory factory,
+        @Nonnull BeanFactory beanFactory) {
+        String converterName = MongoSourcesRegistrar.beanName(properties.getDefaultSource(), MongoSourcesRegistrar.MAPPING_CONVERTER);
+        return MongoDataConfigurationUtils.mongoTemplate(factory, beanFactory.getBean(converterName, MappingMongoConverter.class));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.property.MongoRoutingProperties;
+import com.yookue.springstarter.multiplemongodb.routing.MongoRoutingContextHolder;
+import com.yookue.springstarter.multiplemongodb.routing.MongoRoutingKeyResolver;
+import com.yookue.springstarter.multiplemongodb.routing.RoutingReactiveMongoDatabaseFactory;
+import reactor.core.publisher.Flux;
+
+
+/**
+ * Configuration for reactive routing mongo
+ * <p>
+ * The properties and the key resolver are shared with {@link MongoRoutingAutoConfiguration}, and are defined here too for the applications without the classic driver
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.multiplemongodb.config.MongoRoutingAutoConfiguration
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = MongoRoutingAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true")
+@ConditionalOnClass(value = {MongoClient.class, Flux.class})
+@AutoConfigureAfter(value = MongoRoutingAutoConfiguration.class)
+@AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
+public class MongoRoutingReactiveConfiguration {
+    public static final String DATABASE_FACTORY = "routingReactiveMongoDatabaseFactory";    // $NON-NLS-1$
+    public static final String MONGO_TEMPLATE = "routingReactiveMongoTemplate";    // $NON-NLS-1$
+
+    @Bean(name = MongoRoutingAutoConfiguration.ROUTING_PROPERTIES)
+    @ConditionalOnMissingBean(name = MongoRoutingAutoConfiguration.ROUTING_PROPERTIES)
+    @ConfigurationProperties(prefix = MongoRoutingAutoConfiguration.PROPERTIES_PREFIX)
+    public MongoRoutingProperties mongoRoutingProperties() {
+        return new MongoRoutingProperties();
+    }
+
+    @Bean(name = MongoRoutingAutoConfiguration.KEY_RESOLVER)
+    @ConditionalOnMissingBean(name = MongoRoutingAutoConfiguration.KEY_RESOLVER)
+    public MongoRoutingKeyResolver mongoRoutingKeyResolver() {
+        return MongoRoutingContextHolder::getKey;
+    }
+
+    @Bean(name = DATABASE_FACTORY)
+    @ConditionalOnBean(name = {MongoRoutingAutoConfiguration.ROUTING_PROPERTIES, MongoRoutingAutoConfiguration.KEY_RESOLVER})
+    @ConditionalOnMissingBean(name = DATABASE_FACTORY)
+    public RoutingReactiveMongoDatabaseFactory mongoDatabaseFactory(@Qualifier(value = MongoRoutingAutoConfiguration.ROUTING_PROPERTIES) @Nonnull MongoRoutingProperties properties,
+        @Qualifier(value = MongoRoutingAutoConfiguration.KEY_RESOLVER) @Nonnull MongoRoutingKeyResolver resolver,
+        @Nonnull Map<String, ReactiveMongoDatabaseFactory> factories) {
+        Map<String, ReactiveMongoDatabaseFactory> sources = new LinkedHashMap<>();
+        factories.forEach((beanName, factory) -> {
+            String source = MongoSourcesRegistrar.sourceName(beanName, MongoSourcesRegistrar.REACTIVE_DATABASE_FACTORY);
+            if (source != null && !(factory instanceof RoutingReactiveMongoDatabaseFactory)) {
+                sources.put(source, factory);
+            }
+        });
+        return new RoutingReactiveMongoDatabaseFactory(sources, properties.getTenants(), properties.getDefaultSource(), resolver);
+    }
+
+    @Bean(name = MONGO_TEMPLATE)
+    @ConditionalOnBean(name = {MongoRoutingAutoConfiguration.ROUTING_PROPERTIES, DATABASE_FACTORY})
+    @ConditionalOnMissingBean(name = MONGO_TEMPLATE)
+    public ReactiveMongoTemplate mongoTemplate(@Qualifier(value = MongoRoutingAutoConfiguration.ROUTING_PROPERTIES) @Nonnull MongoRoutingProperties properties,
+        @Qualifier(value = DATABASE_FACTORY) @Nonnull ReactiveMongoDatabaseFactory factory,
+        @Nonnull BeanFactory beanFactory) {
+        String converterName = MongoSourcesRegistrar.beanName(properties.getDefaultSource(), MongoSourcesRegistrar.MAPPING_CONVERTER);
+        return new ReactiveMongoTemplate(factory, beanFactory.getBean(converterName, MappingMongoConverter.class));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import com.mongodb.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.property.MongoScatterGatherProperties;
+import com.yookue.springstarter.multiplemongodb.scatter.MongoScatterGatherTemplate;
+
+
+/**
+ * Configuration for the classic scatter-gather template, which queries the templates of all the data sources in parallel
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.multiplemongodb.scatter.MongoScatterGatherTemplate
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = MongoScatterGatherAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true")
+@ConditionalOnClass(value = MongoClient.class)
+@AutoConfigureAfter(value = {PrimaryMongoAutoConfiguration.class, SecondaryMongoAutoConfiguration.class, TertiaryMongoAutoConfiguration.class, MongoSourcesAutoConfiguration.class, MongoRoutingAutoConfiguration.class})
+public class MongoScatterGatherAutoConfiguration {
+    public static final String PROPERTIES_PREFIX = "spring.multiple-mongo.scatter-gather";    // $NON-NLS-1$
+    public static final String SCATTER_GATHER_PROPERTIES = "mongoScatterGatherProperties";    // $NON-NLS-1$
+    public static final String SCATTER_GATHER_TEMPLATE = "mongoScatterGatherTemplate";    // $NON-NLS-1$
+
+    @Bean(name = SCATTER_GATHER_PROPERTIES)
+    @ConditionalOnMissingBean(name = SCATTER_GATHER_PROPERTIES)
+    @ConfigurationProperties(prefix = PROPERTIES_PREFIX)
+    public MongoScatterGatherProperties scatterGatherProperties() {
+        return new MongoScatterGatherProperties();
+    }
+
+    @Bean(name = SCATTER_GATHER_TEMPLATE, destroyMethod = "close")
+    @ConditionalOnBean(name = SCATTER_GATHER_PROPERTIES)
+    @ConditionalOnMissingBean(name = SCATTER_GATHER_TEMPLATE)
+    public MongoScatterGatherTemplate scatterGatherTemplate(@Qualifier(value = SCATTER_GATHER_PROPERTIES) @Nonnull MongoScatterGatherProperties properties,
+        @Nonnull Map<String, MongoTemplate> templates) {
+        Map<String, MongoTemplate> sources = new LinkedHashMap<>();
+        templates.forEach((beanName, template) -> {
+            String source = MongoSourcesRegistrar.sourceName(beanName, MongoSourcesRegistrar.MONGO_TEMPLATE);
+            if (source != null && !MongoRoutingAutoConfiguration.MONGO_TEMPLATE.equals(beanName)) {
+                sources.put(source, template);
+            }
+        });
+        return new MongoScatterGatherTemplate(sources, properties.getPrefetch(), properties.getMaxConcurrentQueries());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.mongodb.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.customizer.MongoSourceSettingsCustomizer;
+import com.yookue.springstarter.multiplemongodb.diagnostic.MongoSlowQueryRecorder;
+import com.yookue.springstarter.multiplemongodb.endpoint.MongoSlowQueryEndpoint;
+import com.yookue.springstarter.multiplemongodb.property.MongoSlowQueryProperties;
+
+
+/**
+ * Configuration for capturing the slow queries of all the data sources
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.multiplemongodb.diagnostic.MongoSlowQueryRecorder
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = MongoSlowQueryAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true")
+@ConditionalOnClass(value = MongoClient.class)
+public class MongoSlowQueryAutoConfiguration {
+    public static final String PROPERTIES_PREFIX = "spring.multiple-mongo.slow-query";    // $NON-NLS-1$
+    public static final String SLOW_QUERY_PROPERTIES = "mongoSlowQueryProperties";    // $NON-NLS-1$
+    public static final String SLOW_QUERY_RECORDER = "mongoSlowQueryRecorder";    // $NON-NLS-1$
+    public static final String SLOW_QUERY_CUSTOMIZER = "mongoSlowQueryCustomizer";    // $NON-NLS-1$
+    public static final String SLOW_QUERY_ENDPOINT = "mongoSlowQueryEndpoint";    // $NON-NLS-1$
+
+    @Bean(name = SLOW_QUERY_PROPERTIES)
+    @ConditionalOnMissingBean(name = SLOW_QUERY_PROPERTIES)
+    @ConfigurationProperties(prefix = PROPERTIES_PREFIX)
+    public MongoSlowQueryProperties slowQueryProperties() {
+        return new MongoSlowQueryProperties();
+    }
+
+    @Bean(name = SLOW_QUERY_RECORDER, destroyMethod = "close")
+    @ConditionalOnBean(name = SLOW_QUERY_PROPERTIES)
+    @ConditionalOnMissingBean(name = SLOW_QUERY_RECORDER)
+    public MongoSlowQueryRecorder slowQueryRecorder(@Qualifier(value = SLOW_QUERY_PROPERTIES) @Nonnull MongoSlowQueryProperties properties, @Nonnull BeanFactory beanFactory) {
+        return new MongoSlowQueryRecorder(properties, source -> beanFactory.getBean(MongoSourcesRegistrar.beanName(source, MongoSourcesRegistrar.MONGO_CLIENT), MongoClient.class));
+    }
+
+    @Bean(name = SLOW_QUERY_CUSTOMIZER)
+    @ConditionalOnBean(name = SLOW_QUERY_RECORDER)
+    @ConditionalOnMissingBean(name = SLOW_QUERY_CUSTOMIZER)
+    public MongoSourceSettingsCustomizer slowQueryCustomizer(@Qualifier(value = SLOW_QUERY_RECORDER) @Nonnull MongoSlowQueryRecorder recorder) {
+        return (source, builder) -> builder.addCommandListener(recorder.listener(source));
+    }
+
+    @Bean(name = SLOW_QUERY_ENDPOINT)
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    @ConditionalOnBean(name = SLOW_QUERY_RECORDER)
+    @ConditionalOnMissingBean(name = SLOW_QUERY_ENDPOINT)
+    public MongoSlowQueryEndpoint slowQueryEndpoint(@Qualifier(value = SLOW_QUERY_RECORDER) @Nonnull MongoSlowQueryRecorder recorder) {
+        return new MongoSlowQueryEndpoint(recorder);
+    }
+}
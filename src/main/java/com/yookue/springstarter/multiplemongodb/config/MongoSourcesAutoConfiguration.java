@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import com.mongodb.client.MongoClient;
+
+
+/**
+ * Configuration for the named mongo data sources
+ * <p>
+ * Registers the full bean graph for each entry of {@code spring.multiple-mongo.sources.<name>}, the bean names are prefixed with the name of the entry,
+ * such as {@code fooMongoClient}, {@code fooMongoTemplate} and {@code fooReactiveMongoTemplate}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.multiplemongodb.config.MongoSourcesRegistrar
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "spring.multiple-mongo", name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = MongoClient.class)
+@AutoConfigureAfter(value = {MongoClassicPreConfiguration.class, MongoReactivePreConfiguration.class})
+@AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
+@Import(value = MongoSourcesRegistrar.class)
+public class MongoSourcesAutoConfiguration {
+    public static final String PROPERTIES_PREFIX = "spring.multiple-mongo.sources";    // $NON-NLS-1$
+}
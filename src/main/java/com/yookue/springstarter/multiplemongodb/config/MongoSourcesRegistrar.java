@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.BooleanUtils;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanNameGenerator;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataConfigurationUtils;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataConfigurationUtils;
+import org.springframework.boot.autoconfigure.mongo.MongoConfigurationUtils;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.data.mongodb.repository.config.MongoRepositoryConfigurationExtension;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.RepositoryDefinition;
+import org.springframework.data.repository.config.AnnotationRepositoryConfigurationSource;
+import org.springframework.data.repository.config.RepositoryConfigurationDelegate;
+import org.springframework.data.util.Streamable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
+
+
+/**
+ * Registrar for the named mongo data sources
+ * <p>
+ * The properties are bound only once, and the repository interfaces are scanned only once for all the data sources.
+ * The entity scanning and the custom conversions are shared with {@link MongoClassicPreConfiguration}.
+ * Any bean that has been defined with the same name will not be registered, just like {@code @ConditionalOnMissingBean}.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.multiplemongodb.config.PrimaryMongoAutoConfiguration
+ * @see com.yookue.springstarter.multiplemongodb.config.PrimaryMongoReactiveConfiguration
+ * @see com.yookue.springstarter.multiplemongodb.config.PrimaryMongoRepositoryConfiguration
+ */
+public class MongoSourcesRegistrar implements ImportBeanDefinitionRegistrar, EnvironmentAware, ResourceLoaderAware, BeanClassLoaderAware {
+    public static final String MONGO_PROPERTIES = "MongoProperties";    // $NON-NLS-1$
+    public static final String CONNECTION_DETAILS = "MongoConnectionDetails";    // $NON-NLS-1$
+    public static final String SSL_BUNDLES = "MongoSslBundles";    // $NON-NLS-1$
+    public static final String SETTINGS_BUILDER_CUSTOMIZER = "MongoClientSettingsBuilderCustomizer";    // $NON-NLS-1$
+    public static final String BULKHEAD = "MongoBulkhead";    // $NON-NLS-1$
+    public static final String CLIENT_FACTORY = "MongoClientFactory";    // $NON-NLS-1$
+    public static final String CLIENT_SETTINGS = "MongoClientSettings";    // $NON-NLS-1$
+    public static final String MONGO_CLIENT = "MongoClient";    // $NON-NLS-1$
+    public static final String DATABASE_FACTORY = "MongoDatabaseFactory";    // $NON-NLS-1$
+    public static final String TRANSACTION_MANAGER = "MongoTransactionManager";    // $NON-NLS-1$
+    public static final String TRANSACTION_OPTIONS = "MongoTransactionOptions";    // $NON-NLS-1$
+    public static final String CUSTOM_CONVERSIONS = "MongoCustomConversions";    // $NON-NLS-1$
+    public static final String MANAGED_TYPES = "MongoManagedTypes";    // $NON-NLS-1$
+    public static final String MAPPING_CONTEXT = "MongoMappingContext";    // $NON-NLS-1$
+    public static final String MAPPING_CONVERTER = "MongoMappingConverter";    // $NON-NLS-1$
+    public static final String MONGO_TEMPLATE = "MongoTemplate";    // $NON-NLS-1$
+    public static final String READ_TEMPLATE = "MongoReadTemplate";    // $NON-NLS-1$
+    public static final String GRID_FS_TEMPLATE = "MongoGridFsTemplate";    // $NON-NLS-1$
+    public static final String GRID_FS_CHANNEL_TEMPLATE = "MongoGridFsChannelTemplate";    // $NON-NLS-1$
+    public static final String BATCH_WRITER = "MongoBatchWriter";    // $NON-NLS-1$
+    public static final String ASYNC_TEMPLATE = "MongoAsyncTemplate";    // $NON-NLS-1$
+    public static final String STREAM_TEMPLATE = "MongoStreamTemplate";    // $NON-NLS-1$
+    public static final String RAW_TEMPLATE = "MongoRawTemplate";    // $NON-NLS-1$
+    public static final String QUERY_CACHE = "MongoQueryCache";    // $NON-NLS-1$
+    public static final String REACTIVE_BULKHEAD = "ReactiveMongoBulkhead";    // $NON-NLS-1$
+    public static final String REACTIVE_CLIENT_FACTORY = "ReactiveMongoClientFactory";    // $NON-NLS-1$
+    public static final String REACTIVE_MONGO_CLIENT = "ReactiveMongoClient";    // $NON-NLS-1$
+    public static final String REACTIVE_DATABASE_FACTORY = "ReactiveMongoDatabaseFactory";    // $NON-NLS-1$
+    public static final String REACTIVE_MONGO_TEMPLATE = "ReactiveMongoTemplate";    // $NON-NLS-1$
+    public static final String REACTIVE_GRID_FS_TEMPLATE = "ReactiveMongoGridFsTemplate";    // $NON-NLS-1$
+    public static final String REACTIVE_GRID_FS_CHANNEL_TEMPLATE = "ReactiveMongoGridFsChannelTemplate";    // $NON-NLS-1$
+    public static final String REACTIVE_BATCH_WRITER = "ReactiveMongoBatchWriter";    // $NON-NLS-1$
+    public static final String REACTIVE_STREAM_TEMPLATE = "ReactiveMongoStreamTemplate";    // $NON-NLS-1$
+    public static final String REACTIVE_RAW_TEMPLATE = "ReactiveMongoRawTemplate";    // $NON-NLS-1$
+    public static final String REACTIVE_CHANGE_STREAM_HUB = "ReactiveMongoChangeStreamHub";    // $NON-NLS-1$
+    public static final String REPOSITORY_PACKAGE = "**.repository.*.mongo";    // $NON-NLS-1$
+    public static final String REGISTER_STEP = "multiplemongo.sources.register";    // $NON-NLS-1$
+    public static final String REGISTER_SOURCE_STEP = "multiplemongo.sources.register.source";    // $NON-NLS-1$
+    public static final String SCAN_REPOSITORIES_STEP = "multiplemongo.sources.repositories.scan";    // $NON-NLS-1$
+    private static final Set<String> RESERVED_SOURCES = Set.of(PrimaryMongoAutoConfiguration.SOURCE_NAME, SecondaryMongoAutoConfiguration.SOURCE_NAME, TertiaryMongoAutoConfiguration.SOURCE_NAME);
+    private static final String RESERVED_SOURCE_SUFFIX = "Reactive";    // $NON-NLS-1$
+    private static final Pattern REPOSITORY_SOURCE = Pattern.compile("(?:^|\\.)repository\\.([^.]+)\\.mongo(?:\\.|$)");    // $NON-NLS-1$
+    private Environment environment;
+    private ResourceLoader resourceLoader;
+    private ClassLoader classLoader;
+
+    @Override
+    public void setEnvironment(@Nonnull Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void setResourceLoader(@Nonnull ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public void setBeanClassLoader(@Nonnull ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Returns the bean name of the specified data source
+     *
+     * @param source the name of the data source
+     * @param suffix the suffix of the bean name, such as {@link #MONGO_TEMPLATE}
+     *
+     * @return the bean name of the specified data source
+     */
+    @Nonnull
+    public static String beanName(@Nonnull String source, @Nonnull String suffix) {
+        return source + suffix;
+    }
+
+    /**
+     * Returns the name of the data source of the specified bean
+     *
+     * @param beanName the name of the bean, such as {@code fooMongoTemplate}
+     * @param suffix the suffix of the bean name, such as {@link #MONGO_TEMPLATE}
+     *
+     * @return the name of the data source of the specified bean, or {@code null} if the bean name does not end with the suffix
+     */
+    @Nullable
+    public static String sourceName(@Nonnull String beanName, @Nonnull String suffix) {
+        return (beanName.length() > suffix.length() && beanName.endsWith(suffix)) ? beanName.substring(0, beanName.length() - suffix.length()) : null;
+    }
+
+    /**
+     * Rejects the names of the data sources, whose bean names collide with the fixed data sources or the reactive beans of other data sources
+     *
+     * @param source the name of the data source
+     */
+    public static void checkSourceName(@Nonnull String source) {
+        String name = MongoSourcesAutoConfiguration.PROPERTIES_PREFIX + '.' + source;
+        if (RESERVED_SOURCES.contains(source)) {
+            throw new InvalidConfigurationPropertyValueException(name, source, String.format("The name '%s' is reserved for the fixed data source, configure it under 'spring.multiple-mongo.%s' instead", source, source));
+        }
+        if (source.endsWith(RESERVED_SOURCE_SUFFIX)) {
+            throw new InvalidConfigurationPropertyValueException(name, source, String.format("The name must not end with '%s', as its beans collide with the reactive beans of another data source", RESERVED_SOURCE_SUFFIX));
+        }
+    }
+
+    @Override
+    public void registerBeanDefinitions(@Nonnull AnnotationMetadata metadata, @Nonnull BeanDefinitionRegistry registry, @Nonnull BeanNameGenerator generator) {
+        Map<String, ExtendedMongoProperties> sources = Binder.get(environment).bind(MongoSourcesAutoConfiguration.PROPERTIES_PREFIX, Bindable.mapOf(String.class, ExtendedMongoProperties.class)).orElse(Collections.emptyMap());
+        if (sources.isEmpty()) {
+            return;
+        }
+        sources.keySet().forEach(MongoSourcesRegistrar::checkSourceName);
+        boolean reactive = ClassUtils.isPresent("com.mongodb.reactivestreams.client.MongoClient", classLoader) && ClassUtils.isPresent("reactor.core.publisher.Flux", classLoader);    // $NON-NLS-1$ // $NON-NLS-2$
+        ApplicationStartup startup = (registry instanceof ConfigurableListableBeanFactory factory) ? factory.getApplicationStartup() : ApplicationStartup.DEFAULT;
+        StartupStep registerStep = startup.start(REGISTER_STEP).tag("sources", String.valueOf(sources.size()));    // $NON-NLS-1$
+        Map<String, String> repositorySources = new LinkedHashMap<>();
+        sources.forEach((source, properties) -> {
+            if (!StringUtils.hasText(properties.getUri()) && !StringUtils.hasText(properties.getHost())) {
+                return;
+            }
+            StartupStep sourceStep = startup.start(REGISTER_SOURCE_STEP).tag("source", source);    // $NON-NLS-1$
+            registerClassicBeans(registry, source, properties);
+            if (reactive) {
+                registerReactiveBeans(registry, source, properties);
+            }
+            if (!Boolean.FALSE.equals(properties.getRepositoryEnabled())) {
+                ExtendedMongoProperties.Read read = properties.getRead();
+                boolean readTemplate = BooleanUtils.isTrue(read.getEnabled()) && BooleanUtils.isTrue(read.getRepositoryEnabled());
+                repositorySources.put(source, beanName(source, readTemplate ? READ_TEMPLATE : MONGO_TEMPLATE));
+            }
+            sourceStep.end();
+        });
+        if (!repositorySources.isEmpty()) {
+            StartupStep scanStep = startup.start(SCAN_REPOSITORIES_STEP);
+            scanStep.tag("repositories", String.valueOf(registerRepositories(registry, generator, repositorySources)));    // $NON-NLS-1$
+            scanStep.end();
+        }
+        registerStep.end();
+    }
+
+    private void registerClassicBeans(@Nonnull BeanDefinitionRegistry registry, @Nonnull String source, @Nonnull ExtendedMongoProperties properties) {
+        String propertiesName = beanName(source, MONGO_PROPERTIES), detailsName = beanName(source, CONNECTION_DETAILS);
+        String customizerName = beanName(source, SETTINGS_BUILDER_CUSTOMIZER), settingsName = beanName(source, CLIENT_SETTINGS);
+        String databaseFactoryName = beanName(source, DATABASE_FACTORY), conversionsName = beanName(source, CUSTOM_CONVERSIONS);
+        String mappingContextName = beanName(source, MAPPING_CONTEXT), converterName = beanName(source, MAPPING_CONVERTER), templateName = beanName(source, MONGO_TEMPLATE);
+        registerBean(registry, propertiesName, BeanDefinitionBuilder.genericBeanDefinition(ExtendedMongoProperties.class, () -> properties));
+        registerBean(registry, detailsName, BeanDefinitionBuilder.rootBeanDefinition(MongoConfigurationUtils.class, "mongoConnectionDetails")    // $NON-NLS-1$
+            .addConstructorArgReference(propertiesName));
+        registerBean(registry, customizerName, BeanDefinitionBuilder.rootBeanDefinition(MongoConfigurationUtils.class, "mongoClientSettingsCustomizer")    // $NON-NLS-1$
+            .addConstructorArgReference(propertiesName)
+            .addConstructorArgReference(detailsName)
+            .addConstructorArgValue(optionalReference(registry, beanName(source, SSL_BUNDLES))));
+        if (BooleanUtils.isTrue(properties.getBulkhead().getEnabled())) {
+            registerBean(registry, beanName(source, BULKHEAD), BeanDefinitionBuilder.rootBeanDefinition(MongoConfigurationUtils.class, "mongoSourceBulkhead")    // $NON-NLS-1$
+                .addConstructorArgValue(source)
+                .addConstructorArgValue(MongoSourceClient.CLASSIC)
+                .addConstructorArgReference(propertiesName));
+        }
+        registerBean(registry, beanName(source, CLIENT_FACTORY), BeanDefinitionBuilder.rootBeanDefinition(MongoConfigurationUtils.class, "mongoClientFactory")    // $NON-NLS-1$
+            .addConstructorArgValue(source)
+            .addConstructorArgReference(propertiesName)
+            .addConstructorArgReference(customizerName)
+            .addConstructorArgValue(optionalReference(registry, beanName(source, BULKHEAD)))
+            .setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR));
+        registerBean(registry, settingsName, BeanDefinitionBuilder.rootBeanDefinition(MongoConfigurationUtils.class, "mongoClientSettings")    // $NON-NLS-1$
+            .addConstructorArgReference(customizerName));
+        registerBean(registry, beanName(source, MONGO_CLIENT), BeanDefinitionBuilder.rootBeanDefinition(MongoConfigurationUtils.class, "mongoClient")    // $NON-NLS-1$
+            .addConstructorArgReference(beanName(source, CLIENT_FACTORY))
+            .addConstructorArgReference(settingsName)
+            .setDestroyMethodName("close"));    // $NON-NLS-1$
+        registerBean(registry, databaseFactoryName, BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoDatabaseFactory")    // $NON-NLS-1$
+            .addConstructorArgReference(beanName(source, MONGO_CLIENT))
+            .addConstructorArgReference(propertiesName)
+            .addConstructorArgReference(detailsName)
+            .addConstructorArgValue(optionalReference(registry, beanName(source, BULKHEAD))));
+        registerBean(registry, beanName(source, TRANSACTION_MANAGER), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoTransactionManager")    // $NON-NLS-1$
+            .addConstructorArgReference(databaseFactoryName)
+            .addConstructorArgValue(optionalReference(registry, beanName(source, TRANSACTION_OPTIONS))));
+        if (!registry.isBeanNameInUse(conversionsName)) {
+            registry.registerAlias(MongoClassicPreConfiguration.CUSTOM_CONVERSIONS, conversionsName);
+        }
+        registerBean(registry, beanName(source, MANAGED_TYPES), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoManagedTypes")    // $NON-NLS-1$
+            .addConstructorArgReference(propertiesName)
+            .addConstructorArgReference(MongoClassicPreConfiguration.MANAGED_TYPES));
+        registerBean(registry, mappingContextName, BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoMappingContext")    // $NON-NLS-1$
+            .addConstructorArgReference(propertiesName)
+            .addConstructorArgReference(conversionsName)
+            .addConstructorArgReference(beanName(source, MANAGED_TYPES)));
+        registerBean(registry, converterName, BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mappingMongoConverter")    // $NON-NLS-1$
+            .addConstructorArgReference(propertiesName)
+            .addConstructorArgReference(databaseFactoryName)
+            .addConstructorArgReference(mappingContextName)
+            .addConstructorArgReference(conversionsName));
+        if (BooleanUtils.isTrue(properties.getQueryCache().getEnabled())) {
+            registerBean(registry, beanName(source, QUERY_CACHE), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoQueryCache")    // $NON-NLS-1$
+                .addConstructorArgValue(source)
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(databaseFactoryName));
+        }
+        registerBean(registry, templateName, BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoTemplate")    // $NON-NLS-1$
+            .addConstructorArgReference(databaseFactoryName)
+            .addConstructorArgReference(converterName)
+            .addConstructorArgValue(optionalReference(registry, beanName(source, QUERY_CACHE))));
+        if (BooleanUtils.isTrue(properties.getRead().getEnabled())) {
+            registerBean(registry, beanName(source, READ_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "readMongoTemplate")    // $NON-NLS-1$
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(databaseFactoryName)
+                .addConstructorArgReference(converterName));
+        }
+        registerBean(registry, beanName(source, GRID_FS_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "gridFsTemplate")    // $NON-NLS-1$
+            .addConstructorArgReference(propertiesName)
+            .addConstructorArgReference(databaseFactoryName)
+            .addConstructorArgReference(templateName)
+            .addConstructorArgReference(detailsName));
+        if (BooleanUtils.isTrue(properties.getGridFsChannel().getEnabled())) {
+            registerBean(registry, beanName(source, GRID_FS_CHANNEL_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoGridFsChannelTemplate")    // $NON-NLS-1$
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(databaseFactoryName)
+                .addConstructorArgReference(detailsName)
+                .setDestroyMethodName("close"));    // $NON-NLS-1$
+        }
+        if (BooleanUtils.isTrue(properties.getBatch().getEnabled())) {
+            registerBean(registry, beanName(source, BATCH_WRITER), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoBatchWriter")    // $NON-NLS-1$
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(templateName)
+                .setDestroyMethodName("close"));    // $NON-NLS-1$
+        }
+        if (BooleanUtils.isTrue(properties.getAsync().getEnabled())) {
+            registerBean(registry, beanName(source, ASYNC_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoAsyncTemplate")    // $NON-NLS-1$
+                .addConstructorArgValue(source)
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(settingsName)
+                .addConstructorArgReference(templateName)
+                .setDestroyMethodName("close"));    // $NON-NLS-1$
+        }
+        if (BooleanUtils.isTrue(properties.getStreaming().getEnabled())) {
+            registerBean(registry, beanName(source, STREAM_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoStreamTemplate")    // $NON-NLS-1$
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(templateName));
+        }
+        if (BooleanUtils.isTrue(properties.getRaw().getEnabled())) {
+            registerBean(registry, beanName(source, RAW_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoDataConfigurationUtils.class, "mongoRawTemplate")    // $NON-NLS-1$
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(templateName));
+        }
+    }
+
+    private void registerReactiveBeans(@Nonnull BeanDefinitionRegistry registry, @Nonnull String source, @Nonnull ExtendedMongoProperties properties) {
+        String propertiesName = beanName(source, MONGO_PROPERTIES), detailsName = beanName(source, CONNECTION_DETAILS);
+        String clientName = beanName(source, REACTIVE_MONGO_CLIENT), databaseFactoryName = beanName(source, REACTIVE_DATABASE_FACTORY), converterName = beanName(source, MAPPING_CONVERTER);
+        if (BooleanUtils.isTrue(properties.getBulkhead().getEnabled())) {
+            registerBean(registry, beanName(source, REACTIVE_BULKHEAD), BeanDefinitionBuilder.rootBeanDefinition(MongoConfigurationUtils.class, "mongoSourceBulkhead")    // $NON-NLS-1$
+                .addConstructorArgValue(source)
+                .addConstructorArgValue(MongoSourceClient.REACTIVE)
+                .addConstructorArgReference(propertiesName));
+        }
+        registerBean(registry, beanName(source, REACTIVE_CLIENT_FACTORY), BeanDefinitionBuilder.rootBeanDefinition(MongoConfigurationUtils.class, "reactiveMongoClientFactory")    // $NON-NLS-1$
+            .addConstructorArgValue(source)
+            .addConstructorArgReference(propertiesName)
+            .addConstructorArgReference(beanName(source, SETTINGS_BUILDER_CUSTOMIZER))
+            .addConstructorArgValue(optionalReference(registry, beanName(source, REACTIVE_BULKHEAD)))
+            .setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR));
+        registerBean(registry, clientName, BeanDefinitionBuilder.rootBeanDefinition(MongoConfigurationUtils.class, "reactiveMongoClient")    // $NON-NLS-1$
+            .addConstructorArgReference(beanName(source, REACTIVE_CLIENT_FACTORY))
+            .addConstructorArgReference(beanName(source, CLIENT_SETTINGS))
+            .setDestroyMethodName("close"));    // $NON-NLS-1$
+        registerBean(registry, databaseFactoryName, BeanDefinitionBuilder.rootBeanDefinition(MongoReactiveDataConfigurationUtils.class, "reactiveMongoDatabaseFactory")    // $NON-NLS-1$
+            .addConstructorArgReference(clientName)
+            .addConstructorArgReference(propertiesName)
+            .addConstructorArgReference(detailsName)
+            .addConstructorArgValue(optionalReference(registry, beanName(source, REACTIVE_BULKHEAD))));
+        registerBean(registry, beanName(source, REACTIVE_MONGO_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoReactiveDataConfigurationUtils.class, "reactiveMongoTemplate")    // $NON-NLS-1$
+            .addConstructorArgReference(detailsName)
+            .addConstructorArgReference(databaseFactoryName)
+            .addConstructorArgReference(converterName)
+            .addConstructorArgValue(optionalReference(registry, beanName(source, QUERY_CACHE))));
+        registerBean(registry, beanName(source, REACTIVE_GRID_FS_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoReactiveDataConfigurationUtils.class, "reactiveGridFsTemplate")    // $NON-NLS-1$
+            .addConstructorArgReference(detailsName)
+            .addConstructorArgReference(databaseFactoryName)
+            .addConstructorArgReference(converterName)
+            .addConstructorArgReference(MongoReactivePreConfiguration.DATA_BUFFER_FACTORY));
+        if (BooleanUtils.isTrue(properties.getGridFsChannel().getEnabled())) {
+            registerBean(registry, beanName(source, REACTIVE_GRID_FS_CHANNEL_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoReactiveDataConfigurationUtils.class, "reactiveMongoGridFsChannelTemplate")    // $NON-NLS-1$
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(detailsName)
+                .addConstructorArgReference(databaseFactoryName)
+                .addConstructorArgReference(MongoReactivePreConfiguration.DATA_BUFFER_FACTORY));
+        }
+        if (BooleanUtils.isTrue(properties.getBatch().getEnabled())) {
+            registerBean(registry, beanName(source, REACTIVE_BATCH_WRITER), BeanDefinitionBuilder.rootBeanDefinition(MongoReactiveDataConfigurationUtils.class, "reactiveMongoBatchWriter")    // $NON-NLS-1$
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(beanName(source, REACTIVE_MONGO_TEMPLATE)));
+        }
+        if (BooleanUtils.isTrue(properties.getStreaming().getEnabled())) {
+            registerBean(registry, beanName(source, REACTIVE_STREAM_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoReactiveDataConfigurationUtils.class, "reactiveMongoStreamTemplate")    // $NON-NLS-1$
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(beanName(source, REACTIVE_MONGO_TEMPLATE)));
+        }
+        if (BooleanUtils.isTrue(properties.getRaw().getEnabled())) {
+            registerBean(registry, beanName(source, REACTIVE_RAW_TEMPLATE), BeanDefinitionBuilder.rootBeanDefinition(MongoReactiveDataConfigurationUtils.class, "reactiveMongoRawTemplate")    // $NON-NLS-1$
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(beanName(source, REACTIVE_MONGO_TEMPLATE))
+                .addConstructorArgReference(MongoReactivePreConfiguration.DATA_BUFFER_FACTORY));
+        }
+        if (BooleanUtils.isTrue(properties.getChangeStream().getEnabled())) {
+            registerBean(registry, beanName(source, REACTIVE_CHANGE_STREAM_HUB), BeanDefinitionBuilder.rootBeanDefinition(MongoReactiveDataConfigurationUtils.class, "reactiveMongoChangeStreamHub")    // $NON-NLS-1$
+                .addConstructorArgValue(source)
+                .addConstructorArgReference(propertiesName)
+                .addConstructorArgReference(beanName(source, REACTIVE_MONGO_TEMPLATE))
+                .setDestroyMethodName("close"));    // $NON-NLS-1$
+        }
+    }
+
+    /**
+     * Scans the repository interfaces of all the data sources at once, and registers them by the data source
+     *
+     * @return the number of the repository interfaces that found
+     */
+    private int registerRepositories(@Nonnull BeanDefinitionRegistry registry, @Nonnull BeanNameGenerator generator, @Nonnull Map<String, String> sources) {
+        ClassPathScanningCandidateComponentProvider provider = new RepositoryInterfaceProvider(environment);
+        provider.setResourceLoader(resourceLoader);
+        Map<String, Set<BeanDefinition>> candidates = new LinkedHashMap<>();
+        for (BeanDefinition candidate : provider.findCandidateComponents(REPOSITORY_PACKAGE)) {
+            String className = candidate.getBeanClassName();
+            Matcher matcher = (className != null) ? REPOSITORY_SOURCE.matcher(ClassUtils.getPackageName(className)) : null;
+            if (matcher != null && matcher.find() && sources.containsKey(matcher.group(1))) {
+                candidates.computeIfAbsent(matcher.group(1), key -> new LinkedHashSet<>()).add(candidate);
+            }
+        }
+        candidates.forEach((source, definitions) -> {
+            String templateName = sources.get(source);
+            if (!registry.containsBeanDefinition(templateName)) {
+                return;
+            }
+            SourceRepositoryConfigurationSource configurationSource = new SourceRepositoryConfigurationSource(resourceLoader, environment, registry, generator, source, templateName, definitions);
+            new RepositoryConfigurationDelegate(configurationSource, resourceLoader, environment).registerRepositoriesIn(registry, new MongoRepositoryConfigurationExtension());
+        });
+        return candidates.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void registerBean(@Nonnull BeanDefinitionRegistry registry, @Nonnull String beanName, @Nonnull BeanDefinitionBuilder builder) {
+        if (!registry.isBeanNameInUse(beanName)) {
+            registry.registerBeanDefinition(beanName, builder.getBeanDefinition());
+        }
+    }
+
+    @Nullable
+    private Object optionalReference(@Nonnull BeanDefinitionRegistry registry, @Nonnull String beanName) {
+        return registry.isBeanNameInUse(beanName) ? new RuntimeBeanReference(beanName) : null;
+    }
+
+
+    /**
+     * Repository configuration source of a named data source, with the candidates that have been scanned
+     * <p>
+     * The attributes are derived from the defaults of {@link EnableMongoRepositories}, except that the template is the one of the data source
+     */
+    private static class SourceRepositoryConfigurationSource extends AnnotationRepositoryConfigurationSource {
+        private static final String MONGO_TEMPLATE_REF = "mongoTemplateRef";    // $NON-NLS-1$
+        private final String source;
+        private final Set<BeanDefinition> candidates;
+        private final AnnotationAttributes attributes;
+
+        public SourceRepositoryConfigurationSource(@Nonnull ResourceLoader resourceLoader, @Nonnull Environment environment, @Nonnull BeanDefinitionRegistry registry, @Nonnull BeanNameGenerator generator,
+            @Nonnull String source, @Nonnull String templateName, @Nonnull Set<BeanDefinition> candidates) {
+            super(AnnotationMetadata.introspect(RepositoryDefaults.class), EnableMongoRepositories.class, resourceLoader, environment, registry, generator);
+            this.source = source;
+            this.candidates = candidates;
+            this.attributes = new AnnotationAttributes(super.getAttributes());
+            this.attributes.put(MONGO_TEMPLATE_REF, templateName);
+        }
+
+        @Override
+        public Object getSource() {
+            return null;
+        }
+
+        /**
+         * Returns the concrete packages of the candidates, which limits the detection of the custom implementations
+         */
+        @Override
+        @Nonnull
+        public Streamable<String> getBasePackages() {
+            Set<String> packages = new LinkedHashSet<>();
+            candidates.stream().map(BeanDefinition::getBeanClassName).filter(StringUtils::hasText).map(ClassUtils::getPackageName).forEach(packages::add);
+            return Streamable.of(packages);
+        }
+
+        @Override
+        @Nonnull
+        public Streamable<BeanDefinition> getCandidates(@Nonnull ResourceLoader loader) {
+            return Streamable.of(candidates);
+        }
+
+        @Override
+        @Nonnull
+        public AnnotationAttributes getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        @Nonnull
+        public Optional<String> getAttribute(@Nonnull String name) {
+            return getAttribute(name, String.class);
+        }
+
+        @Override
+        @Nonnull
+        public <T> Optional<T> getAttribute(@Nonnull String name, @Nonnull Class<T> type) {
+            Object value = attributes.get(name);
+            return (type.isInstance(value) && (!(value instanceof String text) || StringUtils.hasText(text))) ? Optional.of(type.cast(value)) : Optional.empty();
+        }
+
+        @Override
+        @Nonnull
+        public String getResourceDescription() {
+            return MongoSourcesAutoConfiguration.PROPERTIES_PREFIX + "." + source;    // $NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Holder of the default attributes of {@link EnableMongoRepositories}, which is never registered as a configuration
+     */
+    @EnableMongoRepositories
+    private static class RepositoryDefaults {
+    }
+
+
+    /**
+     * Candidate provider for the top level repository interfaces
+     *
+     * @see org.springframework.data.repository.config.RepositoryComponentProvider
+     */
+    private static class RepositoryInterfaceProvider extends ClassPathScanningCandidateComponentProvider {
+        public RepositoryInterfaceProvider(@Nonnull Environment environment) {
+            super(false, environment);
+            super.addIncludeFilter(new AssignableTypeFilter(Repository.class));
+            super.addIncludeFilter(new AnnotationTypeFilter(RepositoryDefinition.class, true, true));
+            super.addExcludeFilter(new AnnotationTypeFilter(NoRepositoryBean.class));
+        }
+
+        @Override
+        protected boolean isCandidateComponent(@Nonnull AnnotatedBeanDefinition definition) {
+            return definition.getMetadata().isInterface() && definition.getMetadata().isIndependent();
+        }
+    }
+}
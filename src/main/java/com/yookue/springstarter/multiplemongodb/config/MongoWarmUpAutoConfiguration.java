@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.config;
+
+
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.BooleanUtils;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.lifecycle.MongoSourcesWarmer;
+import com.yookue.springstarter.multiplemongodb.property.MongoWarmUpProperties;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
+
+
+/**
+ * Configuration for warming up the clients of all the data sources
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.multiplemongodb.lifecycle.MongoSourcesWarmer
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = MongoWarmUpAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true")
+@ConditionalOnClass(value = MongoClient.class)
+@AutoConfigureAfter(value = {PrimaryMongoAutoConfiguration.class, SecondaryMongoAutoConfiguration.class, TertiaryMongoAutoConfiguration.class, MongoSourcesAutoConfiguration.class})
+public class MongoWarmUpAutoConfiguration {
+    public static final String PROPERTIES_PREFIX = "spring.multiple-mongo.warm-up";    // $NON-NLS-1$
+    public static final String WARM_UP_PROPERTIES = "mongoWarmUpProperties";    // $NON-NLS-1$
+    public static final String SOURCES_WARMER = "mongoSourcesWarmer";    // $NON-NLS-1$
+
+    @Bean(name = WARM_UP_PROPERTIES)
+    @ConditionalOnMissingBean(name = WARM_UP_PROPERTIES)
+    @ConfigurationProperties(prefix = PROPERTIES_PREFIX)
+    public MongoWarmUpProperties warmUpProperties() {
+        return new MongoWarmUpProperties();
+    }
+
+    @Bean(name = SOURCES_WARMER)
+    @ConditionalOnBean(name = WARM_UP_PROPERTIES)
+    @ConditionalOnMissingBean(name = SOURCES_WARMER)
+    public MongoSourcesWarmer sourcesWarmer(@Qualifier(value = WARM_UP_PROPERTIES) @Nonnull MongoWarmUpProperties properties, @Nonnull ListableBeanFactory beanFactory) {
+        return new MongoSourcesWarmer(MongoSourceClient.collect(beanFactory), source -> {
+            String settingsName = MongoSourcesRegistrar.beanName(source, MongoSourcesRegistrar.CLIENT_SETTINGS);
+            return beanFactory.containsBean(settingsName) ? beanFactory.getBean(settingsName, MongoClientSettings.class).getConnectionPoolSettings().getMinSize() : 0;
+        }, properties.getTimeout(), BooleanUtils.isTrue(properties.getFailOnError()));
+    }
+}
@@ -17,8 +17,8 @@
 package com.yookue.springstarter.multiplemongodb.config;
 
 
-import java.util.Collections;
 import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
@@ -31,6 +31,7 @@ import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataConfig
 import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoConfigurationUtils;
 import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
@@ -46,6 +47,15 @@ import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.reactivestreams.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.batch.ReactiveMongoBatchWriter;
+import com.yookue.springstarter.multiplemongodb.bulkhead.MongoSourceBulkhead;
+import com.yookue.springstarter.multiplemongodb.cache.MongoQueryCache;
+import com.yookue.springstarter.multiplemongodb.changestream.ReactiveMongoChangeStreamHub;
+import com.yookue.springstarter.multiplemongodb.customizer.MongoSourceSettingsCustomizer;
+import com.yookue.springstarter.multiplemongodb.gridfs.ReactiveMongoGridFsChannelTemplate;
+import com.yookue.springstarter.multiplemongodb.raw.ReactiveMongoRawTemplate;
+import com.yookue.springstarter.multiplemongodb.stream.ReactiveMongoStreamTemplate;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
 import reactor.core.publisher.Flux;
 
 
@@ -61,18 +71,36 @@ import reactor.core.publisher.Flux;
 @AutoConfigureAfter(value = PrimaryMongoAutoConfiguration.class)
 @AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
 public class PrimaryMongoReactiveConfiguration {
+    public static final String BULKHEAD = "primaryReactiveMongoBulkhead";    // $NON-NLS-1$
     public static final String CLIENT_FACTORY = "primaryReactiveMongoClientFactory";    // $NON-NLS-1$
     public static final String MONGO_CLIENT = "primaryReactiveMongoClient";    // $NON-NLS-1$
     public static final String DATABASE_FACTORY = "primaryReactiveMongoDatabaseFactory";    // $NON-NLS-1$
     public static final String MONGO_TEMPLATE = "primaryReactiveMongoTemplate";    // $NON-NLS-1$
     public static final String GRID_FS_TEMPLATE = "primaryReactiveMongoGridFsTemplate";    // $NON-NLS-1$
+    public static final String GRID_FS_CHANNEL_TEMPLATE = "primaryReactiveMongoGridFsChannelTemplate";    // $NON-NLS-1$
+    public static final String BATCH_WRITER = "primaryReactiveMongoBatchWriter";    // $NON-NLS-1$
+    public static final String STREAM_TEMPLATE = "primaryReactiveMongoStreamTemplate";    // $NON-NLS-1$
+    public static final String RAW_TEMPLATE = "primaryReactiveMongoRawTemplate";    // $NON-NLS-1$
+    public static final String CHANGE_STREAM_HUB = "primaryReactiveMongoChangeStreamHub";    // $NON-NLS-1$
+
+    @Primary
+    @Bean(name = BULKHEAD)
+    @ConditionalOnProperty(prefix = PrimaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "bulkhead.enabled", havingValue = "true")
+    @ConditionalOnBean(name = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES)
+    @ConditionalOnMissingBean(name = BULKHEAD)
+    public MongoSourceBulkhead mongoBulkhead(@Qualifier(value = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties) {
+        return MongoConfigurationUtils.mongoSourceBulkhead(PrimaryMongoAutoConfiguration.SOURCE_NAME, MongoSourceClient.REACTIVE, properties);
+    }
 
     @Primary
     @Bean(name = CLIENT_FACTORY)
-    @ConditionalOnBean(name = PrimaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER)
+    @ConditionalOnBean(name = {PrimaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER, PrimaryMongoAutoConfiguration.MONGO_PROPERTIES})
     @ConditionalOnMissingBean(name = CLIENT_FACTORY)
-    public ReactiveMongoClientFactory mongoClientFactory(@Qualifier(value = PrimaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER) @Nonnull MongoClientSettingsBuilderCustomizer customizer) {
-        return new ReactiveMongoClientFactory(Collections.singletonList(customizer));
+    public ReactiveMongoClientFactory mongoClientFactory(@Qualifier(value = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = PrimaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER) @Nonnull MongoClientSettingsBuilderCustomizer customizer,
+        @Qualifier(value = BULKHEAD) @Nonnull ObjectProvider<MongoSourceBulkhead> bulkhead,
+        @Nonnull ObjectProvider<MongoSourceSettingsCustomizer> customizers) {
+        return MongoConfigurationUtils.reactiveMongoClientFactory(PrimaryMongoAutoConfiguration.SOURCE_NAME, properties, customizer, bulkhead.getIfAvailable(), customizers);
     }
 
     @Primary
@@ -89,8 +117,9 @@ public class PrimaryMongoReactiveConfiguration {
     @ConditionalOnBean(name = {MONGO_CLIENT, PrimaryMongoAutoConfiguration.MONGO_PROPERTIES})
     @ConditionalOnMissingBean(name = DATABASE_FACTORY)
     public SimpleReactiveMongoDatabaseFactory mongoDatabaseFactory(@Qualifier(value = MONGO_CLIENT) @Nonnull MongoClient client,
-        @Qualifier(value = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties) {
-        return MongoReactiveDataConfigurationUtils.reactiveMongoDatabaseFactory(client, properties);
+        @Qualifier(value = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = BULKHEAD) @Nonnull ObjectProvider<MongoSourceBulkhead> bulkhead) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoDatabaseFactory(client, properties, null, bulkhead.getIfAvailable());
     }
 
     @Primary
@@ -99,8 +128,9 @@ public class PrimaryMongoReactiveConfiguration {
     @ConditionalOnMissingBean(name = MONGO_TEMPLATE)
     public ReactiveMongoTemplate mongoTemplate(@Qualifier(value = PrimaryMongoAutoConfiguration.CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details,
         @Qualifier(value = DATABASE_FACTORY) @Nonnull ReactiveMongoDatabaseFactory factory,
-        @Qualifier(value = PrimaryMongoAutoConfiguration.MAPPING_CONVERTER) @Nonnull MappingMongoConverter converter) {
-        return MongoReactiveDataConfigurationUtils.reactiveMongoTemplate(details, factory, converter);
+        @Qualifier(value = PrimaryMongoAutoConfiguration.MAPPING_CONVERTER) @Nonnull MappingMongoConverter converter,
+        @Qualifier(value = PrimaryMongoAutoConfiguration.QUERY_CACHE) @Nonnull ObjectProvider<MongoQueryCache> queryCache) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoTemplate(details, factory, converter, queryCache.getIfAvailable());
     }
 
     @Primary
@@ -113,4 +143,57 @@ public class PrimaryMongoReactiveConfiguration {
         @Qualifier(value = MongoReactivePreConfiguration.DATA_BUFFER_FACTORY) @Nonnull DataBufferFactory bufferFactory) {
         return MongoReactiveDataConfigurationUtils.reactiveGridFsTemplate(details, databaseFactory, converter, bufferFactory);
     }
+
+    @Primary
+    @Bean(name = GRID_FS_CHANNEL_TEMPLATE)
+    @ConditionalOnProperty(prefix = PrimaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "grid-fs-channel.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {DATABASE_FACTORY, MongoReactivePreConfiguration.DATA_BUFFER_FACTORY, PrimaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = GRID_FS_CHANNEL_TEMPLATE)
+    public ReactiveMongoGridFsChannelTemplate mongoGridFsChannelTemplate(@Qualifier(value = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = PrimaryMongoAutoConfiguration.CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details,
+        @Qualifier(value = DATABASE_FACTORY) @Nonnull ReactiveMongoDatabaseFactory databaseFactory,
+        @Qualifier(value = MongoReactivePreConfiguration.DATA_BUFFER_FACTORY) @Nonnull DataBufferFactory bufferFactory) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoGridFsChannelTemplate(properties, details, databaseFactory, bufferFactory);
+    }
+
+    @Primary
+    @Bean(name = BATCH_WRITER)
+    @ConditionalOnProperty(prefix = PrimaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "batch.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, PrimaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = BATCH_WRITER)
+    public ReactiveMongoBatchWriter mongoBatchWriter(@Qualifier(value = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoBatchWriter(properties, template);
+    }
+
+    @Primary
+    @Bean(name = STREAM_TEMPLATE)
+    @ConditionalOnProperty(prefix = PrimaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "streaming.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, PrimaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = STREAM_TEMPLATE)
+    public ReactiveMongoStreamTemplate mongoStreamTemplate(@Qualifier(value = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoStreamTemplate(properties, template);
+    }
+
+    @Primary
+    @Bean(name = RAW_TEMPLATE)
+    @ConditionalOnProperty(prefix = PrimaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "raw.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, MongoReactivePreConfiguration.DATA_BUFFER_FACTORY, PrimaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = RAW_TEMPLATE)
+    public ReactiveMongoRawTemplate mongoRawTemplate(@Qualifier(value = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template,
+        @Qualifier(value = MongoReactivePreConfiguration.DATA_BUFFER_FACTORY) @Nonnull DataBufferFactory bufferFactory) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoRawTemplate(properties, template, bufferFactory);
+    }
+
+    @Primary
+    @Bean(name = CHANGE_STREAM_HUB, destroyMethod = "close")
+    @ConditionalOnProperty(prefix = PrimaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "change-stream.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, PrimaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = CHANGE_STREAM_HUB)
+    public ReactiveMongoChangeStreamHub mongoChangeStreamHub(@Qualifier(value = PrimaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoChangeStreamHub(PrimaryMongoAutoConfiguration.SOURCE_NAME, properties, template);
+    }
 }
@@ -17,8 +17,8 @@
 package com.yookue.springstarter.multiplemongodb.config;
 
 
-import java.util.Collections;
 import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
@@ -31,6 +31,7 @@ import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataConfig
 import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoConfigurationUtils;
 import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
@@ -45,6 +46,15 @@ import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.reactivestreams.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.batch.ReactiveMongoBatchWriter;
+import com.yookue.springstarter.multiplemongodb.bulkhead.MongoSourceBulkhead;
+import com.yookue.springstarter.multiplemongodb.cache.MongoQueryCache;
+import com.yookue.springstarter.multiplemongodb.changestream.ReactiveMongoChangeStreamHub;
+import com.yookue.springstarter.multiplemongodb.customizer.MongoSourceSettingsCustomizer;
+import com.yookue.springstarter.multiplemongodb.gridfs.ReactiveMongoGridFsChannelTemplate;
+import com.yookue.springstarter.multiplemongodb.raw.ReactiveMongoRawTemplate;
+import com.yookue.springstarter.multiplemongodb.stream.ReactiveMongoStreamTemplate;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
 import reactor.core.publisher.Flux;
 
 
@@ -59,17 +69,34 @@ import reactor.core.publisher.Flux;
 @AutoConfigureAfter(value = SecondaryMongoAutoConfiguration.class)
 @AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
 public class SecondaryMongoReactiveConfiguration {
+    public static final String BULKHEAD = "secondaryReactiveMongoBulkhead";    // $NON-NLS-1$
     public static final String CLIENT_FACTORY = "secondaryReactiveMongoClientFactory";    // $NON-NLS-1$
     public static final String MONGO_CLIENT = "secondaryReactiveMongoClient";    // $NON-NLS-1$
     public static final String DATABASE_FACTORY = "secondaryReactiveMongoDatabaseFactory";    // $NON-NLS-1$
     public static final String MONGO_TEMPLATE = "secondaryReactiveMongoTemplate";    // $NON-NLS-1$
     public static final String GRID_FS_TEMPLATE = "secondaryReactiveMongoGridFsTemplate";    // $NON-NLS-1$
+    public static final String GRID_FS_CHANNEL_TEMPLATE = "secondaryReactiveMongoGridFsChannelTemplate";    // $NON-NLS-1$
+    public static final String BATCH_WRITER = "secondaryReactiveMongoBatchWriter";    // $NON-NLS-1$
+    public static final String STREAM_TEMPLATE = "secondaryReactiveMongoStreamTemplate";    // $NON-NLS-1$
+    public static final String RAW_TEMPLATE = "secondaryReactiveMongoRawTemplate";    // $NON-NLS-1$
+    public static final String CHANGE_STREAM_HUB = "secondaryReactiveMongoChangeStreamHub";    // $NON-NLS-1$
+
+    @Bean(name = BULKHEAD)
+    @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "bulkhead.enabled", havingValue = "true")
+    @ConditionalOnBean(name = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES)
+    @ConditionalOnMissingBean(name = BULKHEAD)
+    public MongoSourceBulkhead mongoBulkhead(@Qualifier(value = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties) {
+        return MongoConfigurationUtils.mongoSourceBulkhead(SecondaryMongoAutoConfiguration.SOURCE_NAME, MongoSourceClient.REACTIVE, properties);
+    }
 
     @Bean(name = CLIENT_FACTORY)
-    @ConditionalOnBean(name = SecondaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER)
+    @ConditionalOnBean(name = {SecondaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER, SecondaryMongoAutoConfiguration.MONGO_PROPERTIES})
     @ConditionalOnMissingBean(name = CLIENT_FACTORY)
-    public ReactiveMongoClientFactory mongoClientFactory(@Qualifier(value = SecondaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER) @Nonnull MongoClientSettingsBuilderCustomizer customizer) {
-        return new ReactiveMongoClientFactory(Collections.singletonList(customizer));
+    public ReactiveMongoClientFactory mongoClientFactory(@Qualifier(value = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = SecondaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER) @Nonnull MongoClientSettingsBuilderCustomizer customizer,
+        @Qualifier(value = BULKHEAD) @Nonnull ObjectProvider<MongoSourceBulkhead> bulkhead,
+        @Nonnull ObjectProvider<MongoSourceSettingsCustomizer> customizers) {
+        return MongoConfigurationUtils.reactiveMongoClientFactory(SecondaryMongoAutoConfiguration.SOURCE_NAME, properties, customizer, bulkhead.getIfAvailable(), customizers);
     }
 
     @Bean(name = MONGO_CLIENT, destroyMethod = "close")
@@ -84,8 +111,9 @@ public class SecondaryMongoReactiveConfiguration {
     @ConditionalOnBean(name = {MONGO_CLIENT, SecondaryMongoAutoConfiguration.MONGO_PROPERTIES})
     @ConditionalOnMissingBean(name = DATABASE_FACTORY)
     public SimpleReactiveMongoDatabaseFactory mongoDatabaseFactory(@Qualifier(value = MONGO_CLIENT) @Nonnull MongoClient mongoClient,
-        @Qualifier(value = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties) {
-        return MongoReactiveDataConfigurationUtils.reactiveMongoDatabaseFactory(mongoClient, properties);
+        @Qualifier(value = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = BULKHEAD) @Nonnull ObjectProvider<MongoSourceBulkhead> bulkhead) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoDatabaseFactory(mongoClient, properties, null, bulkhead.getIfAvailable());
     }
 
     @Bean(name = MONGO_TEMPLATE)
@@ -93,8 +121,9 @@ public class SecondaryMongoReactiveConfiguration {
     @ConditionalOnMissingBean(name = MONGO_TEMPLATE)
     public ReactiveMongoTemplate mongoTemplate(@Qualifier(value = SecondaryMongoAutoConfiguration.CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details,
         @Qualifier(value = DATABASE_FACTORY) @Nonnull ReactiveMongoDatabaseFactory factory,
-        @Qualifier(value = SecondaryMongoAutoConfiguration.MAPPING_CONVERTER) @Nonnull MappingMongoConverter converter) {
-        return MongoReactiveDataConfigurationUtils.reactiveMongoTemplate(details, factory, converter);
+        @Qualifier(value = SecondaryMongoAutoConfiguration.MAPPING_CONVERTER) @Nonnull MappingMongoConverter converter,
+        @Qualifier(value = SecondaryMongoAutoConfiguration.QUERY_CACHE) @Nonnull ObjectProvider<MongoQueryCache> queryCache) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoTemplate(details, factory, converter, queryCache.getIfAvailable());
     }
 
     @Bean(name = GRID_FS_TEMPLATE)
@@ -106,4 +135,52 @@ public class SecondaryMongoReactiveConfiguration {
         @Qualifier(value = MongoReactivePreConfiguration.DATA_BUFFER_FACTORY) @Nonnull DataBufferFactory bufferFactory) {
         return MongoReactiveDataConfigurationUtils.reactiveGridFsTemplate(details, databaseFactory, converter, bufferFactory);
     }
+
+    @Bean(name = GRID_FS_CHANNEL_TEMPLATE)
+    @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "grid-fs-channel.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {DATABASE_FACTORY, MongoReactivePreConfiguration.DATA_BUFFER_FACTORY, SecondaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = GRID_FS_CHANNEL_TEMPLATE)
+    public ReactiveMongoGridFsChannelTemplate mongoGridFsChannelTemplate(@Qualifier(value = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = SecondaryMongoAutoConfiguration.CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details,
+        @Qualifier(value = DATABASE_FACTORY) @Nonnull ReactiveMongoDatabaseFactory databaseFactory,
+        @Qualifier(value = MongoReactivePreConfiguration.DATA_BUFFER_FACTORY) @Nonnull DataBufferFactory bufferFactory) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoGridFsChannelTemplate(properties, details, databaseFactory, bufferFactory);
+    }
+
+    @Bean(name = BATCH_WRITER)
+    @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "batch.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, SecondaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = BATCH_WRITER)
+    public ReactiveMongoBatchWriter mongoBatchWriter(@Qualifier(value = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoBatchWriter(properties, template);
+    }
+
+    @Bean(name = STREAM_TEMPLATE)
+    @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "streaming.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, SecondaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = STREAM_TEMPLATE)
+    public ReactiveMongoStreamTemplate mongoStreamTemplate(@Qualifier(value = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoStreamTemplate(properties, template);
+    }
+
+    @Bean(name = RAW_TEMPLATE)
+    @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "raw.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, MongoReactivePreConfiguration.DATA_BUFFER_FACTORY, SecondaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = RAW_TEMPLATE)
+    public ReactiveMongoRawTemplate mongoRawTemplate(@Qualifier(value = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template,
+        @Qualifier(value = MongoReactivePreConfiguration.DATA_BUFFER_FACTORY) @Nonnull DataBufferFactory bufferFactory) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoRawTemplate(properties, template, bufferFactory);
+    }
+
+    @Bean(name = CHANGE_STREAM_HUB, destroyMethod = "close")
+    @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "change-stream.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, SecondaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = CHANGE_STREAM_HUB)
+    public ReactiveMongoChangeStreamHub mongoChangeStreamHub(@Qualifier(value = SecondaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoChangeStreamHub(SecondaryMongoAutoConfiguration.SOURCE_NAME, properties, template);
+    }
 }
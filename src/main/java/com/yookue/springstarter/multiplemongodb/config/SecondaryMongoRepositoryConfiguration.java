@@ -32,6 +32,7 @@ import org.springframework.stereotype.Repository;
 import com.mongodb.client.MongoClient;
 import com.yookue.commonplexus.springcondition.annotation.ConditionalOnAllProperties;
 import com.yookue.commonplexus.springcondition.annotation.ConditionalOnAnnotation;
+import com.yookue.commonplexus.springcondition.annotation.ConditionalOnAnyProperties;
 
 
 /**
@@ -49,7 +50,26 @@ import com.yookue.commonplexus.springcondition.annotation.ConditionalOnAnnotatio
 @ConditionalOnAnnotation(includeFilter = Repository.class, basePackage = SecondaryMongoRepositoryConfiguration.REPOSITORY_PACKAGE)
 @AutoConfigureAfter(value = SecondaryMongoAutoConfiguration.class)
 @AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
-@EnableMongoRepositories(basePackages = SecondaryMongoRepositoryConfiguration.REPOSITORY_PACKAGE, mongoTemplateRef = SecondaryMongoAutoConfiguration.MONGO_TEMPLATE)
 public class SecondaryMongoRepositoryConfiguration {
     public static final String REPOSITORY_PACKAGE = "**.repository.secondary.mongo";    // $NON-NLS-1$
+
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnAnyProperties(value = {
+        @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "read.enabled", havingValue = "false", matchIfMissing = true),
+        @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "read.repository-enabled", havingValue = "false", matchIfMissing = true)
+    })
+    @EnableMongoRepositories(basePackages = REPOSITORY_PACKAGE, mongoTemplateRef = SecondaryMongoAutoConfiguration.MONGO_TEMPLATE)
+    static class DefaultTemplateRepositoryConfiguration {
+    }
+
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnAllProperties(value = {
+        @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "read.enabled", havingValue = "true"),
+        @ConditionalOnProperty(prefix = SecondaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "read.repository-enabled", havingValue = "true")
+    })
+    @EnableMongoRepositories(basePackages = REPOSITORY_PACKAGE, mongoTemplateRef = SecondaryMongoAutoConfiguration.READ_TEMPLATE)
+    static class ReadTemplateRepositoryConfiguration {
+    }
 }
@@ -17,9 +17,9 @@
 package com.yookue.springstarter.multiplemongodb.config;
 
 
-import java.util.Collections;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -40,7 +40,6 @@ import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.ssl.SslBundles;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.MongoDatabaseFactory;
@@ -57,7 +56,16 @@ import com.mongodb.MongoClientSettings;
 import com.mongodb.TransactionOptions;
 import com.mongodb.client.MongoClient;
 import com.yookue.commonplexus.springcondition.annotation.ConditionalOnAnyProperties;
+import com.yookue.springstarter.multiplemongodb.async.MongoAsyncTemplate;
+import com.yookue.springstarter.multiplemongodb.batch.MongoBatchWriter;
+import com.yookue.springstarter.multiplemongodb.bulkhead.MongoSourceBulkhead;
+import com.yookue.springstarter.multiplemongodb.cache.MongoQueryCache;
+import com.yookue.springstarter.multiplemongodb.customizer.MongoSourceSettingsCustomizer;
+import com.yookue.springstarter.multiplemongodb.gridfs.MongoGridFsChannelTemplate;
 import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import com.yookue.springstarter.multiplemongodb.raw.MongoRawTemplate;
+import com.yookue.springstarter.multiplemongodb.stream.MongoStreamTemplate;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
 
 
 /**
@@ -75,11 +83,13 @@ import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties
 @AutoConfigureAfter(value = SecondaryMongoAutoConfiguration.class)
 @AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
 public class TertiaryMongoAutoConfiguration {
+    public static final String SOURCE_NAME = "tertiary";    // $NON-NLS-1$
     public static final String PROPERTIES_PREFIX = "spring.multiple-mongo.tertiary";    // $NON-NLS-1$
     public static final String MONGO_PROPERTIES = "tertiaryMongoProperties";    // $NON-NLS-1$
     public static final String CONNECTION_DETAILS = "tertiaryMongoConnectionDetails";    // $NON-NLS-1$
     public static final String SSL_BUNDLES = "tertiaryMongoSslBundles";    // $NON-NLS-1$
     public static final String SETTINGS_BUILDER_CUSTOMIZER = "tertiaryMongoClientSettingsBuilderCustomizer";    // $NON-NLS-1$
+    public static final String BULKHEAD = "tertiaryMongoBulkhead";    // $NON-NLS-1$
     public static final String CLIENT_FACTORY = "tertiaryMongoClientFactory";    // $NON-NLS-1$
     public static final String CLIENT_SETTINGS = "tertiaryMongoClientSettings";    // $NON-NLS-1$
     public static final String MONGO_CLIENT = "tertiaryMongoClient";    // $NON-NLS-1$
@@ -91,7 +101,14 @@ public class TertiaryMongoAutoConfiguration {
     public static final String MAPPING_CONTEXT = "tertiaryMongoMappingContext";    // $NON-NLS-1$
     public static final String MAPPING_CONVERTER = "tertiaryMongoMappingConverter";    // $NON-NLS-1$
     public static final String MONGO_TEMPLATE = "tertiaryMongoTemplate";    // $NON-NLS-1$
+    public static final String READ_TEMPLATE = "tertiaryMongoReadTemplate";    // $NON-NLS-1$
     public static final String GRID_FS_TEMPLATE = "tertiaryMongoGridFsTemplate";    // $NON-NLS-1$
+    public static final String GRID_FS_CHANNEL_TEMPLATE = "tertiaryMongoGridFsChannelTemplate";    // $NON-NLS-1$
+    public static final String BATCH_WRITER = "tertiaryMongoBatchWriter";    // $NON-NLS-1$
+    public static final String ASYNC_TEMPLATE = "tertiaryMongoAsyncTemplate";    // $NON-NLS-1$
+    public static final String STREAM_TEMPLATE = "tertiaryMongoStreamTemplate";    // $NON-NLS-1$
+    public static final String RAW_TEMPLATE = "tertiaryMongoRawTemplate";    // $NON-NLS-1$
+    public static final String QUERY_CACHE = "tertiaryMongoQueryCache";    // $NON-NLS-1$
 
     @Bean(name = MONGO_PROPERTIES)
     @ConditionalOnMissingBean(name = MONGO_PROPERTIES)
@@ -116,11 +133,22 @@ public class TertiaryMongoAutoConfiguration {
         return MongoConfigurationUtils.mongoClientSettingsCustomizer(properties, details, bundles);
     }
 
+    @Bean(name = BULKHEAD)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "bulkhead.enabled", havingValue = "true")
+    @ConditionalOnBean(name = MONGO_PROPERTIES)
+    @ConditionalOnMissingBean(name = BULKHEAD)
+    public MongoSourceBulkhead mongoBulkhead(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties) {
+        return MongoConfigurationUtils.mongoSourceBulkhead(SOURCE_NAME, MongoSourceClient.CLASSIC, properties);
+    }
+
     @Bean(name = CLIENT_FACTORY)
-    @ConditionalOnBean(name = SETTINGS_BUILDER_CUSTOMIZER)
+    @ConditionalOnBean(name = {SETTINGS_BUILDER_CUSTOMIZER, MONGO_PROPERTIES})
     @ConditionalOnMissingBean(name = CLIENT_FACTORY)
-    public MongoClientFactory mongoClientFactory(@Qualifier(value = SETTINGS_BUILDER_CUSTOMIZER) @Nonnull MongoClientSettingsBuilderCustomizer customizer) {
-        return new MongoClientFactory(Collections.singletonList(customizer));
+    public MongoClientFactory mongoClientFactory(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = SETTINGS_BUILDER_CUSTOMIZER) @Nonnull MongoClientSettingsBuilderCustomizer customizer,
+        @Qualifier(value = BULKHEAD) @Nonnull ObjectProvider<MongoSourceBulkhead> bulkhead,
+        @Nonnull ObjectProvider<MongoSourceSettingsCustomizer> customizers) {
+        return MongoConfigurationUtils.mongoClientFactory(SOURCE_NAME, properties, customizer, bulkhead.getIfAvailable(), customizers);
     }
 
     @Bean(name = CLIENT_SETTINGS)
@@ -143,8 +171,9 @@ public class TertiaryMongoAutoConfiguration {
     @ConditionalOnMissingBean(name = DATABASE_FACTORY)
     public MongoDatabaseFactorySupport<?> mongoDatabaseFactory(@Qualifier(value = MONGO_CLIENT) @Nonnull MongoClient client,
         @Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
-        @Qualifier(value = CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details) {
-        return MongoDataConfigurationUtils.mongoDatabaseFactory(client, properties, details);
+        @Qualifier(value = CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details,
+        @Qualifier(value = BULKHEAD) @Nonnull ObjectProvider<MongoSourceBulkhead> bulkhead) {
+        return MongoDataConfigurationUtils.mongoDatabaseFactory(client, properties, details, bulkhead.getIfAvailable());
     }
 
     @Bean(name = TRANSACTION_MANAGER)
@@ -156,15 +185,18 @@ public class TertiaryMongoAutoConfiguration {
     }
 
     @Bean(name = CUSTOM_CONVERSIONS)
+    @ConditionalOnBean(name = MongoClassicPreConfiguration.CUSTOM_CONVERSIONS)
     @ConditionalOnMissingBean(name = CUSTOM_CONVERSIONS)
-    public MongoCustomConversions mongoCustomConversions() {
-        return MongoDataConfigurationUtils.mongoCustomConversions();
+    public MongoCustomConversions mongoCustomConversions(@Qualifier(value = MongoClassicPreConfiguration.CUSTOM_CONVERSIONS) @Nonnull MongoCustomConversions conversions) {
+        return conversions;
     }
 
     @Bean(name = MANAGED_TYPES)
+    @ConditionalOnBean(name = {MongoClassicPreConfiguration.MANAGED_TYPES, MONGO_PROPERTIES})
     @ConditionalOnMissingBean(name = MANAGED_TYPES)
-    public MongoManagedTypes mongoManagedTypes(@Nonnull ApplicationContext context) throws ClassNotFoundException {
-        return MongoDataConfigurationUtils.mongoManagedTypes(context);
+    public MongoManagedTypes mongoManagedTypes(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MongoClassicPreConfiguration.MANAGED_TYPES) @Nonnull MongoManagedTypes types) {
+        return MongoDataConfigurationUtils.mongoManagedTypes(properties, types);
     }
 
     @Bean(name = MAPPING_CONTEXT)
@@ -179,18 +211,39 @@ public class TertiaryMongoAutoConfiguration {
     @Bean(name = MAPPING_CONVERTER)
     @ConditionalOnBean(name = {DATABASE_FACTORY, MAPPING_CONTEXT, CUSTOM_CONVERSIONS, MONGO_PROPERTIES})
     @ConditionalOnMissingBean(name = MAPPING_CONVERTER)
-    public MappingMongoConverter mongoMappingConverter(@Qualifier(value = DATABASE_FACTORY) @Nonnull MongoDatabaseFactory factory,
+    public MappingMongoConverter mongoMappingConverter(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = DATABASE_FACTORY) @Nonnull MongoDatabaseFactory factory,
         @Qualifier(value = MAPPING_CONTEXT) @Nonnull MongoMappingContext context,
         @Qualifier(value = CUSTOM_CONVERSIONS) @Nonnull MongoCustomConversions conversions) {
-        return MongoDataConfigurationUtils.mappingMongoConverter(factory, context, conversions);
+        return MongoDataConfigurationUtils.mappingMongoConverter(properties, factory, context, conversions);
+    }
+
+    @Bean(name = QUERY_CACHE)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "query-cache.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {DATABASE_FACTORY, MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = QUERY_CACHE)
+    public MongoQueryCache mongoQueryCache(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = DATABASE_FACTORY) @Nonnull MongoDatabaseFactory factory) {
+        return MongoDataConfigurationUtils.mongoQueryCache(SOURCE_NAME, properties, factory);
     }
 
     @Bean(name = MONGO_TEMPLATE)
     @ConditionalOnBean(name = {DATABASE_FACTORY, MAPPING_CONVERTER})
     @ConditionalOnMissingBean(name = MONGO_TEMPLATE)
     public MongoTemplate mongoTemplate(@Qualifier(value = DATABASE_FACTORY) @Nonnull MongoDatabaseFactory factory,
+        @Qualifier(value = MAPPING_CONVERTER) @Nonnull MongoConverter converter,
+        @Qualifier(value = QUERY_CACHE) @Nonnull ObjectProvider<MongoQueryCache> queryCache) {
+        return MongoDataConfigurationUtils.mongoTemplate(factory, converter, queryCache.getIfAvailable());
+    }
+
+    @Bean(name = READ_TEMPLATE)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "read.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {DATABASE_FACTORY, MAPPING_CONVERTER, MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = READ_TEMPLATE)
+    public MongoTemplate mongoReadTemplate(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = DATABASE_FACTORY) @Nonnull MongoDatabaseFactory factory,
         @Qualifier(value = MAPPING_CONVERTER) @Nonnull MongoConverter converter) {
-        return new MongoTemplate(factory, converter);
+        return MongoDataConfigurationUtils.readMongoTemplate(properties, factory, converter);
     }
 
     @Bean(name = GRID_FS_TEMPLATE)
@@ -202,4 +255,51 @@ public class TertiaryMongoAutoConfiguration {
         @Qualifier(value = CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details) {
         return MongoDataConfigurationUtils.gridFsTemplate(properties, factory, template, details);
     }
+
+    @Bean(name = GRID_FS_CHANNEL_TEMPLATE, destroyMethod = "close")
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "grid-fs-channel.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {DATABASE_FACTORY, MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = GRID_FS_CHANNEL_TEMPLATE)
+    public MongoGridFsChannelTemplate mongoGridFsChannelTemplate(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = DATABASE_FACTORY) @Nonnull MongoDatabaseFactory factory,
+        @Qualifier(value = CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details) {
+        return MongoDataConfigurationUtils.mongoGridFsChannelTemplate(properties, factory, details);
+    }
+
+    @Bean(name = BATCH_WRITER, destroyMethod = "close")
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "batch.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = BATCH_WRITER)
+    public MongoBatchWriter mongoBatchWriter(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull MongoTemplate template) {
+        return MongoDataConfigurationUtils.mongoBatchWriter(properties, template);
+    }
+
+    @Bean(name = ASYNC_TEMPLATE, destroyMethod = "close")
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "async.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {CLIENT_SETTINGS, MONGO_TEMPLATE, MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = ASYNC_TEMPLATE)
+    public MongoAsyncTemplate mongoAsyncTemplate(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = CLIENT_SETTINGS) @Nonnull MongoClientSettings settings,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull MongoTemplate template) {
+        return MongoDataConfigurationUtils.mongoAsyncTemplate(SOURCE_NAME, properties, settings, template);
+    }
+
+    @Bean(name = STREAM_TEMPLATE)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "streaming.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = STREAM_TEMPLATE)
+    public MongoStreamTemplate mongoStreamTemplate(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull MongoTemplate template) {
+        return MongoDataConfigurationUtils.mongoStreamTemplate(properties, template);
+    }
+
+    @Bean(name = RAW_TEMPLATE)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "raw.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = RAW_TEMPLATE)
+    public MongoRawTemplate mongoRawTemplate(@Qualifier(value = MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull MongoTemplate template) {
+        return MongoDataConfigurationUtils.mongoRawTemplate(properties, template);
+    }
 }
@@ -17,8 +17,8 @@
 package com.yookue.springstarter.multiplemongodb.config;
 
 
-import java.util.Collections;
 import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
@@ -31,6 +31,7 @@ import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataConfig
 import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoConfigurationUtils;
 import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
@@ -45,6 +46,15 @@ import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.reactivestreams.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.batch.ReactiveMongoBatchWriter;
+import com.yookue.springstarter.multiplemongodb.bulkhead.MongoSourceBulkhead;
+import com.yookue.springstarter.multiplemongodb.cache.MongoQueryCache;
+import com.yookue.springstarter.multiplemongodb.changestream.ReactiveMongoChangeStreamHub;
+import com.yookue.springstarter.multiplemongodb.customizer.MongoSourceSettingsCustomizer;
+import com.yookue.springstarter.multiplemongodb.gridfs.ReactiveMongoGridFsChannelTemplate;
+import com.yookue.springstarter.multiplemongodb.raw.ReactiveMongoRawTemplate;
+import com.yookue.springstarter.multiplemongodb.stream.ReactiveMongoStreamTemplate;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
 import reactor.core.publisher.Flux;
 
 
@@ -59,17 +69,34 @@ import reactor.core.publisher.Flux;
 @AutoConfigureAfter(value = TertiaryMongoAutoConfiguration.class)
 @AutoConfigureBefore(value = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
 public class TertiaryMongoReactiveConfiguration {
+    public static final String BULKHEAD = "tertiaryReactiveMongoBulkhead";    // $NON-NLS-1$
     public static final String CLIENT_FACTORY = "tertiaryReactiveMongoClientFactory";    // $NON-NLS-1$
     public static final String MONGO_CLIENT = "tertiaryReactiveMongoClient";    // $NON-NLS-1$
     public static final String DATABASE_FACTORY = "tertiaryReactiveMongoDatabaseFactory";    // $NON-NLS-1$
     public static final String MONGO_TEMPLATE = "tertiaryReactiveMongoTemplate";    // $NON-NLS-1$
     public static final String GRID_FS_TEMPLATE = "tertiaryReactiveMongoGridFsTemplate";    // $NON-NLS-1$
+    public static final String GRID_FS_CHANNEL_TEMPLATE = "tertiaryReactiveMongoGridFsChannelTemplate";    // $NON-NLS-1$
+    public static final String BATCH_WRITER = "tertiaryReactiveMongoBatchWriter";    // $NON-NLS-1$
+    public static final String STREAM_TEMPLATE = "tertiaryReactiveMongoStreamTemplate";    // $NON-NLS-1$
+    public static final String RAW_TEMPLATE = "tertiaryReactiveMongoRawTemplate";    // $NON-NLS-1$
+    public static final String CHANGE_STREAM_HUB = "tertiaryReactiveMongoChangeStreamHub";    // $NON-NLS-1$
+
+    @Bean(name = BULKHEAD)
+    @ConditionalOnProperty(prefix = TertiaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "bulkhead.enabled", havingValue = "true")
+    @ConditionalOnBean(name = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES)
+    @ConditionalOnMissingBean(name = BULKHEAD)
+    public MongoSourceBulkhead mongoBulkhead(@Qualifier(value = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties) {
+        return MongoConfigurationUtils.mongoSourceBulkhead(TertiaryMongoAutoConfiguration.SOURCE_NAME, MongoSourceClient.REACTIVE, properties);
+    }
 
     @Bean(name = CLIENT_FACTORY)
-    @ConditionalOnBean(name = TertiaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER)
+    @ConditionalOnBean(name = {TertiaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER, TertiaryMongoAutoConfiguration.MONGO_PROPERTIES})
     @ConditionalOnMissingBean(name = CLIENT_FACTORY)
-    public ReactiveMongoClientFactory mongoClientFactory(@Qualifier(value = TertiaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER) @Nonnull MongoClientSettingsBuilderCustomizer customizer) {
-        return new ReactiveMongoClientFactory(Collections.singletonList(customizer));
+    public ReactiveMongoClientFactory mongoClientFactory(@Qualifier(value = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = TertiaryMongoAutoConfiguration.SETTINGS_BUILDER_CUSTOMIZER) @Nonnull MongoClientSettingsBuilderCustomizer customizer,
+        @Qualifier(value = BULKHEAD) @Nonnull ObjectProvider<MongoSourceBulkhead> bulkhead,
+        @Nonnull ObjectProvider<MongoSourceSettingsCustomizer> customizers) {
+        return MongoConfigurationUtils.reactiveMongoClientFactory(TertiaryMongoAutoConfiguration.SOURCE_NAME, properties, customizer, bulkhead.getIfAvailable(), customizers);
     }
 
     @Bean(name = MONGO_CLIENT, destroyMethod = "close")
@@ -84,8 +111,9 @@ public class TertiaryMongoReactiveConfiguration {
     @ConditionalOnBean(name = {MONGO_CLIENT, TertiaryMongoAutoConfiguration.MONGO_PROPERTIES})
     @ConditionalOnMissingBean(name = DATABASE_FACTORY)
     public SimpleReactiveMongoDatabaseFactory mongoDatabaseFactory(@Qualifier(value = MONGO_CLIENT) @Nonnull MongoClient mongoClient,
-        @Qualifier(value = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties) {
-        return MongoReactiveDataConfigurationUtils.reactiveMongoDatabaseFactory(mongoClient, properties);
+        @Qualifier(value = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = BULKHEAD) @Nonnull ObjectProvider<MongoSourceBulkhead> bulkhead) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoDatabaseFactory(mongoClient, properties, null, bulkhead.getIfAvailable());
     }
 
     @Bean(name = MONGO_TEMPLATE)
@@ -93,8 +121,9 @@ public class TertiaryMongoReactiveConfiguration {
     @ConditionalOnMissingBean(name = MONGO_TEMPLATE)
     public ReactiveMongoTemplate mongoTemplate(@Qualifier(value = TertiaryMongoAutoConfiguration.CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details,
         @Qualifier(value = DATABASE_FACTORY) @Nonnull ReactiveMongoDatabaseFactory factory,
-        @Qualifier(value = TertiaryMongoAutoConfiguration.MAPPING_CONVERTER) @Nonnull MappingMongoConverter converter) {
-        return MongoReactiveDataConfigurationUtils.reactiveMongoTemplate(details, factory, converter);
+        @Qualifier(value = TertiaryMongoAutoConfiguration.MAPPING_CONVERTER) @Nonnull MappingMongoConverter converter,
+        @Qualifier(value = TertiaryMongoAutoConfiguration.QUERY_CACHE) @Nonnull ObjectProvider<MongoQueryCache> queryCache) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoTemplate(details, factory, converter, queryCache.getIfAvailable());
     }
 
     @Bean(name = GRID_FS_TEMPLATE)
@@ -106,4 +135,52 @@ public class TertiaryMongoReactiveConfiguration {
         @Nonnull @Qualifier(value = MongoReactivePreConfiguration.DATA_BUFFER_FACTORY) DataBufferFactory bufferFactory) {
         return MongoReactiveDataConfigurationUtils.reactiveGridFsTemplate(details, databaseFactory, converter, bufferFactory);
     }
+
+    @Bean(name = GRID_FS_CHANNEL_TEMPLATE)
+    @ConditionalOnProperty(prefix = TertiaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "grid-fs-channel.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {DATABASE_FACTORY, MongoReactivePreConfiguration.DATA_BUFFER_FACTORY, TertiaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = GRID_FS_CHANNEL_TEMPLATE)
+    public ReactiveMongoGridFsChannelTemplate mongoGridFsChannelTemplate(@Qualifier(value = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = TertiaryMongoAutoConfiguration.CONNECTION_DETAILS) @Nonnull MongoConnectionDetails details,
+        @Qualifier(value = DATABASE_FACTORY) @Nonnull ReactiveMongoDatabaseFactory databaseFactory,
+        @Qualifier(value = MongoReactivePreConfiguration.DATA_BUFFER_FACTORY) @Nonnull DataBufferFactory bufferFactory) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoGridFsChannelTemplate(properties, details, databaseFactory, bufferFactory);
+    }
+
+    @Bean(name = BATCH_WRITER)
+    @ConditionalOnProperty(prefix = TertiaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "batch.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, TertiaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = BATCH_WRITER)
+    public ReactiveMongoBatchWriter mongoBatchWriter(@Qualifier(value = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoBatchWriter(properties, template);
+    }
+
+    @Bean(name = STREAM_TEMPLATE)
+    @ConditionalOnProperty(prefix = TertiaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "streaming.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, TertiaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = STREAM_TEMPLATE)
+    public ReactiveMongoStreamTemplate mongoStreamTemplate(@Qualifier(value = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoStreamTemplate(properties, template);
+    }
+
+    @Bean(name = RAW_TEMPLATE)
+    @ConditionalOnProperty(prefix = TertiaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "raw.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, MongoReactivePreConfiguration.DATA_BUFFER_FACTORY, TertiaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = RAW_TEMPLATE)
+    public ReactiveMongoRawTemplate mongoRawTemplate(@Qualifier(value = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template,
+        @Qualifier(value = MongoReactivePreConfiguration.DATA_BUFFER_FACTORY) @Nonnull DataBufferFactory bufferFactory) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoRawTemplate(properties, template, bufferFactory);
+    }
+
+    @Bean(name = CHANGE_STREAM_HUB, destroyMethod = "close")
+    @ConditionalOnProperty(prefix = TertiaryMongoAutoConfiguration.PROPERTIES_PREFIX, name = "change-stream.enabled", havingValue = "true")
+    @ConditionalOnBean(name = {MONGO_TEMPLATE, TertiaryMongoAutoConfiguration.MONGO_PROPERTIES})
+    @ConditionalOnMissingBean(name = CHANGE_STREAM_HUB)
+    public ReactiveMongoChangeStreamHub mongoChangeStreamHub(@Qualifier(value = TertiaryMongoAutoConfiguration.MONGO_PROPERTIES) @Nonnull MongoProperties properties,
+        @Qualifier(value = MONGO_TEMPLATE) @Nonnull ReactiveMongoTemplate template) {
+        return MongoReactiveDataConfigurationUtils.reactiveMongoChangeStreamHub(TertiaryMongoAutoConfiguration.SOURCE_NAME, properties, template);
+    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.customizer;
+
+
+import jakarta.annotation.Nonnull;
+import com.mongodb.MongoClientSettings;
+
+
+/**
+ * Customizer for the client settings of every data source
+ * <p>
+ * All the beans of this type are applied to both the classic and the reactive clients of each data source, after the standard customizer of the data source
+ *
+ * @author David Hsing
+ * @see org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer
+ */
+@FunctionalInterface
+public interface MongoSourceSettingsCustomizer {
+    /**
+     * Customizes the client settings of the given data source
+     *
+     * @param source the name of the data source, such as {@code primary}
+     * @param builder the builder of the client settings
+     */
+    void customize(@Nonnull String source, @Nonnull MongoClientSettings.Builder builder);
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.diagnostic;
+
+
+import java.time.Duration;
+import java.time.Instant;
+import jakarta.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Captured command that exceeded the slow query threshold
+ *
+ * @author David Hsing
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class MongoSlowQuery {
+    private final String source;
+    private final String database;
+    private final String collection;
+    private final String commandName;
+    private final Instant timestamp;
+    private final Duration elapsed;
+    private final boolean succeeded;
+
+    /**
+     * The command in json, only available for the commands that can be explained
+     */
+    @Nullable
+    private final String command;
+
+    /**
+     * The result of explaining in json, filled asynchronously if the command is sampled
+     */
+    @Setter
+    @Nullable
+    private volatile String explain;
+}
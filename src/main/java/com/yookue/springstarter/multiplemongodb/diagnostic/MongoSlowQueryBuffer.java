@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.diagnostic;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import jakarta.annotation.Nonnull;
+import org.springframework.util.Assert;
+
+
+/**
+ * Bounded lock-free ring buffer of slow queries
+ * <p>
+ * Writers claim a slot by an atomic counter and never wait, the oldest entries are overwritten once the buffer is full
+ *
+ * @author David Hsing
+ */
+public class MongoSlowQueryBuffer {
+    private final AtomicReferenceArray<MongoSlowQuery> entries;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public MongoSlowQueryBuffer(int capacity) {
+        Assert.isTrue(capacity > 0, "Capacity must be greater than zero");
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(@Nonnull MongoSlowQuery entry) {
+        entries.set((int) (sequence.getAndIncrement() % entries.length()), entry);
+    }
+
+    /**
+     * Returns the entries in the buffer, from the newest to the oldest
+     *
+     * @return the entries in the buffer, from the newest to the oldest
+     */
+    @Nonnull
+    public List<MongoSlowQuery> snapshot() {
+        long last = sequence.get();
+        int count = (int) Math.min(last, entries.length());
+        List<MongoSlowQuery> result = new ArrayList<>(count);
+        for (long i = last - 1; i >= last - count; i--) {
+            MongoSlowQuery entry = entries.get((int) (i % entries.length()));
+            if (entry != null) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.diagnostic;
+
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import org.bson.BsonDocument;
+import com.mongodb.event.CommandEvent;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+
+/**
+ * Command listener that captures the slow commands of a data source
+ * <p>
+ * The listener never blocks the command it observes. A sample of the commands that can be explained is decided when they start, only their documents are copied,
+ * the other commands are timed by their finished events only. The slow commands are handed over to {@link MongoSlowQueryRecorder}
+ *
+ * @author David Hsing
+ */
+public class MongoSlowQueryListener implements CommandListener {
+    private static final Set<String> EXPLAINABLE_COMMANDS = Set.of("aggregate", "count", "delete", "distinct", "find", "findAndModify", "update");    // $NON-NLS-1$
+
+    private final String source;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final MongoSlowQueryRecorder recorder;
+    private final Map<Integer, BsonDocument> pendingCommands = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new listener
+     *
+     * @param source the name of the data source
+     * @param thresholdNanos the threshold of the slow commands
+     * @param sampleRate the rate of the commands that can be explained, whose documents are copied
+     * @param recorder the recorder of the slow commands
+     */
+    public MongoSlowQueryListener(@Nonnull String source, long thresholdNanos, double sampleRate, @Nonnull MongoSlowQueryRecorder recorder) {
+        this.source = source;
+        this.thresholdNanos = thresholdNanos;
+        this.sampleRate = sampleRate;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void commandStarted(@Nonnull CommandStartedEvent event) {
+        if (sampleRate > 0.0D && EXPLAINABLE_COMMANDS.contains(event.getCommandName()) && (sampleRate >= 1.0D || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            // The command document may be released after this callback
+            pendingCommands.put(event.getRequestId(), event.getCommand().clone());
+        }
+    }
+
+    @Override
+    public void commandSucceeded(@Nonnull CommandSucceededEvent event) {
+        commandFinished(event, event.getElapsedTime(TimeUnit.NANOSECONDS), true);
+    }
+
+    @Override
+    public void commandFailed(@Nonnull CommandFailedEvent event) {
+        commandFinished(event, event.getElapsedTime(TimeUnit.NANOSECONDS), false);
+    }
+
+    private void commandFinished(@Nonnull CommandEvent event, long elapsedNanos, boolean succeeded) {
+        BsonDocument command = pendingCommands.isEmpty() ? null : pendingCommands.remove(event.getRequestId());
+        if (elapsedNanos >= thresholdNanos) {
+            recorder.record(source, event, command, elapsedNanos, succeeded);
+        }
+    }
+}
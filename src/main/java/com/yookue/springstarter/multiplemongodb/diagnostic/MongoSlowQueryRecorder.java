@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.diagnostic;
+
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import com.mongodb.client.MongoClient;
+import com.mongodb.event.CommandEvent;
+import com.mongodb.event.CommandListener;
+import com.yookue.springstarter.multiplemongodb.property.MongoSlowQueryProperties;
+
+
+/**
+ * Recorder of the slow queries of all the data sources
+ * <p>
+ * Each data source has a bounded ring buffer of the captured commands. A sample of them is explained on a single background thread,
+ * by the classic client of the data source, the explains are dropped when the queue is full
+ *
+ * @author David Hsing
+ */
+public class MongoSlowQueryRecorder implements AutoCloseable {
+    private static final Set<String> SESSION_FIELDS = Set.of("$db", "$clusterTime", "$readPreference", "autocommit", "lsid", "readConcern", "startTransaction", "txnNumber", "writeConcern");    // $NON-NLS-1$
+
+    private final MongoSlowQueryProperties properties;
+    private final Function<String, MongoClient> clientResolver;
+    private final Map<String, MongoSlowQueryBuffer> buffers = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor explainExecutor;
+
+    /**
+     * Constructs a new recorder
+     *
+     * @param properties the properties of slow queries
+     * @param clientResolver the resolver of the classic client by the name of data source, for explaining the captured commands
+     */
+    public MongoSlowQueryRecorder(@Nonnull MongoSlowQueryProperties properties, @Nonnull Function<String, MongoClient> clientResolver) {
+        Assert.notNull(properties.getThreshold(), "Threshold must not be null");
+        this.properties = properties;
+        this.clientResolver = clientResolver;
+        int queueSize = Math.max(properties.getExplainQueueSize() == null ? 0 : properties.getExplainQueueSize(), 1);
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueSize), new CustomizableThreadFactory("mongo-explain-"), new ThreadPoolExecutor.DiscardPolicy());    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    public CommandListener listener(@Nonnull String source) {
+        double sampleRate = (properties.getCommandSampleRate() == null) ? 0.0D : properties.getCommandSampleRate();
+        return new MongoSlowQueryListener(source, properties.getThreshold().toNanos(), sampleRate, this);
+    }
+
+    /**
+     * Records a slow command, this runs on the thread of the command, so it must never block
+     *
+     * @param source the name of the data source
+     * @param event the event of the finished command
+     * @param command the command, or {@code null} if the command can not be explained or is not sampled
+     * @param elapsedNanos the elapsed time of the command
+     * @param succeeded whether the command succeeded
+     */
+    public void record(@Nonnull String source, @Nonnull CommandEvent event, @Nullable BsonDocument command, long elapsedNanos, boolean succeeded) {
+        BsonDocument alias = (command == null) ? null : stripSessionFields(command);
+        BsonValue collection = (alias == null) ? null : alias.get(event.getCommandName());
+        String collectionName = (collection != null && collection.isString()) ? collection.asString().getValue() : null;
+        MongoSlowQuery entry = new MongoSlowQuery(source, event.getDatabaseName(), collectionName, event.getCommandName(), Instant.now(), Duration.ofNanos(elapsedNanos), succeeded, (alias == null) ? null : alias.toJson(), null);
+        buffers.computeIfAbsent(source, key -> new MongoSlowQueryBuffer(properties.getCapacity())).add(entry);
+        if (alias != null && shouldExplain()) {
+            explainExecutor.execute(() -> explain(source, event.getDatabaseName(), alias, entry));
+        }
+    }
+
+    /**
+     * Returns the captured commands of all the data sources, from the newest to the oldest
+     *
+     * @return the captured commands of all the data sources, from the newest to the oldest
+     */
+    @Nonnull
+    public Map<String, List<MongoSlowQuery>> getSlowQueries() {
+        Map<String, List<MongoSlowQuery>> result = new LinkedHashMap<>();
+        buffers.forEach((source, buffer) -> result.put(source, buffer.snapshot()));
+        return result;
+    }
+
+    @Nonnull
+    public List<MongoSlowQuery> getSlowQueries(@Nonnull String source) {
+        MongoSlowQueryBuffer buffer = buffers.get(source);
+        return (buffer == null) ? List.of() : buffer.snapshot();
+    }
+
+    public void clear() {
+        buffers.values().forEach(MongoSlowQueryBuffer::clear);
+    }
+
+    @Override
+    public void close() {
+        explainExecutor.shutdownNow();
+    }
+
+    private boolean shouldExplain() {
+        Double rate = properties.getExplainSampleRate();
+        return rate != null && rate > 0.0D && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private void explain(@Nonnull String source, @Nonnull String database, @Nonnull BsonDocument command, @Nonnull MongoSlowQuery entry) {
+        BsonDocument explain = new BsonDocument("explain", command);    // $NON-NLS-1$
+        explain.append("verbosity", new BsonString(StringUtils.defaultIfBlank(properties.getExplainVerbosity(), "queryPlanner")));    // $NON-NLS-1$ // $NON-NLS-2$
+        try {
+            entry.setExplain(clientResolver.apply(source).getDatabase(database).runCommand(explain, BsonDocument.class).toJson());
+        } catch (RuntimeException ex) {
+            entry.setExplain(new BsonDocument("error", new BsonString(StringUtils.defaultString(ex.getMessage(), ex.getClass().getName()))).toJson());    // $NON-NLS-1$
+        }
+    }
+
+    @Nonnull
+    private BsonDocument stripSessionFields(@Nonnull BsonDocument command) {
+        SESSION_FIELDS.forEach(command::remove);
+        return command;
+    }
+}
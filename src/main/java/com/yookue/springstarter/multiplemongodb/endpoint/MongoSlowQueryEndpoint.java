@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.endpoint;
+
+
+import java.util.List;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import com.yookue.springstarter.multiplemongodb.diagnostic.MongoSlowQuery;
+import com.yookue.springstarter.multiplemongodb.diagnostic.MongoSlowQueryRecorder;
+
+
+/**
+ * Actuator endpoint of the slow queries of all the data sources
+ *
+ * @author David Hsing
+ */
+@Endpoint(id = MongoSlowQueryEndpoint.ENDPOINT_ID)
+public class MongoSlowQueryEndpoint {
+    public static final String ENDPOINT_ID = "mongoslowquery";    // $NON-NLS-1$
+
+    private final MongoSlowQueryRecorder recorder;
+
+    public MongoSlowQueryEndpoint(@Nonnull MongoSlowQueryRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public Map<String, List<MongoSlowQuery>> slowQueries() {
+        return recorder.getSlowQueries();
+    }
+
+    @ReadOperation
+    public List<MongoSlowQuery> slowQueries(@Selector @Nonnull String source) {
+        return recorder.getSlowQueries(source);
+    }
+
+    @DeleteOperation
+    public void clear() {
+        recorder.clear();
+    }
+}
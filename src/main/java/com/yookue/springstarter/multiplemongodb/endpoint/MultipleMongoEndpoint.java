@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.endpoint;
+
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterDescription;
+import com.mongodb.connection.ClusterSettings;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.connection.ServerDescription;
+import com.yookue.springstarter.multiplemongodb.config.MongoSourcesRegistrar;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
+
+
+/**
+ * Actuator endpoint of all the data sources
+ * <p>
+ * Shows the effective client settings, the pool sizes and the current cluster description (with the round trip time of each server) of each data source.
+ * It never connects to the servers, the cluster descriptions are maintained by the monitors of the drivers
+ *
+ * @author David Hsing
+ */
+@Endpoint(id = MultipleMongoEndpoint.ENDPOINT_ID)
+public class MultipleMongoEndpoint {
+    public static final String ENDPOINT_ID = "multiplemongo";    // $NON-NLS-1$
+
+    private final List<MongoSourceClient> clients;
+    private final ListableBeanFactory beanFactory;
+
+    public MultipleMongoEndpoint(@Nonnull List<MongoSourceClient> clients, @Nonnull ListableBeanFactory beanFactory) {
+        this.clients = clients;
+        this.beanFactory = beanFactory;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> sources() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        clients.forEach(client -> result.computeIfAbsent(client.getSource(), this::describeSource).put(client.getFlavor(), describeClient(client)));
+        return result;
+    }
+
+    @Nullable
+    @ReadOperation
+    public Map<String, Object> source(@Selector @Nonnull String source) {
+        return sources().get(source);
+    }
+
+    @Nonnull
+    private Map<String, Object> describeSource(@Nonnull String source) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        MongoClientSettings settings = getBean(MongoSourcesRegistrar.beanName(source, MongoSourcesRegistrar.CLIENT_SETTINGS), MongoClientSettings.class);
+        if (settings != null) {
+            result.put("settings", describeSettings(settings));    // $NON-NLS-1$
+        }
+        return result;
+    }
+
+    @Nonnull
+    private Map<String, Object> describeClient(@Nonnull MongoSourceClient client) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        MongoClientSettings settings = getBean(MongoSourcesRegistrar.beanName(client.getSource(), MongoSourcesRegistrar.CLIENT_SETTINGS), MongoClientSettings.class);
+        if (settings != null) {
+            ConnectionPoolSettings pool = settings.getConnectionPoolSettings();
+            Integer maxPoolSize = getMaxPoolSize(client);
+            result.put("maxPoolSize", (maxPoolSize != null && maxPoolSize > 0) ? maxPoolSize : pool.getMaxSize());    // $NON-NLS-1$
+            result.put("minPoolSize", pool.getMinSize());    // $NON-NLS-1$
+        }
+        result.put("cluster", describeCluster(client.getClusterDescription()));    // $NON-NLS-1$
+        return result;
+    }
+
+    @Nullable
+    private Integer getMaxPoolSize(@Nonnull MongoSourceClient client) {
+        ExtendedMongoProperties properties = getBean(MongoSourcesRegistrar.beanName(client.getSource(), MongoSourcesRegistrar.MONGO_PROPERTIES), ExtendedMongoProperties.class);
+        if (properties == null) {
+            return null;
+        }
+        return MongoSourceClient.REACTIVE.equals(client.getFlavor()) ? properties.getReactiveMaxPoolSize() : properties.getClassicMaxPoolSize();
+    }
+
+    @Nonnull
+    private Map<String, Object> describeSettings(@Nonnull MongoClientSettings settings) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        ClusterSettings cluster = settings.getClusterSettings();
+        ConnectionPoolSettings pool = settings.getConnectionPoolSettings();
+        result.put("applicationName", settings.getApplicationName());    // $NON-NLS-1$
+        result.put("hosts", cluster.getHosts().stream().map(ServerAddress::toString).toList());    // $NON-NLS-1$
+        result.put("srvHost", cluster.getSrvHost());    // $NON-NLS-1$
+        result.put("mode", cluster.getMode());    // $NON-NLS-1$
+        result.put("requiredReplicaSetName", cluster.getRequiredReplicaSetName());    // $NON-NLS-1$
+        result.put("serverSelectionTimeoutMs", cluster.getServerSelectionTimeout(TimeUnit.MILLISECONDS));    // $NON-NLS-1$
+        result.put("localThresholdMs", cluster.getLocalThreshold(TimeUnit.MILLISECONDS));    // $NON-NLS-1$
+        result.put("maxPoolSize", pool.getMaxSize());    // $NON-NLS-1$
+        result.put("minPoolSize", pool.getMinSize());    // $NON-NLS-1$
+        result.put("maxConnecting", pool.getMaxConnecting());    // $NON-NLS-1$
+        result.put("maxWaitTimeMs", pool.getMaxWaitTime(TimeUnit.MILLISECONDS));    // $NON-NLS-1$
+        result.put("maxConnectionIdleTimeMs", pool.getMaxConnectionIdleTime(TimeUnit.MILLISECONDS));    // $NON-NLS-1$
+        result.put("maxConnectionLifeTimeMs", pool.getMaxConnectionLifeTime(TimeUnit.MILLISECONDS));    // $NON-NLS-1$
+        result.put("connectTimeoutMs", settings.getSocketSettings().getConnectTimeout(TimeUnit.MILLISECONDS));    // $NON-NLS-1$
+        result.put("readTimeoutMs", settings.getSocketSettings().getReadTimeout(TimeUnit.MILLISECONDS));    // $NON-NLS-1$
+        result.put("sslEnabled", settings.getSslSettings().isEnabled());    // $NON-NLS-1$
+        result.put("readPreference", settings.getReadPreference().toString());    // $NON-NLS-1$
+        result.put("readConcern", settings.getReadConcern().getLevel());    // $NON-NLS-1$
+        result.put("writeConcern", settings.getWriteConcern().toString());    // $NON-NLS-1$
+        result.put("retryReads", settings.getRetryReads());    // $NON-NLS-1$
+        result.put("retryWrites", settings.getRetryWrites());    // $NON-NLS-1$
+        result.put("compressors", settings.getCompressorList().stream().map(MongoCompressor::getName).toList());    // $NON-NLS-1$
+        result.put("credentialMechanism", (settings.getCredential() == null) ? null : settings.getCredential().getMechanism());    // $NON-NLS-1$
+        return result;
+    }
+
+    @Nonnull
+    private Map<String, Object> describeCluster(@Nonnull ClusterDescription description) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("type", description.getType());    // $NON-NLS-1$
+        result.put("connectionMode", description.getConnectionMode());    // $NON-NLS-1$
+        result.put("servers", description.getServerDescriptions().stream().map(this::describeServer).toList());    // $NON-NLS-1$
+        return result;
+    }
+
+    @Nonnull
+    private Map<String, Object> describeServer(@Nonnull ServerDescription description) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("address", description.getAddress().toString());    // $NON-NLS-1$
+        result.put("type", description.getType());    // $NON-NLS-1$
+        result.put("state", description.getState());    // $NON-NLS-1$
+        result.put("roundTripTimeMs", TimeUnit.NANOSECONDS.toMicros(description.getRoundTripTimeNanos()) / 1000.0D);    // $NON-NLS-1$
+        result.put("minRoundTripTimeMs", TimeUnit.NANOSECONDS.toMicros(description.getMinRoundTripTimeNanos()) / 1000.0D);    // $NON-NLS-1$
+        if (description.getException() != null) {
+            result.put("error", description.getException().getMessage());    // $NON-NLS-1$
+        }
+        return result;
+    }
+
+    @Nullable
+    private <T> T getBean(@Nonnull String beanName, @Nonnull Class<T> type) {
+        return beanFactory.containsBean(beanName) && beanFactory.isTypeMatch(beanName, type) ? beanFactory.getBean(beanName, type) : null;
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.gridfs;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import com.mongodb.MongoGridFSException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+
+
+/**
+ * Channel template of GridFS of a data source, which transfers the files between the channels and GridFS without copying them on the heap
+ * <p>
+ * The chunks are copied into the reusable direct buffers, and written to the channels by NIO. A background thread reads the next chunks
+ * (from GridFS for the downloads, or from the channel for the uploads) while the current one is being written, at most the prefetch depth ahead.
+ * The files are compatible with the {@code GridFsTemplate} and the drivers, and the channels should be blocking
+ * <p>
+ * In parallel mode, the downloads read the windows of chunks by range queries concurrently and write them in order,
+ * and the uploads insert the chunks by unordered batches concurrently. The ranges of the files can be downloaded without reading the other chunks
+ *
+ * @author David Hsing
+ */
+public class MongoGridFsChannelTemplate implements AutoCloseable {
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+    private final MongoDatabaseFactory factory;
+    private final String bucket;
+    private final PersistenceExceptionTranslator translator;
+    private final int chunkSize;
+    private final int prefetchDepth;
+    private final boolean parallel;
+    private final int windowSize;
+    private final int maxConcurrency;
+    private final int insertBatchSize;
+    private final MongoGridFsChunks.BufferPool buffers;
+    private final ExecutorService executor;
+    private final AtomicBoolean indexesChecked = new AtomicBoolean();
+
+    /**
+     * Constructs a new channel template of GridFS
+     *
+     * @param factory the database factory of GridFS
+     * @param bucket the name of the bucket, defaults to {@code fs}
+     * @param properties the properties of the channel template
+     */
+    public MongoGridFsChannelTemplate(@Nonnull MongoDatabaseFactory factory, @Nullable String bucket, @Nonnull ExtendedMongoProperties.GridFsChannel properties) {
+        Assert.isTrue(properties.getChunkSize() != null && properties.getChunkSize().toBytes() > 0L && properties.getChunkSize().toBytes() <= Integer.MAX_VALUE - MongoGridFsChunks.CHUNK_OVERHEAD, "Chunk size must be positive");
+        Assert.isTrue(properties.getPrefetchDepth() != null && properties.getPrefetchDepth() > 0, "Prefetch depth must be positive");
+        Assert.isTrue(properties.getWindowSize() != null && properties.getWindowSize() > 0, "Window size must be positive");
+        Assert.isTrue(properties.getMaxConcurrency() != null && properties.getMaxConcurrency() > 0, "Max concurrency must be positive");
+        Assert.isTrue(properties.getInsertBatchSize() != null && properties.getInsertBatchSize() > 0, "Insert batch size must be positive");
+        this.factory = factory;
+        this.bucket = StringUtils.defaultIfBlank(bucket, MongoGridFsChunks.DEFAULT_BUCKET);
+        this.translator = factory.getExceptionTranslator();
+        this.chunkSize = (int) properties.getChunkSize().toBytes();
+        this.prefetchDepth = properties.getPrefetchDepth();
+        this.parallel = BooleanUtils.isTrue(properties.getParallel());
+        this.windowSize = properties.getWindowSize();
+        this.maxConcurrency = properties.getMaxConcurrency();
+        this.insertBatchSize = properties.getInsertBatchSize();
+        this.buffers = new MongoGridFsChunks.BufferPool((properties.getMaxBuffers() == null) ? 0 : properties.getMaxBuffers());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mongo-gridfs-");    // $NON-NLS-1$
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    /**
+     * Returns the file of the id
+     *
+     * @param id the id of the file, a string of hex digits is treated as an {@code ObjectId}
+     *
+     * @return the file of the id, or {@code null} if not found
+     */
+    @Nullable
+    public GridFSFile findFile(@Nonnull Object id) {
+        try {
+            return GridFSBuckets.create(factory.getMongoDatabase(), bucket).find(Filters.eq(MongoGridFsChunks.ID_FIELD, fileId(id))).first();
+        } catch (RuntimeException ex) {
+            throw MongoGridFsChunks.translate(translator, ex);
+        }
+    }
+
+    /**
+     * Downloads the file of the id into the path, the existing file of the path is overwritten
+     *
+     * @param id the id of the file
+     * @param path the path to write
+     *
+     * @return the count of the bytes that written
+     */
+    public long download(@Nonnull Object id, @Nonnull Path path) throws IOException {
+        GridFSFile file = requireFile(id);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return download(file, channel);
+        }
+    }
+
+    public long download(@Nonnull Object id, @Nonnull WritableByteChannel channel) throws IOException {
+        return download(requireFile(id), channel);
+    }
+
+    /**
+     * Downloads the file into the channel, the channel is not closed
+     *
+     * @param file the file to download
+     * @param channel the channel to write
+     *
+     * @return the count of the bytes that written
+     */
+    public long download(@Nonnull GridFSFile file, @Nonnull WritableByteChannel channel) throws IOException {
+        return download(file, channel, 0L, file.getLength());
+    }
+
+    /**
+     * Downloads the range of the file into the channel, only the chunks that overlap the range are read, the channel is not closed
+     *
+     * @param file the file to download
+     * @param channel the channel to write
+     * @param offset the offset of the first byte of the range
+     * @param length the count of the bytes of the range
+     *
+     * @return the count of the bytes that written
+     */
+    public long download(@Nonnull GridFSFile file, @Nonnull WritableByteChannel channel, long offset, long length) throws IOException {
+        Assert.isTrue(offset >= 0L && length >= 0L && length <= file.getLength() - offset, "Range must be within the file");
+        if (length == 0L) {
+            return 0L;
+        }
+        int first = (int) (offset / file.getChunkSize());
+        int end = (int) ((offset + length - 1L) / file.getChunkSize()) + 1;
+        long written = 0L;
+        try (MongoGridFsChunks.ChunkPipeline pipeline = chunkPipeline(file, first, end)) {
+            int index = first;
+            ByteBuffer buffer;
+            while ((buffer = pipeline.take()) != null) {
+                try {
+                    MongoGridFsChunks.rangeData(buffer, index++, file.getChunkSize(), offset, length);
+                    while (buffer.hasRemaining()) {
+                        written += channel.write(buffer);
+                    }
+                } finally {
+                    pipeline.recycle(buffer);
+                }
+            }
+        } catch (RuntimeException ex) {
+            throw MongoGridFsChunks.translate(translator, ex);
+        }
+        return written;
+    }
+
+    /**
+     * Uploads the file of the path, named after the name of the path
+     *
+     * @param path the path to read
+     * @param metadata the metadata of the file
+     *
+     * @return the id of the uploaded file
+     */
+    @Nonnull
+    public ObjectId upload(@Nonnull Path path, @Nullable Document metadata) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return upload(channel, String.valueOf(path.getFileName()), metadata);
+        }
+    }
+
+    @Nonnull
+    public ObjectId upload(@Nonnull ReadableByteChannel channel, @Nonnull String filename) throws IOException {
+        return upload(channel, filename, null);
+    }
+
+    /**
+     * Uploads the content of the channel until its end, the channel is not closed
+     * <p>
+     * The chunks are inserted before the file, and are deleted if the upload fails
+     *
+     * @param channel the channel to read
+     * @param filename the name of the file
+     * @param metadata the metadata of the file
+     *
+     * @return the id of the uploaded file
+     */
+    @Nonnull
+    public ObjectId upload(@Nonnull ReadableByteChannel channel, @Nonnull String filename, @Nullable Document metadata) throws IOException {
+        ObjectId id = new ObjectId();
+        MongoDatabase database = factory.getMongoDatabase();
+        MongoCollection<RawBsonDocument> chunks = database.getCollection(bucket + ".chunks", RawBsonDocument.class);    // $NON-NLS-1$
+        MongoCollection<Document> files = database.getCollection(bucket + ".files");    // $NON-NLS-1$
+        try {
+            checkIndexes(files, chunks);
+            long length;
+            try (MongoGridFsChunks.Prefetcher prefetcher = new MongoGridFsChunks.Prefetcher(executor, buffers, chunkSize, prefetchDepth, MongoGridFsChunks.channelSource(channel))) {
+                length = parallel ? insertBatches(chunks, id, prefetcher) : insertChunks(chunks, id, prefetcher);
+            }
+            files.insertOne(MongoGridFsChunks.fileDocument(id, length, chunkSize, filename, metadata));
+            return id;
+        } catch (IOException ex) {
+            deleteChunks(chunks, id, ex);
+            throw ex;
+        } catch (RuntimeException ex) {
+            deleteChunks(chunks, id, ex);
+            throw MongoGridFsChunks.translate(translator, ex);
+        }
+    }
+
+    /**
+     * Stops the background threads
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Nonnull
+    private GridFSFile requireFile(@Nonnull Object id) {
+        GridFSFile file = findFile(id);
+        if (file == null) {
+            throw MongoGridFsChunks.translate(translator, new MongoGridFSException(String.format("No file found with the id: %s", id)));
+        }
+        return file;
+    }
+
+    private long insertChunks(@Nonnull MongoCollection<RawBsonDocument> chunks, @Nonnull ObjectId id, @Nonnull MongoGridFsChunks.Prefetcher prefetcher) throws IOException {
+        byte[] document = new byte[chunkSize + MongoGridFsChunks.CHUNK_OVERHEAD];
+        long length = 0L;
+        int index = 0;
+        ByteBuffer buffer;
+        while ((buffer = prefetcher.take()) != null) {
+            try {
+                length += buffer.remaining();
+                chunks.insertOne(MongoGridFsChunks.encodeChunk(document, id, index++, buffer));
+            } finally {
+                prefetcher.recycle(buffer);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Inserts the chunks by unordered batches on the background threads, at most the max concurrency of batches are in flight
+     * <p>
+     * The documents of a batch are reused after the batch has been inserted, and all the batches have completed when this returns
+     */
+    private long insertBatches(@Nonnull MongoCollection<RawBsonDocument> chunks, @Nonnull ObjectId id, @Nonnull MongoGridFsChunks.Prefetcher prefetcher) throws IOException {
+        BlockingQueue<byte[][]> documents = new ArrayBlockingQueue<>(maxConcurrency);
+        for (int i = 0; i < maxConcurrency; i++) {
+            documents.add(new byte[insertBatchSize][]);
+        }
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        long length = 0L;
+        int index = 0;
+        try {
+            while (true) {
+                byte[][] batchDocuments = documents.take();
+                List<RawBsonDocument> batch = new ArrayList<>(insertBatchSize);
+                ByteBuffer buffer;
+                while (batch.size() < insertBatchSize && (buffer = prefetcher.take()) != null) {
+                    try {
+                        if (batchDocuments[batch.size()] == null) {
+                            batchDocuments[batch.size()] = new byte[chunkSize + MongoGridFsChunks.CHUNK_OVERHEAD];
+                        }
+                        length += buffer.remaining();
+                        batch.add(MongoGridFsChunks.encodeChunk(batchDocuments[batch.size()], id, index++, buffer));
+                    } finally {
+                        prefetcher.recycle(buffer);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batches.removeIf(future -> future.isDone() && !future.isCompletedExceptionally());
+                if (batches.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    break;
+                }
+                batches.add(CompletableFuture.runAsync(() -> chunks.insertMany(batch, UNORDERED), executor).whenComplete((result, ex) -> documents.add(batchDocuments)));
+                if (batch.size() < insertBatchSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException cause = new InterruptedIOException("Interrupted while inserting the chunks");
+            awaitBatches(batches, cause);
+            throw cause;
+        } catch (IOException | RuntimeException ex) {
+            awaitBatches(batches, ex);
+            throw ex;
+        }
+        awaitBatches(batches, null);
+        return length;
+    }
+
+    /**
+     * Waits for all the batches, so that no chunk is inserted after the chunks are deleted
+     *
+     * @param cause the error that stopped the upload, the errors of the batches are suppressed by it, or thrown if it is {@code null}
+     */
+    private void awaitBatches(@Nonnull List<CompletableFuture<Void>> batches, @Nullable Exception cause) {
+        RuntimeException error = null;
+        for (CompletableFuture<Void> batch : batches) {
+            try {
+                batch.join();
+            } catch (CompletionException ex) {
+                RuntimeException alias = (ex.getCause() instanceof RuntimeException exception) ? exception : ex;
+                if (cause != null) {
+                    if (cause != alias) {
+                        cause.addSuppressed(alias);
+                    }
+                } else if (error == null) {
+                    error = alias;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @Nonnull
+    private MongoGridFsChunks.ChunkPipeline chunkPipeline(@Nonnull GridFSFile file, int first, int end) {
+        MongoCollection<RawBsonDocument> chunks = factory.getMongoDatabase().getCollection(bucket + ".chunks", RawBsonDocument.class);    // $NON-NLS-1$
+        if (!parallel) {
+            return new MongoGridFsChunks.Prefetcher(executor, buffers, file.getChunkSize(), prefetchDepth, chunkSource(chunks, file, first, end));
+        }
+        return new MongoGridFsChunks.WindowFetcher(executor, buffers, first, end, windowSize, maxConcurrency, (start, stop) -> fetchWindow(chunks, file, start, stop));
+    }
+
+    /**
+     * Reads the chunks of the window into the pooled buffers, by a range query
+     */
+    @Nonnull
+    private List<ByteBuffer> fetchWindow(@Nonnull MongoCollection<RawBsonDocument> chunks, @Nonnull GridFSFile file, int start, int end) {
+        List<ByteBuffer> window = new ArrayList<>(end - start);
+        try (MongoCursor<RawBsonDocument> cursor = chunks.find(MongoGridFsChunks.windowFilter(file.getId(), start, end)).projection(MongoGridFsChunks.CHUNK_PROJECTION).sort(MongoGridFsChunks.CHUNK_SORT).batchSize(end - start).cursor()) {
+            for (int index = start; index < end; index++) {
+                if (!cursor.hasNext()) {
+                    throw MongoGridFsChunks.missingChunk(file.getId(), index);
+                }
+                ByteBuffer data = MongoGridFsChunks.chunkData(file.getId(), cursor.next(), index, MongoGridFsChunks.chunkSize(file.getLength(), file.getChunkSize(), index));
+                ByteBuffer buffer = buffers.acquire(file.getChunkSize());
+                window.add(buffer);
+                buffer.put(data).flip();
+            }
+            return window;
+        } catch (RuntimeException ex) {
+            window.forEach(buffers::release);
+            throw ex;
+        }
+    }
+
+    @Nonnull
+    private MongoGridFsChunks.ChunkSource chunkSource(@Nonnull MongoCollection<RawBsonDocument> chunks, @Nonnull GridFSFile file, int first, int end) {
+        BsonValue fileId = file.getId();
+        MongoCursor<RawBsonDocument> cursor = chunks.find(MongoGridFsChunks.windowFilter(fileId, first, end))
+            .projection(MongoGridFsChunks.CHUNK_PROJECTION)
+            .sort(MongoGridFsChunks.CHUNK_SORT)
+            .batchSize(prefetchDepth)
+            .cursor();
+        return new MongoGridFsChunks.ChunkSource() {
+            private int index = first;
+
+            @Override
+            public boolean fill(@Nonnull ByteBuffer buffer) {
+                if (index >= end) {
+                    return false;
+                }
+                if (!cursor.hasNext()) {
+                    throw MongoGridFsChunks.missingChunk(fileId, index);
+                }
+                buffer.put(MongoGridFsChunks.chunkData(fileId, cursor.next(), index, MongoGridFsChunks.chunkSize(file.getLength(), file.getChunkSize(), index)));
+                index++;
+                return true;
+            }
+
+            @Override
+            public void close() {
+                cursor.close();
+            }
+        };
+    }
+
+    private void deleteChunks(@Nonnull MongoCollection<RawBsonDocument> chunks, @Nonnull ObjectId id, @Nonnull Exception cause) {
+        try {
+            chunks.deleteMany(Filters.eq(MongoGridFsChunks.FILES_ID_FIELD, id));
+        } catch (RuntimeException ex) {
+            cause.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * Creates the indexes of the bucket if the bucket is empty, as the drivers do
+     */
+    private void checkIndexes(@Nonnull MongoCollection<Document> files, @Nonnull MongoCollection<RawBsonDocument> chunks) {
+        if (indexesChecked.get()) {
+            return;
+        }
+        if (files.find().projection(Projections.include(MongoGridFsChunks.ID_FIELD)).first() == null) {
+            files.createIndex(Indexes.ascending("filename", "uploadDate"));    // $NON-NLS-1$ // $NON-NLS-2$
+            chunks.createIndex(Indexes.ascending(MongoGridFsChunks.FILES_ID_FIELD, MongoGridFsChunks.N_FIELD), new IndexOptions().unique(true));
+        }
+        indexesChecked.set(true);
+    }
+
+    @Nonnull
+    private static Object fileId(@Nonnull Object id) {
+        return (id instanceof String alias && ObjectId.isValid(alias)) ? new ObjectId(alias) : id;
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.gridfs;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import com.mongodb.MongoGridFSException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+
+
+/**
+ * Utilities for the chunks of the channel templates of GridFS
+ *
+ * @author David Hsing
+ */
+abstract class MongoGridFsChunks {
+    static final String DEFAULT_BUCKET = "fs";    // $NON-NLS-1$
+    static final String ID_FIELD = "_id";    // $NON-NLS-1$
+    static final String FILES_ID_FIELD = "files_id";    // $NON-NLS-1$
+    static final String N_FIELD = "n";    // $NON-NLS-1$
+    static final String DATA_FIELD = "data";    // $NON-NLS-1$
+
+    /**
+     * The max size of the fields of a chunk document except its data
+     */
+    static final int CHUNK_OVERHEAD = 64;
+
+    /**
+     * The offset of the data in the encoded chunk documents, whose ids and file ids are {@code ObjectId}s
+     */
+    static final int DATA_OFFSET = 61;
+
+    static final Bson CHUNK_PROJECTION = Projections.fields(Projections.include(N_FIELD, DATA_FIELD), Projections.excludeId());
+    static final Bson CHUNK_SORT = Sorts.ascending(N_FIELD);
+
+    private static final byte[] ID_NAME = cstring(ID_FIELD);
+    private static final byte[] FILES_ID_NAME = cstring(FILES_ID_FIELD);
+    private static final byte[] N_NAME = cstring(N_FIELD);
+    private static final byte[] DATA_NAME = cstring(DATA_FIELD);
+
+    /**
+     * Returns the count of the chunks of a file
+     */
+    static int chunkCount(long length, int chunkSize) {
+        return (int) ((length + chunkSize - 1L) / chunkSize);
+    }
+
+    /**
+     * Returns the expected size of the specified chunk of a file
+     */
+    static int chunkSize(long length, int chunkSize, int index) {
+        return (int) Math.min(chunkSize, length - (long) index * chunkSize);
+    }
+
+    /**
+     * Returns the data of the chunk document, as a view of the bytes of the document without copying
+     */
+    @Nonnull
+    static ByteBuffer chunkData(@Nonnull BsonValue fileId, @Nonnull RawBsonDocument chunk, int expectedIndex, int expectedSize) {
+        ByteBuffer bytes = chunk.getByteBuffer().asNIO();
+        Long index = null;
+        ByteBuffer data = null;
+        try (BsonBinaryReader reader = new BsonBinaryReader(bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN))) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if (N_FIELD.equals(name)) {
+                    index = readIndex(reader);
+                } else if (DATA_FIELD.equals(name) && reader.getCurrentBsonType() == BsonType.BINARY) {
+                    int size = reader.peekBinarySize();
+                    int position = reader.getBsonInput().getPosition() + 5;
+                    if (reader.peekBinarySubType() == BsonBinarySubType.OLD_BINARY.getValue()) {
+                        position += 4;
+                        size -= 4;
+                    }
+                    data = bytes.duplicate().position(position).limit(position + size);
+                    reader.skipValue();
+                } else {
+                    reader.skipValue();
+                }
+            }
+        }
+        if (index == null || index != expectedIndex || data == null) {
+            throw missingChunk(fileId, expectedIndex);
+        }
+        if (data.remaining() != expectedSize) {
+            throw new MongoGridFSException(String.format("Chunk size data length is not the expected size. The size was %d for file_id: %s chunk index %d it should be %d bytes", data.remaining(), fileId, expectedIndex, expectedSize));
+        }
+        return data.slice();
+    }
+
+    /**
+     * Returns the part of the data of the specified chunk that is within the range of the file
+     */
+    @Nonnull
+    static ByteBuffer rangeData(@Nonnull ByteBuffer data, int index, int chunkSize, long offset, long length) {
+        long chunkStart = (long) index * chunkSize;
+        int position = data.position();
+        int from = (int) Math.max(0L, offset - chunkStart);
+        int to = (int) Math.min(data.remaining(), offset + length - chunkStart);
+        return data.limit(position + to).position(position + from);
+    }
+
+    /**
+     * Returns the filter of the chunks of the file, whose indexes are within the window
+     */
+    @Nonnull
+    static Bson windowFilter(@Nonnull BsonValue fileId, int start, int end) {
+        return Filters.and(Filters.eq(FILES_ID_FIELD, fileId), Filters.gte(N_FIELD, start), Filters.lt(N_FIELD, end));
+    }
+
+    @Nonnull
+    static Document fileDocument(@Nonnull ObjectId id, long length, int chunkSize, @Nonnull String filename, @Nullable Document metadata) {
+        Document file = new Document(ID_FIELD, id).append("length", length).append("chunkSize", chunkSize).append("uploadDate", new Date()).append("filename", filename);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        if (metadata != null) {
+            file.append("metadata", metadata);    // $NON-NLS-1$
+        }
+        return file;
+    }
+
+    @Nonnull
+    static MongoGridFSException missingChunk(@Nonnull BsonValue fileId, int index) {
+        return new MongoGridFSException(String.format("Could not find file chunk for file_id: %s at chunk index %d", fileId, index));
+    }
+
+    /**
+     * Encodes a chunk document into the reusable bytes, which are wrapped without copying
+     */
+    @Nonnull
+    static RawBsonDocument encodeChunk(@Nonnull byte[] document, @Nonnull ObjectId fileId, int index, @Nonnull ByteBuffer data) {
+        int length = data.remaining();
+        data.get(document, DATA_OFFSET, length);
+        return finishChunk(document, fileId, index, length);
+    }
+
+    /**
+     * Encodes the fields of a chunk document around its data, which has been placed at the {@link #DATA_OFFSET}
+     */
+    @Nonnull
+    static RawBsonDocument finishChunk(@Nonnull byte[] document, @Nonnull ObjectId fileId, int index, int length) {
+        ByteBuffer output = ByteBuffer.wrap(document).order(ByteOrder.LITTLE_ENDIAN);
+        output.putInt(DATA_OFFSET + length + 1);
+        output.put((byte) BsonType.OBJECT_ID.getValue()).put(ID_NAME);
+        new ObjectId().putToByteBuffer(output);
+        output.put((byte) BsonType.OBJECT_ID.getValue()).put(FILES_ID_NAME);
+        fileId.putToByteBuffer(output);
+        output.put((byte) BsonType.INT32.getValue()).put(N_NAME).putInt(index);
+        output.put((byte) BsonType.BINARY.getValue()).put(DATA_NAME).putInt(length).put(BsonBinarySubType.BINARY.getValue());
+        document[DATA_OFFSET + length] = 0;
+        return new RawBsonDocument(document, 0, DATA_OFFSET + length + 1);
+    }
+
+    /**
+     * Returns a source that reads the channel into the buffers, each buffer is filled up unless the channel reaches its end
+     */
+    @Nonnull
+    static ChunkSource channelSource(@Nonnull ReadableByteChannel channel) {
+        return buffer -> {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Reads until the buffer is full or the channel reaches its end
+            }
+            return buffer.position() > 0;
+        };
+    }
+
+    @Nonnull
+    static RuntimeException translate(@Nonnull PersistenceExceptionTranslator translator, @Nonnull RuntimeException cause) {
+        RuntimeException translated = translator.translateExceptionIfPossible(cause);
+        return (translated == null) ? cause : translated;
+    }
+
+    private static long readIndex(@Nonnull BsonBinaryReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case DOUBLE -> (long) reader.readDouble();
+            default -> {
+                reader.skipValue();
+                yield -1L;
+            }
+        };
+    }
+
+    @Nonnull
+    private static byte[] cstring(@Nonnull String name) {
+        return (name + '\0').getBytes(StandardCharsets.US_ASCII);
+    }
+
+
+    /**
+     * A pipeline that returns the filled buffers of the chunks in order
+     *
+     * @author David Hsing
+     */
+    interface ChunkPipeline extends AutoCloseable {
+        /**
+         * Returns the next filled buffer, which must be recycled after consuming
+         *
+         * @return the next filled buffer, or {@code null} if there are no more chunks
+         */
+        @Nullable
+        ByteBuffer take() throws IOException;
+
+        void recycle(@Nonnull ByteBuffer buffer);
+
+        /**
+         * Stops reading the chunks, and recycles the buffers that have not been consumed
+         */
+        @Override
+        void close();
+    }
+
+
+    /**
+     * A source that fills the buffers with the chunks one by one
+     *
+     * @author David Hsing
+     */
+    @FunctionalInterface
+    interface ChunkSource extends AutoCloseable {
+        /**
+         * Fills the buffer with the next chunk
+         *
+         * @return {@code false} if there are no more chunks
+         */
+        boolean fill(@Nonnull ByteBuffer buffer) throws IOException;
+
+        @Override
+        default void close() {
+        }
+    }
+
+
+    /**
+     * A bounded pool of the direct buffers, which are reused by all the transfers of a template
+     *
+     * @author David Hsing
+     */
+    static final class BufferPool {
+        private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final int maxBuffers;
+
+        BufferPool(int maxBuffers) {
+            this.maxBuffers = maxBuffers;
+        }
+
+        /**
+         * Returns a cleared buffer whose limit is the specified capacity, the pooled buffers that are too small are dropped
+         */
+        @Nonnull
+        ByteBuffer acquire(int capacity) {
+            ByteBuffer buffer;
+            while ((buffer = buffers.poll()) != null) {
+                size.decrementAndGet();
+                if (buffer.capacity() >= capacity) {
+                    buffer.clear().limit(capacity);
+                    return buffer;
+                }
+            }
+            return ByteBuffer.allocateDirect(capacity);
+        }
+
+        void release(@Nonnull ByteBuffer buffer) {
+            if (size.incrementAndGet() <= maxBuffers) {
+                buffers.offer(buffer);
+            } else {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+
+    /**
+     * A pipeline that fills the buffers on a background thread, at most the depth of buffers ahead of the consumer
+     * <p>
+     * The producer is never interrupted, so that the channels of the callers are not closed by cancelling
+     *
+     * @author David Hsing
+     */
+    static final class Prefetcher implements ChunkPipeline {
+        private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+        private final BufferPool pool;
+        private final int bufferSize;
+        private final int depth;
+        private final ChunkSource source;
+        private final Semaphore permits;
+        private final BlockingQueue<ByteBuffer> filled = new LinkedBlockingQueue<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        Prefetcher(@Nonnull Executor executor, @Nonnull BufferPool pool, int bufferSize, int depth, @Nonnull ChunkSource source) {
+            this.pool = pool;
+            this.bufferSize = bufferSize;
+            this.depth = depth;
+            this.source = source;
+            this.permits = new Semaphore(depth);
+            executor.execute(this::produce);
+        }
+
+        @Nullable
+        @Override
+        public ByteBuffer take() throws IOException {
+            ByteBuffer buffer;
+            try {
+                buffer = filled.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the chunks");
+            }
+            if (buffer != END) {
+                return buffer;
+            }
+            filled.add(END);
+            Throwable cause = error.get();
+            if (cause instanceof IOException alias) {
+                throw alias;
+            } else if (cause instanceof RuntimeException alias) {
+                throw alias;
+            } else if (cause instanceof Error alias) {
+                throw alias;
+            }
+            return null;
+        }
+
+        @Override
+        public void recycle(@Nonnull ByteBuffer buffer) {
+            pool.release(buffer);
+            permits.release();
+        }
+
+        @Override
+        public void close() {
+            cancelled = true;
+            permits.release(depth);
+            ByteBuffer buffer;
+            while ((buffer = filled.poll()) != null) {
+                if (buffer != END) {
+                    pool.release(buffer);
+                }
+            }
+        }
+
+        private void produce() {
+            try (source) {
+                while (true) {
+                    permits.acquire();
+                    if (cancelled) {
+                        break;
+                    }
+                    ByteBuffer buffer = pool.acquire(bufferSize);
+                    boolean more;
+                    try {
+                        more = source.fill(buffer);
+                    } catch (IOException | RuntimeException ex) {
+                        pool.release(buffer);
+                        throw ex;
+                    }
+                    if (!more) {
+                        pool.release(buffer);
+                        break;
+                    }
+                    filled.add(buffer.flip());
+                }
+            } catch (InterruptedException ex) {
+                error.set(new InterruptedIOException("Interrupted while reading the chunks"));
+            } catch (Throwable ex) {
+                error.set(ex);
+            } finally {
+                filled.add(END);
+            }
+        }
+    }
+
+
+    /**
+     * A pipeline that reads the chunks by windows of indexes concurrently, and returns them in order
+     * <p>
+     * At most the max concurrency of windows are read ahead of the consumer, each window is read by a range query on a background thread
+     *
+     * @author David Hsing
+     */
+    static final class WindowFetcher implements ChunkPipeline {
+        private final Executor executor;
+        private final BufferPool pool;
+        private final BiFunction<Integer, Integer, List<ByteBuffer>> fetcher;
+        private final int end;
+        private final int windowSize;
+        private final Deque<CompletableFuture<List<ByteBuffer>>> windows = new ArrayDeque<>();
+        private Iterator<ByteBuffer> current = null;
+        private int next;
+
+        /**
+         * Constructs a new window fetcher
+         *
+         * @param fetcher the function that reads the chunks from the start index (inclusive) to the end index (exclusive) into the buffers of the pool
+         */
+        WindowFetcher(@Nonnull Executor executor, @Nonnull BufferPool pool, int start, int end, int windowSize, int maxConcurrency, @Nonnull BiFunction<Integer, Integer, List<ByteBuffer>> fetcher) {
+            this.executor = executor;
+            this.pool = pool;
+            this.fetcher = fetcher;
+            this.end = end;
+            this.windowSize = windowSize;
+            this.next = start;
+            for (int i = 0; i < maxConcurrency && next < end; i++) {
+                submit();
+            }
+        }
+
+        @Nullable
+        @Override
+        public ByteBuffer take() throws IOException {
+            while (current == null || !current.hasNext()) {
+                CompletableFuture<List<ByteBuffer>> window = windows.poll();
+                if (window == null) {
+                    return null;
+                }
+                try {
+                    current = window.join().iterator();
+                } catch (CompletionException ex) {
+                    Throwable cause = (ex.getCause() == null) ? ex : ex.getCause();
+                    if (cause instanceof IOException alias) {
+                        throw alias;
+                    } else if (cause instanceof RuntimeException alias) {
+                        throw alias;
+                    }
+                    throw ex;
+                }
+                if (next < end) {
+                    submit();
+                }
+            }
+            return current.next();
+        }
+
+        @Override
+        public void recycle(@Nonnull ByteBuffer buffer) {
+            pool.release(buffer);
+        }
+
+        @Override
+        public void close() {
+            while (current != null && current.hasNext()) {
+                pool.release(current.next());
+            }
+            CompletableFuture<List<ByteBuffer>> window;
+            while ((window = windows.poll()) != null) {
+                window.thenAccept(buffers -> buffers.forEach(pool::release));
+            }
+        }
+
+        private void submit() {
+            int start = next;
+            int stop = (int) Math.min((long) start + windowSize, end);
+            next = stop;
+            windows.add(CompletableFuture.supplyAsync(() -> fetcher.apply(start, stop), executor));
+        }
+    }
+}
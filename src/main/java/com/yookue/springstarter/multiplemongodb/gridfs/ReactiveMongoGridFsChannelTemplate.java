@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.gridfs;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.util.Assert;
+import com.mongodb.MongoGridFSException;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.gridfs.GridFSBuckets;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Reactive channel template of GridFS of a data source, which transfers the files between the data buffers and GridFS
+ * <p>
+ * The downloaded buffers wrap the data of the raw chunk documents without copying, and the uploaded buffers are copied into the chunk documents directly.
+ * In parallel mode, the downloads read the windows of chunks by range queries concurrently and emit them in order,
+ * and the uploads insert the chunks by unordered batches concurrently. The ranges of the files can be downloaded without reading the other chunks.
+ * The files are compatible with the {@code ReactiveGridFsTemplate} and the drivers
+ *
+ * @author David Hsing
+ */
+public class ReactiveMongoGridFsChannelTemplate {
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+    private final ReactiveMongoDatabaseFactory factory;
+    private final String bucket;
+    private final DataBufferFactory bufferFactory;
+    private final PersistenceExceptionTranslator translator;
+    private final int chunkSize;
+    private final boolean parallel;
+    private final int windowSize;
+    private final int maxConcurrency;
+    private final int insertBatchSize;
+    private final AtomicBoolean indexesChecked = new AtomicBoolean();
+
+    /**
+     * Constructs a new reactive channel template of GridFS
+     *
+     * @param factory the database factory of GridFS
+     * @param bucket the name of the bucket, defaults to {@code fs}
+     * @param bufferFactory the factory that wraps the downloaded data
+     * @param properties the properties of the channel template
+     */
+    public ReactiveMongoGridFsChannelTemplate(@Nonnull ReactiveMongoDatabaseFactory factory, @Nullable String bucket, @Nonnull DataBufferFactory bufferFactory, @Nonnull ExtendedMongoProperties.GridFsChannel properties) {
+        Assert.isTrue(properties.getChunkSize() != null && properties.getChunkSize().toBytes() > 0L && properties.getChunkSize().toBytes() <= Integer.MAX_VALUE - MongoGridFsChunks.CHUNK_OVERHEAD, "Chunk size must be positive");
+        Assert.isTrue(properties.getWindowSize() != null && properties.getWindowSize() > 0, "Window size must be positive");
+        Assert.isTrue(properties.getMaxConcurrency() != null && properties.getMaxConcurrency() > 0, "Max concurrency must be positive");
+        Assert.isTrue(properties.getInsertBatchSize() != null && properties.getInsertBatchSize() > 0, "Insert batch size must be positive");
+        this.factory = factory;
+        this.bucket = StringUtils.defaultIfBlank(bucket, MongoGridFsChunks.DEFAULT_BUCKET);
+        this.bufferFactory = bufferFactory;
+        this.translator = factory.getExceptionTranslator();
+        this.chunkSize = (int) properties.getChunkSize().toBytes();
+        this.parallel = BooleanUtils.isTrue(properties.getParallel());
+        this.windowSize = properties.getWindowSize();
+        this.maxConcurrency = properties.getMaxConcurrency();
+        this.insertBatchSize = properties.getInsertBatchSize();
+    }
+
+    /**
+     * Returns the file of the id
+     *
+     * @param id the id of the file, a string of hex digits is treated as an {@code ObjectId}
+     *
+     * @return the file of the id, or empty if not found
+     */
+    @Nonnull
+    public Mono<GridFSFile> findFile(@Nonnull Object id) {
+        return factory.getMongoDatabase()
+            .flatMap(database -> Mono.from(GridFSBuckets.create(database, bucket).find(Filters.eq(MongoGridFsChunks.ID_FIELD, fileId(id))).first()))
+            .onErrorMap(RuntimeException.class, ex -> MongoGridFsChunks.translate(translator, ex));
+    }
+
+    @Nonnull
+    public Flux<DataBuffer> download(@Nonnull Object id) {
+        return findFile(id)
+            .switchIfEmpty(Mono.defer(() -> Mono.error(MongoGridFsChunks.translate(translator, new MongoGridFSException(String.format("No file found with the id: %s", id))))))
+            .flatMapMany(this::download);
+    }
+
+    @Nonnull
+    public Flux<DataBuffer> download(@Nonnull GridFSFile file) {
+        return download(file, 0L, file.getLength());
+    }
+
+    /**
+     * Downloads the range of the file, only the chunks that overlap the range are read
+     *
+     * @param file the file to download
+     * @param offset the offset of the first byte of the range
+     * @param length the count of the bytes of the range
+     *
+     * @return the buffers of the range in order, which wrap the data of the chunks
+     */
+    @Nonnull
+    public Flux<DataBuffer> download(@Nonnull GridFSFile file, long offset, long length) {
+        Assert.isTrue(offset >= 0L && length >= 0L && length <= file.getLength() - offset, "Range must be within the file");
+        if (length == 0L) {
+            return Flux.empty();
+        }
+        int first = (int) (offset / file.getChunkSize());
+        int end = (int) ((offset + length - 1L) / file.getChunkSize()) + 1;
+        return factory.getMongoDatabase()
+            .map(database -> database.getCollection(bucket + ".chunks", RawBsonDocument.class))    // $NON-NLS-1$
+            .flatMapMany(chunks -> {
+                if (!parallel) {
+                    return fetchWindow(chunks, file, first, end, offset, length);
+                }
+                int windows = (int) (((long) end - first + windowSize - 1L) / windowSize);
+                return Flux.range(0, windows).flatMapSequential(window -> {
+                    int start = first + window * windowSize;
+                    return fetchWindow(chunks, file, start, (int) Math.min((long) start + windowSize, end), offset, length);
+                }, maxConcurrency, windowSize);
+            })
+            .map(bufferFactory::wrap)
+            .onErrorMap(RuntimeException.class, ex -> MongoGridFsChunks.translate(translator, ex));
+    }
+
+    @Nonnull
+    public Mono<ObjectId> upload(@Nonnull Publisher<DataBuffer> content, @Nonnull String filename) {
+        return upload(content, filename, null);
+    }
+
+    /**
+     * Uploads the content until its end, the buffers of the content are released after copying
+     * <p>
+     * The chunks are inserted before the file, and are deleted if the upload fails or is cancelled
+     *
+     * @param content the content to upload
+     * @param filename the name of the file
+     * @param metadata the metadata of the file
+     *
+     * @return the id of the uploaded file
+     */
+    @Nonnull
+    public Mono<ObjectId> upload(@Nonnull Publisher<DataBuffer> content, @Nonnull String filename, @Nullable Document metadata) {
+        return factory.getMongoDatabase().flatMap(database -> {
+            ObjectId id = new ObjectId();
+            MongoCollection<RawBsonDocument> chunks = database.getCollection(bucket + ".chunks", RawBsonDocument.class);    // $NON-NLS-1$
+            MongoCollection<Document> files = database.getCollection(bucket + ".files");    // $NON-NLS-1$
+            ChunkEncoder encoder = new ChunkEncoder(id, chunkSize);
+            Flux<RawBsonDocument> documents = Flux.from(content)
+                .concatMapIterable(encoder::encode)
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .concatWith(Mono.fromSupplier(encoder::flush));
+            int batchSize = parallel ? insertBatchSize : 1;
+            int concurrency = parallel ? maxConcurrency : 1;
+            return checkIndexes(files, chunks)
+                .thenMany(documents.buffer(batchSize).flatMap(batch -> Mono.from(chunks.insertMany(batch, UNORDERED)), concurrency))
+                .then(Mono.defer(() -> Mono.from(files.insertOne(MongoGridFsChunks.fileDocument(id, encoder.getLength(), chunkSize, filename, metadata)))))
+                .thenReturn(id)
+                .onErrorResume(ex -> deleteChunks(chunks, id).onErrorResume(suppressed -> {
+                    ex.addSuppressed(suppressed);
+                    return Mono.empty();
+                }).then(Mono.error(ex)))
+                .doOnCancel(() -> deleteChunks(chunks, id).subscribe(null, ex -> {
+                }));
+        }).onErrorMap(RuntimeException.class, ex -> MongoGridFsChunks.translate(translator, ex));
+    }
+
+    /**
+     * Reads the chunks of the window by a range query, and returns the parts of their data that are within the range of the file
+     */
+    @Nonnull
+    private Flux<ByteBuffer> fetchWindow(@Nonnull MongoCollection<RawBsonDocument> chunks, @Nonnull GridFSFile file, int start, int end, long offset, long length) {
+        return Flux.defer(() -> {
+            AtomicInteger index = new AtomicInteger(start);
+            return Flux.from(chunks.find(MongoGridFsChunks.windowFilter(file.getId(), start, end)).projection(MongoGridFsChunks.CHUNK_PROJECTION).sort(MongoGridFsChunks.CHUNK_SORT).batchSize(Math.min(end - start, windowSize)))
+                .map(chunk -> {
+                    int current = index.getAndIncrement();
+                    ByteBuffer data = MongoGridFsChunks.chunkData(file.getId(), chunk, current, MongoGridFsChunks.chunkSize(file.getLength(), file.getChunkSize(), current));
+                    return MongoGridFsChunks.rangeData(data, current, file.getChunkSize(), offset, length);
+                })
+                .concatWith(Mono.defer(() -> (index.get() < end) ? Mono.error(MongoGridFsChunks.missingChunk(file.getId(), index.get())) : Mono.empty()));
+        });
+    }
+
+    @Nonnull
+    private Mono<Void> deleteChunks(@Nonnull MongoCollection<RawBsonDocument> chunks, @Nonnull ObjectId id) {
+        return Mono.from(chunks.deleteMany(Filters.eq(MongoGridFsChunks.FILES_ID_FIELD, id))).then();
+    }
+
+    /**
+     * Creates the indexes of the bucket if the bucket is empty, as the drivers do
+     */
+    @Nonnull
+    private Mono<Void> checkIndexes(@Nonnull MongoCollection<Document> files, @Nonnull MongoCollection<RawBsonDocument> chunks) {
+        if (indexesChecked.get()) {
+            return Mono.empty();
+        }
+        return Mono.from(files.find().projection(Projections.include(MongoGridFsChunks.ID_FIELD)).first())
+            .hasElement()
+            .flatMap(exists -> exists ? Mono.empty() : Mono.from(files.createIndex(Indexes.ascending("filename", "uploadDate")))    // $NON-NLS-1$ // $NON-NLS-2$
+                .then(Mono.from(chunks.createIndex(Indexes.ascending(MongoGridFsChunks.FILES_ID_FIELD, MongoGridFsChunks.N_FIELD), new IndexOptions().unique(true)))))
+            .doOnSuccess(ignored -> indexesChecked.set(true))
+            .then();
+    }
+
+    @Nonnull
+    private static Object fileId(@Nonnull Object id) {
+        return (id instanceof String alias && ObjectId.isValid(alias)) ? new ObjectId(alias) : id;
+    }
+
+
+    /**
+     * An encoder that copies the data buffers into the chunk documents, for an upload
+     *
+     * @author David Hsing
+     */
+    private static final class ChunkEncoder {
+        private final ObjectId fileId;
+        private final int chunkSize;
+        private byte[] document;
+        private int filled;
+        private int index;
+        private long length;
+
+        ChunkEncoder(@Nonnull ObjectId fileId, int chunkSize) {
+            this.fileId = fileId;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * Copies the buffer into the chunk documents, and releases the buffer
+         *
+         * @return the chunk documents that have been filled
+         */
+        @Nonnull
+        List<RawBsonDocument> encode(@Nonnull DataBuffer buffer) {
+            try {
+                List<RawBsonDocument> result = new ArrayList<>();
+                while (buffer.readableByteCount() > 0) {
+                    if (document == null) {
+                        document = new byte[chunkSize + MongoGridFsChunks.CHUNK_OVERHEAD];
+                    }
+                    int count = Math.min(buffer.readableByteCount(), chunkSize - filled);
+                    buffer.read(document, MongoGridFsChunks.DATA_OFFSET + filled, count);
+                    filled += count;
+                    length += count;
+                    if (filled == chunkSize) {
+                        result.add(flush());
+                    }
+                }
+                return result;
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+        }
+
+        /**
+         * Returns the last chunk document that is partially filled
+         *
+         * @return the last chunk document, or {@code null} if there is no remaining data
+         */
+        @Nullable
+        RawBsonDocument flush() {
+            if (filled == 0) {
+                return null;
+            }
+            RawBsonDocument chunk = MongoGridFsChunks.finishChunk(document, fileId, index++, filled);
+            document = null;
+            filled = 0;
+            return chunk;
+        }
+
+        long getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.health;
+
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import org.bson.Document;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
+
+
+/**
+ * Checker of the health of all the data sources
+ * <p>
+ * All the clients are pinged in parallel, each within the timeout, so a slow data source never delays the others.
+ * The results are cached for the ttl, and shared by all the health indicators.
+ * A client is never pinged again while its previous ping is still in flight, and the blocking pings run on at most one thread per classic client
+ *
+ * @author David Hsing
+ */
+public class MongoSourcesHealthChecker implements AutoCloseable {
+    private static final Document PING_COMMAND = new Document("ping", 1);    // $NON-NLS-1$
+
+    private final Map<String, Map<String, MongoSourceClient>> clients = new LinkedHashMap<>();
+    private final Duration timeout;
+    private final long cacheTtlNanos;
+    private final Map<String, CompletableFuture<Health>> pendingPings = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private volatile Map<String, Health> results = Collections.emptyMap();
+    private volatile long resultsTime;
+
+    public MongoSourcesHealthChecker(@Nonnull List<MongoSourceClient> clients, @Nonnull Duration timeout, @Nonnull Duration cacheTtl) {
+        Assert.notNull(timeout, "Timeout must not be null");
+        Assert.notNull(cacheTtl, "Cache ttl must not be null");
+        clients.forEach(client -> this.clients.computeIfAbsent(client.getSource(), key -> new LinkedHashMap<>()).put(client.getFlavor(), client));
+        this.timeout = timeout;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        int poolSize = Math.max((int) clients.stream().filter(client -> MongoSourceClient.CLASSIC.equals(client.getFlavor())).count(), 1);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Nonnull
+    public Set<String> getSources() {
+        return Collections.unmodifiableSet(clients.keySet());
+    }
+
+    @Nonnull
+    public Set<String> getFlavors(@Nonnull String source) {
+        Map<String, MongoSourceClient> flavors = clients.get(source);
+        return (flavors == null) ? Collections.emptySet() : Collections.unmodifiableSet(flavors.keySet());
+    }
+
+    /**
+     * Returns the health of the specified client, pings all the clients if the cached results are expired
+     *
+     * @param source the name of the data source
+     * @param flavor the flavor of the client
+     *
+     * @return the health of the specified client
+     */
+    @Nonnull
+    public Health health(@Nonnull String source, @Nonnull String flavor) {
+        Health health = currentResults().get(resultKey(source, flavor));
+        return (health == null) ? Health.unknown().build() : health;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Nonnull
+    private Map<String, Health> currentResults() {
+        if (isFresh()) {
+            return results;
+        }
+        synchronized (this) {
+            if (!isFresh()) {
+                results = ping();
+                resultsTime = System.nanoTime();
+            }
+            return results;
+        }
+    }
+
+    private boolean isFresh() {
+        return resultsTime != 0L && System.nanoTime() - resultsTime < cacheTtlNanos;
+    }
+
+    @Nonnull
+    private Map<String, Health> ping() {
+        Map<String, CompletableFuture<Health>> futures = new LinkedHashMap<>();
+        clients.values().forEach(flavors -> flavors.values().forEach(client -> futures.put(resultKey(client.getSource(), client.getFlavor()), ping(client))));
+        CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        Map<String, Health> result = new LinkedHashMap<>(futures.size());
+        futures.forEach((key, future) -> result.put(key, future.join()));
+        return result;
+    }
+
+    @Nonnull
+    private CompletableFuture<Health> ping(@Nonnull MongoSourceClient client) {
+        String key = resultKey(client.getSource(), client.getFlavor());
+        CompletableFuture<Health> pending = pendingPings.get(key);
+        if (pending == null || pending.isDone()) {
+            pending = startPing(client);
+            pendingPings.put(key, pending);
+            CompletableFuture<Health> started = pending;
+            pending.whenComplete((health, ex) -> pendingPings.remove(key, started));
+        }
+        Health timedOut = Health.down().withDetail("error", "Ping timed out after " + timeout.toMillis() + "ms").build();    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        return pending.copy().completeOnTimeout(timedOut, timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Nonnull
+    private CompletableFuture<Health> startPing(@Nonnull MongoSourceClient client) {
+        long startTime = System.nanoTime();
+        CompletableFuture<Document> future;
+        try {
+            future = client.runAdminCommand(PING_COMMAND, timeout, executor);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.completedFuture(Health.down(ex).build());
+        }
+        return future.handle((response, ex) -> (ex == null) ? Health.up().withDetail("elapsed", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms").build() : Health.down(unwrap(ex)).build());    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Nonnull
+    private Throwable unwrap(@Nonnull Throwable ex) {
+        return (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+    }
+
+    @Nonnull
+    private String resultKey(@Nonnull String source, @Nonnull String flavor) {
+        return source + '/' + flavor;
+    }
+
+    @Nonnull
+    private CustomizableThreadFactory threadFactory() {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory("mongo-health-");    // $NON-NLS-1$
+        factory.setDaemon(true);
+        return factory;
+    }
+}
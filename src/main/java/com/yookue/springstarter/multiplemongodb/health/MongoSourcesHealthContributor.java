@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.health;
+
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.NamedContributor;
+
+
+/**
+ * Health contributor of all the data sources, which contains a composite per data source, and an indicator per client of the data source
+ *
+ * @author David Hsing
+ * @see org.springframework.boot.actuate.data.mongo.MongoHealthIndicator
+ */
+public class MongoSourcesHealthContributor implements CompositeHealthContributor {
+    private final MongoSourcesHealthChecker checker;
+
+    public MongoSourcesHealthContributor(@Nonnull MongoSourcesHealthChecker checker) {
+        this.checker = checker;
+    }
+
+    @Nullable
+    @Override
+    public HealthContributor getContributor(@Nonnull String name) {
+        if (!checker.getSources().contains(name)) {
+            return null;
+        }
+        Map<String, HealthIndicator> indicators = new LinkedHashMap<>();
+        checker.getFlavors(name).forEach(flavor -> indicators.put(flavor, () -> checker.health(name, flavor)));
+        return CompositeHealthContributor.fromMap(indicators);
+    }
+
+    @Nonnull
+    @Override
+    public Iterator<NamedContributor<HealthContributor>> iterator() {
+        return checker.getSources().stream().map(source -> NamedContributor.of(source, getContributor(source))).iterator();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.index;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.mongodb.MongoManagedTypes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.util.ClassUtils;
+
+
+/**
+ * Loader for the mongo entity index that generated by {@link MongoEntityIndexProcessor}
+ *
+ * @author David Hsing
+ * @see org.springframework.boot.context.annotation.ImportCandidates
+ */
+@SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
+public abstract class MongoEntityIndexLoader {
+    public static final String INDEX_LOCATION = "META-INF/multiple-mongo.entities";    // $NON-NLS-1$
+    public static final String COMMENT_PREFIX = "#";    // $NON-NLS-1$
+
+    /**
+     * Returns the managed types that recorded in all the index files on the classpath
+     * <p>
+     * The stale entries, whose classes are absent or not annotated with {@link Document} any more, are ignored.
+     *
+     * @param loader the class loader to find the index files and the entity classes
+     *
+     * @return the managed types that recorded in all the index files on the classpath, or {@code null} if there is no index file
+     */
+    @Nullable
+    public static MongoManagedTypes loadManagedTypes(@Nullable ClassLoader loader) throws IOException, ClassNotFoundException {
+        ClassLoader alias = (loader != null) ? loader : ClassUtils.getDefaultClassLoader();
+        Enumeration<URL> urls = (alias != null) ? alias.getResources(INDEX_LOCATION) : ClassLoader.getSystemResources(INDEX_LOCATION);
+        if (!urls.hasMoreElements()) {
+            return null;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        while (urls.hasMoreElements()) {
+            readIndex(urls.nextElement(), names);
+        }
+        Set<Class<?>> types = new LinkedHashSet<>(names.size());
+        for (String name : names) {
+            if (ClassUtils.isPresent(name, alias)) {
+                Class<?> type = ClassUtils.forName(name, alias);
+                if (AnnotatedElementUtils.hasAnnotation(type, Document.class)) {
+                    types.add(type);
+                }
+            }
+        }
+        return MongoManagedTypes.fromIterable(types);
+    }
+
+    private static void readIndex(@Nonnull URL url, @Nonnull Set<String> names) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            reader.lines().map(String::trim).filter(line -> !line.isEmpty() && !line.startsWith(COMMENT_PREFIX)).forEach(names::add);
+        }
+    }
+}
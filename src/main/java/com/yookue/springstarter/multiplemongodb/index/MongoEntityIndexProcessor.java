@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.index;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Annotation processor that records the mongo documents into an index at build time
+ * <p>
+ * The index is located at {@link MongoEntityIndexLoader#INDEX_LOCATION}, and is read by the shared managed types instead of scanning the classpath at startup.
+ * The classes that annotated with {@code Document} directly or by a meta-annotation are recorded.
+ * This processor is not registered as a service, please declare it explicitly in the annotation processors of the compiler.
+ *
+ * @author David Hsing
+ * @see org.springframework.data.mongodb.core.mapping.Document
+ */
+@SupportedAnnotationTypes(value = "*")
+public class MongoEntityIndexProcessor extends AbstractProcessor {
+    public static final String DOCUMENT_ANNOTATION = "org.springframework.data.mongodb.core.mapping.Document";    // $NON-NLS-1$
+    private final Set<String> entities = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(@Nonnull Set<? extends TypeElement> annotations, @Nonnull RoundEnvironment environment) {
+        for (TypeElement element : ElementFilter.typesIn(environment.getRootElements())) {
+            collectEntities(element);
+        }
+        if (environment.processingOver() && !entities.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private void collectEntities(@Nonnull TypeElement element) {
+        if ((element.getKind() == ElementKind.CLASS || element.getKind() == ElementKind.RECORD) && isDocument(element, new HashSet<>())) {
+            entities.add(processingEnv.getElementUtils().getBinaryName(element).toString());
+        }
+        for (TypeElement member : ElementFilter.typesIn(element.getEnclosedElements())) {
+            collectEntities(member);
+        }
+    }
+
+    /**
+     * Returns whether the element is annotated with {@code Document}, directly or by the annotations of its annotations
+     */
+    private boolean isDocument(@Nonnull Element element, @Nonnull Set<String> visited) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+            String name = annotation.getQualifiedName().toString();
+            if (DOCUMENT_ANNOTATION.equals(name)) {
+                return true;
+            }
+            if (!name.startsWith("java.lang.annotation.") && visited.add(name) && isDocument(annotation, visited)) {    // $NON-NLS-1$
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        readPreviousIndex();
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", MongoEntityIndexLoader.INDEX_LOCATION);    // $NON-NLS-1$
+            try (Writer writer = resource.openWriter()) {
+                for (String entity : entities) {
+                    writer.write(entity);
+                    writer.write(System.lineSeparator());
+                }
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write mongo entity index: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Keeps the entries of the previous build, for the incremental compilations only process the changed sources
+     */
+    private void readPreviousIndex() {
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", MongoEntityIndexLoader.INDEX_LOCATION);    // $NON-NLS-1$
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openInputStream(), StandardCharsets.UTF_8))) {
+                reader.lines().map(String::trim).filter(line -> !line.isEmpty() && !line.startsWith(MongoEntityIndexLoader.COMMENT_PREFIX)).forEach(entities::add);
+            }
+        } catch (IOException ignored) {
+            // The previous index does not exist
+        }
+    }
+}
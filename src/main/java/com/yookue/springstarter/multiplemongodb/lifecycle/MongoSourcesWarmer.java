@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.lifecycle;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
+import jakarta.annotation.Nonnull;
+import org.bson.Document;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import com.yookue.springstarter.multiplemongodb.support.MongoSourceClient;
+
+
+/**
+ * Lifecycle that warms up the clients of all the data sources at startup
+ * <p>
+ * All the clients are connected concurrently, each pool is filled up to its min size by concurrent pings.
+ * It runs before the web server starts, and blocks the startup for at most the time budget, so the application only becomes ready with warm pools
+ *
+ * @author David Hsing
+ */
+public class MongoSourcesWarmer implements SmartLifecycle {
+    /**
+     * The phase that runs before the web server starts
+     * <p>
+     * Spring Boot starts the web server in the phase {@code SmartLifecycle.DEFAULT_PHASE - 2048}, this phase is strictly below it
+     */
+    public static final int WARM_UP_PHASE = SmartLifecycle.DEFAULT_PHASE - 2048 - 1;
+
+    private static final Document PING_COMMAND = new Document("ping", 1);    // $NON-NLS-1$
+
+    private final List<MongoSourceClient> clients;
+    private final ToIntFunction<String> minPoolSizeResolver;
+    private final Duration timeout;
+    private final boolean failOnError;
+    private volatile boolean running;
+
+    /**
+     * Constructs a new warmer
+     *
+     * @param clients the clients to warm up
+     * @param minPoolSizeResolver the resolver of the min pool size by the name of data source
+     * @param timeout the total time budget of warming up
+     * @param failOnError whether to fail the startup if any client is not warmed up within the budget
+     */
+    public MongoSourcesWarmer(@Nonnull List<MongoSourceClient> clients, @Nonnull ToIntFunction<String> minPoolSizeResolver, @Nonnull Duration timeout, boolean failOnError) {
+        this.clients = clients;
+        this.minPoolSizeResolver = minPoolSizeResolver;
+        this.timeout = timeout;
+        this.failOnError = failOnError;
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        ExecutorService executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("mongo-warm-up-"));    // $NON-NLS-1$
+        try {
+            List<CompletableFuture<Document>> futures = new ArrayList<>();
+            for (MongoSourceClient client : clients) {
+                int connections = Math.max(minPoolSizeResolver.applyAsInt(client.getSource()), 1);
+                for (int i = 0; i < connections; i++) {
+                    futures.add(client.runAdminCommand(PING_COMMAND, timeout, executor));
+                }
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            if (failOnError) {
+                throw new IllegalStateException("Failed to warm up the mongo clients within " + timeout, ex);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return WARM_UP_PHASE;
+    }
+}
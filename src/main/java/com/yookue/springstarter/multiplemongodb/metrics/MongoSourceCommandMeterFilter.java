@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.metrics;
+
+
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+
+/**
+ * Meter filter that publishes the percentiles of the command timers of the data sources
+ * <p>
+ * Only the timers tagged with {@code datasource} are configured, and the percentiles that have been configured by others take precedence,
+ * such as {@code management.metrics.distribution.percentiles}
+ *
+ * @author David Hsing
+ */
+public class MongoSourceCommandMeterFilter implements MeterFilter {
+    public static final String COMMAND_TIMER = "mongodb.driver.commands";    // $NON-NLS-1$
+
+    private final DistributionStatisticConfig percentiles;
+
+    public MongoSourceCommandMeterFilter(@Nullable List<Double> percentiles) {
+        double[] values = (percentiles == null) ? new double[0] : percentiles.stream().mapToDouble(Double::doubleValue).toArray();
+        this.percentiles = DistributionStatisticConfig.builder().percentiles(values).build();
+    }
+
+    @Override
+    public DistributionStatisticConfig configure(@Nonnull Meter.Id id, @Nonnull DistributionStatisticConfig config) {
+        if (!COMMAND_TIMER.equals(id.getName()) || id.getTag(MongoSourceCommandTagsProvider.SOURCE_TAG) == null || config.getPercentiles() != null) {
+            return config;
+        }
+        return percentiles.merge(config);
+    }
+}
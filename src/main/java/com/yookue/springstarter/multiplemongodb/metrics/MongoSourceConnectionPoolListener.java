@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.metrics;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.mongodb.MongoConnectionPoolTagsProvider;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+
+
+/**
+ * Connection pool listener for a data source, which also records the time of checking out connections
+ * <p>
+ * The gauges of pool size, checked out connections and wait queue are inherited from {@link MongoMetricsConnectionPoolListener}
+ *
+ * @author David Hsing
+ * @see io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener
+ */
+public class MongoSourceConnectionPoolListener extends MongoMetricsConnectionPoolListener {
+    public static final String CHECKOUT_METRIC = "mongodb.driver.pool.checkout";    // $NON-NLS-1$
+
+    private final MeterRegistry registry;
+    private final MongoConnectionPoolTagsProvider tagsProvider;
+    private final Map<ServerId, Timer> checkoutTimers = new ConcurrentHashMap<>();
+
+    public MongoSourceConnectionPoolListener(@Nonnull MeterRegistry registry, @Nonnull MongoConnectionPoolTagsProvider tagsProvider) {
+        super(registry, tagsProvider);
+        this.registry = registry;
+        this.tagsProvider = tagsProvider;
+    }
+
+    @Override
+    public void connectionPoolCreated(@Nonnull ConnectionPoolCreatedEvent event) {
+        super.connectionPoolCreated(event);
+        Timer timer = Timer.builder(CHECKOUT_METRIC).description("The time spent on checking out a connection from the pool").tags(tagsProvider.connectionPoolTags(event)).register(registry);
+        checkoutTimers.put(event.getServerId(), timer);
+    }
+
+    @Override
+    public void connectionPoolClosed(@Nonnull ConnectionPoolClosedEvent event) {
+        super.connectionPoolClosed(event);
+        Timer timer = checkoutTimers.remove(event.getServerId());
+        if (timer != null) {
+            registry.remove(timer);
+        }
+    }
+
+    @Override
+    public void connectionCheckedOut(@Nonnull ConnectionCheckedOutEvent event) {
+        super.connectionCheckedOut(event);
+        Timer timer = checkoutTimers.get(event.getConnectionId().getServerId());
+        if (timer != null) {
+            timer.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+    }
+}
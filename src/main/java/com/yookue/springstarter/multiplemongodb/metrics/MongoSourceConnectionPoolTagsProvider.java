@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.metrics;
+
+
+import jakarta.annotation.Nonnull;
+import org.springframework.util.Assert;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.mongodb.MongoConnectionPoolTagsProvider;
+
+
+/**
+ * Tags provider for the connection pool metrics of a data source, which appends the name of the data source to the tags of the delegate
+ *
+ * @author David Hsing
+ * @see io.micrometer.core.instrument.binder.mongodb.DefaultMongoConnectionPoolTagsProvider
+ */
+public class MongoSourceConnectionPoolTagsProvider implements MongoConnectionPoolTagsProvider {
+    private final Tag sourceTag;
+    private final MongoConnectionPoolTagsProvider delegate;
+
+    public MongoSourceConnectionPoolTagsProvider(@Nonnull String source, @Nonnull MongoConnectionPoolTagsProvider delegate) {
+        Assert.hasText(source, "Source must not be empty");
+        this.sourceTag = Tag.of(MongoSourceCommandTagsProvider.SOURCE_TAG, source);
+        this.delegate = delegate;
+    }
+
+    @Nonnull
+    @Override
+    public Iterable<Tag> connectionPoolTags(@Nonnull ConnectionPoolCreatedEvent event) {
+        return Tags.of(delegate.connectionPoolTags(event)).and(sourceTag);
+    }
+}
@@ -17,7 +17,13 @@
 package com.yookue.springstarter.multiplemongodb.property;
 
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.bson.json.JsonMode;
+import com.mongodb.client.model.changestream.FullDocument;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.util.unit.DataSize;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -32,5 +38,338 @@ import lombok.ToString;
 @Setter
 @ToString
 public class ExtendedMongoProperties extends MongoProperties {
+    /**
+     * Whether to write no type key (such as {@code _class}) into the documents, the documents are read as the declared types
+     */
     private Boolean nullTypeKey;
+
+    /**
+     * The type key to write into the documents, such as {@code _t}, defaults to {@code _class}
+     */
+    private String typeKey;
+
+    /**
+     * The aliases of the types to write into the documents, instead of the class names, keyed by alias, such as {@code dog: com.example.Dog}
+     */
+    private Map<String, String> typeAliases;
+
+    /**
+     * Whether to enable the repositories of this data source
+     */
+    private Boolean repositoryEnabled;
+
+    /**
+     * The base packages of the documents that managed by this data source, all the scanned documents if empty
+     */
+    private List<String> entityPackages;
+
+    /**
+     * The max size of the connection pool of the classic client, overrides the one in the uri
+     */
+    private Integer classicMaxPoolSize;
+
+    /**
+     * The max size of the connection pool of the reactive client, overrides the one in the uri
+     */
+    private Integer reactiveMaxPoolSize;
+
+    private final Read read = new Read();
+
+    private final Batch batch = new Batch();
+
+    private final Async async = new Async();
+
+    private final Bulkhead bulkhead = new Bulkhead();
+
+    private final Streaming streaming = new Streaming();
+
+    private final Raw raw = new Raw();
+
+    private final QueryCache queryCache = new QueryCache();
+
+    private final ChangeStream changeStream = new ChangeStream();
+
+    private final GridFsChannel gridFsChannel = new GridFsChannel();
+
+
+    /**
+     * Properties for the read template, which shares the client of the data source
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Read {
+        private Boolean enabled;
+
+        /**
+         * Whether the repositories use the read template, the methods annotated with {@code @ReadPreference("primary")} and the transactions still read from the primary
+         */
+        private Boolean repositoryEnabled;
+
+        /**
+         * The mode of the read preference, such as {@code secondary} or {@code secondaryPreferred}
+         */
+        private String preference = "secondaryPreferred";    // $NON-NLS-1$
+
+        /**
+         * The max staleness of the secondaries, at least 90 seconds
+         */
+        private Duration maxStaleness;
+
+        /**
+         * The tag sets of the read preference, in order of preference
+         */
+        private List<Map<String, String>> tagSets;
+    }
+
+
+    /**
+     * Properties for the batch writer, which groups the writes into unordered bulk writes
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Batch {
+        private Boolean enabled;
+
+        /**
+         * The max count of the operations in one bulk write
+         */
+        private Integer maxOperations = 1000;
+
+        /**
+         * The max size of the documents in one bulk write
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(8L);
+
+        /**
+         * The max time that an operation waits for the other operations before flushing
+         */
+        private Duration linger = Duration.ofMillis(20L);
+    }
+
+
+    /**
+     * Properties for the async template, which runs the blocking calls of the data source on its own threads
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Async {
+        private Boolean enabled;
+
+        /**
+         * The max count of the calls that run at the same time, defaults to the max size of the connection pool of the classic client
+         */
+        private Integer maxConcurrency;
+
+        /**
+         * Whether to run the calls on virtual threads, if the runtime is Java 21 or later
+         */
+        private Boolean virtualThreads = true;
+    }
+
+
+    /**
+     * Properties for the bulkheads, which shed the operations before they join the wait queue of the connection pool
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Bulkhead {
+        private Boolean enabled;
+
+        /**
+         * The max count of the operations in flight beyond the max pool size, the normal priority operations fail fast beyond it, zero to fail fast once the pool is exhausted
+         */
+        private Integer maxWaitQueueSize = 50;
+
+        /**
+         * The ratio of the max wait queue size, beyond which (over the max pool size) the low priority operations fail fast
+         */
+        private Double lowPriorityRatio = 0.5D;
+    }
+
+
+    /**
+     * Properties for the stream template, which reads the large results by pages of the id, within a bound of memory
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Streaming {
+        private Boolean enabled;
+
+        /**
+         * The max count of the documents in one page
+         */
+        private Integer batchSize = 1000;
+
+        /**
+         * The max size of the documents that are fetched ahead of the consumer, the count of a page shrinks to fit it by the average size of the documents
+         */
+        private DataSize maxPrefetchSize = DataSize.ofMegabytes(16L);
+
+        /**
+         * The max count of the attempts to resume a page from the last id, when the cursor fails
+         */
+        private Integer maxResumeAttempts = 3;
+    }
+
+
+    /**
+     * Properties for the raw template, which reads the documents without converting them into entities
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Raw {
+        private Boolean enabled;
+
+        /**
+         * The mode of the JSON that rendered from the documents, such as {@code relaxed} or {@code extended}
+         */
+        private JsonMode jsonMode = JsonMode.RELAXED;
+    }
+
+
+    /**
+     * Properties for the query cache, which keeps the results of the queries on the cached collections, until a change stream reports any change of them
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class QueryCache {
+        private Boolean enabled;
+
+        /**
+         * The names of the cached collections, which should be rarely changed
+         */
+        private List<String> collections;
+
+        /**
+         * The time to live of the cached results
+         */
+        private Duration ttl = Duration.ofMinutes(10L);
+
+        /**
+         * The max count of the cached results, the oldest results are evicted first
+         */
+        private Integer maxEntries = 10000;
+
+        /**
+         * The max count of the documents of a cached result, the larger results are not cached
+         */
+        private Integer maxResultSize = 1000;
+    }
+
+
+    /**
+     * Properties for the change stream hub, which shares one change stream of each collection or database with all the subscribers
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ChangeStream {
+        private Boolean enabled;
+
+        /**
+         * The max count of the events that buffered for each subscriber, a subscriber fails when its buffer overflows
+         */
+        private Integer bufferSize = 256;
+
+        /**
+         * The lookup mode of the full documents of the update events, such as {@code update-lookup}
+         */
+        private FullDocument fullDocument = FullDocument.DEFAULT;
+
+        /**
+         * Whether to persist the resume tokens, so that the change streams resume after restarting
+         */
+        private Boolean persistTokens = true;
+
+        /**
+         * The name of the collection that keeps the resume tokens
+         */
+        private String tokenCollection = "mongoChangeStreamTokens";    // $NON-NLS-1$
+
+        /**
+         * The prefix of the ids of the resume tokens, defaults to the name of the data source, should be unique for each application that shares the database
+         */
+        private String tokenPrefix;
+
+        /**
+         * The interval of persisting the resume tokens
+         */
+        private Duration tokenInterval = Duration.ofSeconds(1L);
+
+        /**
+         * The time that a change stream keeps open after the last subscriber leaves
+         */
+        private Duration gracePeriod = Duration.ofSeconds(5L);
+    }
+
+
+    /**
+     * Properties for the channel template of GridFS, which transfers the chunks between the channels and the direct buffers
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class GridFsChannel {
+        private Boolean enabled;
+
+        /**
+         * The size of the chunks of the uploaded files
+         */
+        private DataSize chunkSize = DataSize.ofKilobytes(255L);
+
+        /**
+         * The max count of the chunks that are read ahead of the writing, for each transfer
+         */
+        private Integer prefetchDepth = 4;
+
+        /**
+         * The max count of the direct buffers that are kept for reusing, each buffer holds a chunk
+         */
+        private Integer maxBuffers = 64;
+
+        /**
+         * Whether to download the chunks by windows concurrently, and to upload the chunks by batches concurrently
+         */
+        private Boolean parallel;
+
+        /**
+         * The count of the chunks that are read by a range query, when downloading in parallel
+         */
+        private Integer windowSize = 16;
+
+        /**
+         * The max count of the windows or the batches that are in flight, for each transfer in parallel
+         */
+        private Integer maxConcurrency = 4;
+
+        /**
+         * The count of the chunks that are inserted by a batch, when uploading in parallel
+         */
+        private Integer insertBatchSize = 16;
+    }
 }
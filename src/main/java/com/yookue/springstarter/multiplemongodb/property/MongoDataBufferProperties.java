@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.property;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Properties for the data buffer factory of the reactive templates
+ *
+ * @author David Hsing
+ */
+@Getter
+@Setter
+@ToString
+public class MongoDataBufferProperties {
+    /**
+     * Whether to allocate the buffers from the pooled allocator of netty, the allocated buffers must be released by the consumers
+     */
+    private Boolean pooled;
+
+    /**
+     * Whether to allocate the pooled buffers in the direct memory
+     */
+    private Boolean direct = true;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.property;
+
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Properties for the health of mongo
+ *
+ * @author David Hsing
+ */
+@Getter
+@Setter
+@ToString
+public class MongoHealthProperties {
+    private Boolean enabled;
+
+    /**
+     * The max time to wait for the ping of each client, the clients are pinged in parallel
+     */
+    private Duration timeout = Duration.ofSeconds(2L);
+
+    /**
+     * The time to reuse the last results of pinging
+     */
+    private Duration cacheTtl = Duration.ofSeconds(10L);
+}
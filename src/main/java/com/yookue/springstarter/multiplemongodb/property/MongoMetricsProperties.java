@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.property;
+
+
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Properties for the metrics of mongo
+ *
+ * @author David Hsing
+ */
+@Getter
+@Setter
+@ToString
+public class MongoMetricsProperties {
+    private Boolean enabled;
+    private Command command = new Command();
+    private ConnectionPool connectionPool = new ConnectionPool();
+
+
+    /**
+     * Properties for the command metrics of mongo
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Command {
+        private Boolean enabled;
+
+        /**
+         * The percentiles that the command timers of the data sources publish, such as {@code 0.5} for p50 and {@code 0.99} for p99
+         */
+        private List<Double> percentiles = List.of(0.5D, 0.99D);
+    }
+
+
+    /**
+     * Properties for the connection pool metrics of mongo
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ConnectionPool {
+        private Boolean enabled;
+    }
+}
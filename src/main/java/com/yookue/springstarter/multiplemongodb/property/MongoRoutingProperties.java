@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.property;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Properties for routing mongo
+ *
+ * @author David Hsing
+ */
+@Getter
+@Setter
+@ToString
+public class MongoRoutingProperties {
+    private Boolean enabled;
+
+    /**
+     * The data source to use when the routing key is absent or unknown
+     */
+    private String defaultSource = "primary";    // $NON-NLS-1$
+
+    /**
+     * The mappings of routing keys (such as tenant ids) to data sources, the names of data sources are routing keys as well
+     */
+    private Map<String, String> tenants = new LinkedHashMap<>();
+}
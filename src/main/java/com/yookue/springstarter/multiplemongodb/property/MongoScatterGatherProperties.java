@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.property;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Properties for the scatter-gather templates of mongo
+ *
+ * @author David Hsing
+ */
+@Getter
+@Setter
+@ToString
+public class MongoScatterGatherProperties {
+    private Boolean enabled;
+
+    /**
+     * The max count of the entities that buffered ahead of the consumer per data source
+     */
+    private Integer prefetch = 256;
+
+    /**
+     * The max count of the queries that run at the same time on the classic template, each query holds one thread per data source
+     */
+    private Integer maxConcurrentQueries = 16;
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.property;
+
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Properties for capturing slow queries of mongo
+ *
+ * @author David Hsing
+ */
+@Getter
+@Setter
+@ToString
+public class MongoSlowQueryProperties {
+    private Boolean enabled;
+
+    /**
+     * The commands that take at least this time are captured
+     */
+    private Duration threshold = Duration.ofMillis(100L);
+
+    /**
+     * The max number of the captured commands to keep per data source, the oldest ones are overwritten
+     */
+    private Integer capacity = 256;
+
+    /**
+     * The rate (from 0.0 to 1.0) of the commands that can be explained, whose documents are copied when they start, so they can be shown and explained if slow
+     */
+    private Double commandSampleRate = 0.1D;
+
+    /**
+     * The rate (from 0.0 to 1.0) of the captured commands with documents to explain asynchronously
+     */
+    private Double explainSampleRate = 0.0D;
+
+    /**
+     * The verbosity of explaining, such as {@code queryPlanner}, {@code executionStats} or {@code allPlansExecution}
+     */
+    private String explainVerbosity = "queryPlanner";    // $NON-NLS-1$
+
+    /**
+     * The max number of the pending explains, the new ones are dropped when exceeded
+     */
+    private Integer explainQueueSize = 64;
+}
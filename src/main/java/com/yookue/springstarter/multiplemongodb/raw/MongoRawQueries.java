@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.raw;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.Document;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Query;
+
+
+/**
+ * Utilities for the queries of the raw templates
+ *
+ * @author David Hsing
+ */
+abstract class MongoRawQueries {
+    /**
+     * Maps the query by the entity class, or by the field names as they are if the entity class is {@code null}
+     */
+    @Nonnull
+    static MappedQuery mappedQuery(@Nonnull MongoConverter converter, @Nonnull Query query, @Nullable Class<?> entityClass) {
+        MongoPersistentEntity<?> entity = (entityClass == null) ? null : converter.getMappingContext().getPersistentEntity(entityClass);
+        QueryMapper mapper = new QueryMapper(converter);
+        Document filter = mapper.getMappedObject(query.getQueryObject(), entity);
+        Document fields = mapper.getMappedFields(query.getFieldsObject(), entity);
+        Document sort = mapper.getMappedSort(query.getSortObject(), entity);
+        com.mongodb.client.model.Collation collation = query.getCollation().map(Collation::toMongoCollation).orElse(null);
+        return new MappedQuery(filter, fields, sort, (int) Math.min(query.getSkip(), Integer.MAX_VALUE), query.isLimited() ? query.getLimit() : 0, collation);
+    }
+
+    @Nonnull
+    static RuntimeException translate(@Nonnull PersistenceExceptionTranslator translator, @Nonnull RuntimeException cause) {
+        RuntimeException translated = translator.translateExceptionIfPossible(cause);
+        return (translated == null) ? cause : translated;
+    }
+
+
+    /**
+     * A query that has been mapped into the documents of the driver
+     *
+     * @author David Hsing
+     */
+    record MappedQuery(@Nonnull Document filter, @Nonnull Document fields, @Nonnull Document sort, int skip, int limit, @Nullable com.mongodb.client.model.Collation collation) {
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.raw;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+
+
+/**
+ * Raw template of a data source, which reads the documents as the bytes returned by the server, without converting them into entities
+ * <p>
+ * The queries are mapped by the entity classes if present, the results are {@link RawBsonDocument}s, whose bytes are available by {@link RawBsonDocument#getByteBuffer()}.
+ * The documents are rendered as JSON directly from the bytes, so the services that relay the documents need no entities at all
+ *
+ * @author David Hsing
+ */
+public class MongoRawTemplate {
+    private final MongoTemplate template;
+    private final PersistenceExceptionTranslator translator;
+    private final JsonWriterSettings jsonSettings;
+
+    /**
+     * Constructs a new raw template
+     *
+     * @param template the template of the data source
+     * @param properties the properties of the raw template
+     */
+    public MongoRawTemplate(@Nonnull MongoTemplate template, @Nonnull ExtendedMongoProperties.Raw properties) {
+        this.template = template;
+        this.translator = template.getMongoDatabaseFactory().getExceptionTranslator();
+        this.jsonSettings = JsonWriterSettings.builder().outputMode(properties.getJsonMode()).build();
+    }
+
+    /**
+     * Returns the first document that matches the query, from the collection of the entity class
+     *
+     * @param query the query, which is mapped by the entity class
+     * @param entityClass the class of the entities
+     *
+     * @return the first document that matches the query, or {@code null} if none
+     */
+    @Nullable
+    public RawBsonDocument findOne(@Nonnull Query query, @Nonnull Class<?> entityClass) {
+        return findOne(query, entityClass, template.getCollectionName(entityClass));
+    }
+
+    /**
+     * Returns the first document that matches the query, from the collection
+     *
+     * @param query the query
+     * @param collectionName the name of the collection
+     *
+     * @return the first document that matches the query, or {@code null} if none
+     */
+    @Nullable
+    public RawBsonDocument findOne(@Nonnull Query query, @Nonnull String collectionName) {
+        return findOne(query, null, collectionName);
+    }
+
+    /**
+     * Returns the documents that match the query, from the collection of the entity class
+     *
+     * @param query the query, which is mapped by the entity class
+     * @param entityClass the class of the entities
+     *
+     * @return the documents that match the query
+     */
+    @Nonnull
+    public List<RawBsonDocument> find(@Nonnull Query query, @Nonnull Class<?> entityClass) {
+        return find(query, entityClass, template.getCollectionName(entityClass));
+    }
+
+    /**
+     * Returns the documents that match the query, from the collection
+     *
+     * @param query the query
+     * @param collectionName the name of the collection
+     *
+     * @return the documents that match the query
+     */
+    @Nonnull
+    public List<RawBsonDocument> find(@Nonnull Query query, @Nonnull String collectionName) {
+        return find(query, null, collectionName);
+    }
+
+    /**
+     * Writes the documents that match the query as a JSON array, from the collection of the entity class
+     *
+     * @param query the query, which is mapped by the entity class
+     * @param entityClass the class of the entities
+     * @param output the stream to write to, which is flushed but not closed
+     *
+     * @return the count of the documents that have been written
+     */
+    public long writeJson(@Nonnull Query query, @Nonnull Class<?> entityClass, @Nonnull OutputStream output) {
+        return writeJson(query, entityClass, template.getCollectionName(entityClass), output);
+    }
+
+    /**
+     * Writes the documents that match the query as a JSON array, from the collection
+     *
+     * @param query the query
+     * @param collectionName the name of the collection
+     * @param output the stream to write to, which is flushed but not closed
+     *
+     * @return the count of the documents that have been written
+     */
+    public long writeJson(@Nonnull Query query, @Nonnull String collectionName, @Nonnull OutputStream output) {
+        return writeJson(query, null, collectionName, output);
+    }
+
+    /**
+     * Returns the JSON of the document, which is rendered directly from the bytes
+     *
+     * @param document the document to render
+     *
+     * @return the JSON of the document
+     */
+    @Nonnull
+    public String toJson(@Nonnull RawBsonDocument document) {
+        return document.toJson(jsonSettings);
+    }
+
+    @Nullable
+    private RawBsonDocument findOne(@Nonnull Query query, @Nullable Class<?> entityClass, @Nonnull String collectionName) {
+        try {
+            return find(query, entityClass, collectionName, 1).first();
+        } catch (RuntimeException ex) {
+            throw MongoRawQueries.translate(translator, ex);
+        }
+    }
+
+    @Nonnull
+    private List<RawBsonDocument> find(@Nonnull Query query, @Nullable Class<?> entityClass, @Nonnull String collectionName) {
+        try {
+            return find(query, entityClass, collectionName, 0).into(new ArrayList<>());
+        } catch (RuntimeException ex) {
+            throw MongoRawQueries.translate(translator, ex);
+        }
+    }
+
+    private long writeJson(@Nonnull Query query, @Nullable Class<?> entityClass, @Nonnull String collectionName, @Nonnull OutputStream output) {
+        long count = 0L;
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        try (MongoCursor<RawBsonDocument> cursor = find(query, entityClass, collectionName, 0).cursor()) {
+            writer.write('[');
+            while (cursor.hasNext()) {
+                if (count++ > 0L) {
+                    writer.write(',');
+                }
+                writer.write(cursor.next().toJson(jsonSettings));
+            }
+            writer.write(']');
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (RuntimeException ex) {
+            throw MongoRawQueries.translate(translator, ex);
+        }
+        return count;
+    }
+
+    @Nonnull
+    private FindIterable<RawBsonDocument> find(@Nonnull Query query, @Nullable Class<?> entityClass, @Nonnull String collectionName, int limit) {
+        MongoRawQueries.MappedQuery mapped = MongoRawQueries.mappedQuery(template.getConverter(), query, entityClass);
+        FindIterable<RawBsonDocument> iterable = template.getCollection(collectionName).withDocumentClass(RawBsonDocument.class).find(mapped.filter())
+            .projection(mapped.fields().isEmpty() ? null : mapped.fields())
+            .sort(mapped.sort().isEmpty() ? null : mapped.sort())
+            .skip(mapped.skip())
+            .limit((limit > 0) ? limit : mapped.limit());
+        if (mapped.collation() != null) {
+            iterable.collation(mapped.collation());
+        }
+        return iterable;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.raw;
+
+
+import java.io.Writer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.BsonReader;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonWriter;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Reactive raw template of a data source, which reads the documents as the bytes returned by the server, without converting them into entities
+ * <p>
+ * The queries are mapped by the entity classes if present, the results are {@link RawBsonDocument}s, or {@link DataBuffer}s that can be written to the responses directly.
+ * The BSON buffers wrap the bytes of the documents without copying, the JSON buffers are rendered directly from the bytes into the buffers
+ *
+ * @author David Hsing
+ */
+public class ReactiveMongoRawTemplate {
+    private static final byte[] ARRAY_START = {'['}, ARRAY_END = {']'};
+    private static final char ARRAY_SEPARATOR = ',';
+
+    private final ReactiveMongoTemplate template;
+    private final DataBufferFactory bufferFactory;
+    private final PersistenceExceptionTranslator translator;
+    private final JsonWriterSettings jsonSettings;
+
+    /**
+     * Constructs a new reactive raw template
+     *
+     * @param template the template of the data source
+     * @param bufferFactory the factory of the data buffers
+     * @param properties the properties of the raw template
+     */
+    public ReactiveMongoRawTemplate(@Nonnull ReactiveMongoTemplate template, @Nonnull DataBufferFactory bufferFactory, @Nonnull ExtendedMongoProperties.Raw properties) {
+        this.template = template;
+        this.bufferFactory = bufferFactory;
+        this.translator = template.getMongoDatabaseFactory().getExceptionTranslator();
+        this.jsonSettings = JsonWriterSettings.builder().outputMode(properties.getJsonMode()).build();
+    }
+
+    /**
+     * Returns the first document that matches the query, from the collection of the entity class
+     *
+     * @param query the query, which is mapped by the entity class
+     * @param entityClass the class of the entities
+     *
+     * @return the first document that matches the query, or empty if none
+     */
+    @Nonnull
+    public Mono<RawBsonDocument> findOne(@Nonnull Query query, @Nonnull Class<?> entityClass) {
+        return find(query, entityClass, template.getCollectionName(entityClass), 1).next();
+    }
+
+    /**
+     * Returns the first document that matches the query, from the collection
+     *
+     * @param query the query
+     * @param collectionName the name of the collection
+     *
+     * @return the first document that matches the query, or empty if none
+     */
+    @Nonnull
+    public Mono<RawBsonDocument> findOne(@Nonnull Query query, @Nonnull String collectionName) {
+        return find(query, null, collectionName, 1).next();
+    }
+
+    /**
+     * Returns the documents that match the query, from the collection of the entity class
+     *
+     * @param query the query, which is mapped by the entity class
+     * @param entityClass the class of the entities
+     *
+     * @return the documents that match the query
+     */
+    @Nonnull
+    public Flux<RawBsonDocument> find(@Nonnull Query query, @Nonnull Class<?> entityClass) {
+        return find(query, entityClass, template.getCollectionName(entityClass), 0);
+    }
+
+    /**
+     * Returns the documents that match the query, from the collection
+     *
+     * @param query the query
+     * @param collectionName the name of the collection
+     *
+     * @return the documents that match the query
+     */
+    @Nonnull
+    public Flux<RawBsonDocument> find(@Nonnull Query query, @Nonnull String collectionName) {
+        return find(query, null, collectionName, 0);
+    }
+
+    /**
+     * Returns the BSON bytes of the documents that match the query, from the collection, each buffer wraps the bytes of a document without copying
+     *
+     * @param query the query
+     * @param collectionName the name of the collection
+     *
+     * @return the buffers of the documents that match the query
+     */
+    @Nonnull
+    public Flux<DataBuffer> findBson(@Nonnull Query query, @Nonnull String collectionName) {
+        return find(query, null, collectionName, 0).map(document -> bufferFactory.wrap(document.getByteBuffer().asNIO()));
+    }
+
+    /**
+     * Returns the documents that match the query as a JSON array, from the collection of the entity class
+     *
+     * @param query the query, which is mapped by the entity class
+     * @param entityClass the class of the entities
+     *
+     * @return the buffers of the JSON array, one buffer for each document
+     */
+    @Nonnull
+    public Flux<DataBuffer> findJson(@Nonnull Query query, @Nonnull Class<?> entityClass) {
+        return toJsonArray(find(query, entityClass, template.getCollectionName(entityClass), 0));
+    }
+
+    /**
+     * Returns the documents that match the query as a JSON array, from the collection
+     *
+     * @param query the query
+     * @param collectionName the name of the collection
+     *
+     * @return the buffers of the JSON array, one buffer for each document
+     */
+    @Nonnull
+    public Flux<DataBuffer> findJson(@Nonnull Query query, @Nonnull String collectionName) {
+        return toJsonArray(find(query, null, collectionName, 0));
+    }
+
+    /**
+     * Returns the JSON of the document, which is rendered directly from the bytes
+     *
+     * @param document the document to render
+     *
+     * @return the JSON of the document
+     */
+    @Nonnull
+    public String toJson(@Nonnull RawBsonDocument document) {
+        return document.toJson(jsonSettings);
+    }
+
+    /**
+     * Returns the buffers of the JSON array, each document is rendered from its bytes straight into its buffer,
+     * and the buffers that are discarded on cancellation are released
+     */
+    @Nonnull
+    private Flux<DataBuffer> toJsonArray(@Nonnull Flux<RawBsonDocument> documents) {
+        Flux<DataBuffer> elements = documents.index().map(tuple -> {
+            DataBuffer buffer = bufferFactory.allocateBuffer(tuple.getT2().getByteBuffer().remaining() + 1);
+            try {
+                writeJson(buffer, tuple.getT2(), tuple.getT1() > 0L);
+                return buffer;
+            } catch (RuntimeException ex) {
+                DataBufferUtils.release(buffer);
+                throw ex;
+            }
+        });
+        return Flux.concat(Mono.fromSupplier(() -> bufferFactory.wrap(ARRAY_START)), elements, Mono.fromSupplier(() -> bufferFactory.wrap(ARRAY_END)))
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private void writeJson(@Nonnull DataBuffer buffer, @Nonnull RawBsonDocument document, boolean separated) {
+        try (Utf8Writer writer = new Utf8Writer(buffer); BsonReader reader = document.asBsonReader()) {
+            if (separated) {
+                writer.write(ARRAY_SEPARATOR);
+            }
+            new JsonWriter(writer, jsonSettings).pipe(reader);
+        }
+    }
+
+    @Nonnull
+    private Flux<RawBsonDocument> find(@Nonnull Query query, @Nullable Class<?> entityClass, @Nonnull String collectionName, int limit) {
+        return template.getCollection(collectionName).flatMapMany(collection -> {
+            MongoRawQueries.MappedQuery mapped = MongoRawQueries.mappedQuery(template.getConverter(), query, entityClass);
+            FindPublisher<RawBsonDocument> publisher = collection.withDocumentClass(RawBsonDocument.class).find(mapped.filter())
+                .projection(mapped.fields().isEmpty() ? null : mapped.fields())
+                .sort(mapped.sort().isEmpty() ? null : mapped.sort())
+                .skip(mapped.skip())
+                .limit((limit > 0) ? limit : mapped.limit());
+            if (mapped.collation() != null) {
+                publisher.collation(mapped.collation());
+            }
+            return publisher;
+        }).onErrorMap(RuntimeException.class, ex -> MongoRawQueries.translate(translator, ex));
+    }
+
+
+    /**
+     * A writer that encodes the characters as UTF-8 straight into a data buffer, without any intermediate buffers
+     * <p>
+     * The unpaired surrogates are encoded as {@code ?}, as the encoders of the JDK do
+     *
+     * @author David Hsing
+     */
+    private static final class Utf8Writer extends Writer {
+        private final DataBuffer buffer;
+        private char highSurrogate;
+
+        Utf8Writer(@Nonnull DataBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int c) {
+            encode((char) c);
+        }
+
+        @Override
+        public void write(@Nonnull char[] chars, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                encode(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(@Nonnull String text, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                encode(text.charAt(i));
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                buffer.write((byte) '?');
+            }
+        }
+
+        private void encode(char c) {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    buffer.write((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.write((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.write((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.write((byte) (0x80 | (codePoint & 0x3F)));
+                    return;
+                }
+                buffer.write((byte) '?');
+            }
+            if (c < 0x80) {
+                buffer.write((byte) c);
+            } else if (c < 0x800) {
+                buffer.write((byte) (0xC0 | (c >> 6)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                buffer.write((byte) '?');
+            } else {
+                buffer.write((byte) (0xE0 | (c >> 12)));
+                buffer.write((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.routing;
+
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.util.Assert;
+
+
+/**
+ * Base class for the database factories that route to a data source by a key
+ * <p>
+ * The lookup table is precomputed from the data sources and the tenants, so the routing is a single hash lookup without allocations.
+ * The sessions are bound to the data source that opened them, even if the routing key changes afterwards
+ *
+ * @param <T> the type of the database factory
+ *
+ * @author David Hsing
+ * @see org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource
+ */
+public abstract class AbstractRoutingMongoDatabaseFactory<T> {
+    private final Map<String, T> lookupTable;
+    private final T defaultTarget;
+    private final Map<Object, T> sessionTargets = Collections.synchronizedMap(new WeakHashMap<>());
+    protected final MongoRoutingKeyResolver resolver;
+
+    /**
+     * Constructs a new instance
+     *
+     * @param sources the database factories keyed by the names of data sources
+     * @param tenants the names of data sources keyed by the routing keys
+     * @param defaultSource the name of the data source to use when the routing key is absent or unknown
+     * @param resolver the resolver of the routing key
+     */
+    protected AbstractRoutingMongoDatabaseFactory(@Nonnull Map<String, T> sources, @Nullable Map<String, String> tenants, @Nonnull String defaultSource, @Nonnull MongoRoutingKeyResolver resolver) {
+        Map<String, T> table = new HashMap<>(sources);
+        if (tenants != null) {
+            tenants.forEach((tenant, source) -> {
+                Assert.isTrue(sources.containsKey(source), () -> String.format("Unknown mongo data source '%s' for routing key '%s'", source, tenant));
+                table.put(tenant, sources.get(source));
+            });
+        }
+        this.defaultTarget = sources.get(defaultSource);
+        Assert.notNull(defaultTarget, () -> String.format("Unknown default mongo data source '%s'", defaultSource));
+        this.lookupTable = table;
+        this.resolver = resolver;
+    }
+
+    @Nonnull
+    protected T determineTarget(@Nullable String key) {
+        T target = (key == null) ? null : lookupTable.get(key);
+        return (target != null) ? target : defaultTarget;
+    }
+
+    @Nonnull
+    protected T determineTarget() {
+        return determineTarget(resolver.resolveKey());
+    }
+
+    /**
+     * Records the data source that opened the session
+     *
+     * @param session the session that opened
+     * @param target the database factory that opened the session
+     */
+    protected void bindSession(@Nonnull Object session, @Nonnull T target) {
+        sessionTargets.put(session, target);
+    }
+
+    /**
+     * Returns the data source that opened the session, or the data source of the current routing key if the session was not opened by this factory
+     *
+     * @param session the session to bind
+     *
+     * @return the data source that opened the session
+     */
+    @Nonnull
+    protected T determineSessionTarget(@Nonnull Object session) {
+        T target = sessionTargets.get(session);
+        return (target != null) ? target : determineTarget();
+    }
+
+    @Nonnull
+    protected T getDefaultTarget() {
+        return defaultTarget;
+    }
+}
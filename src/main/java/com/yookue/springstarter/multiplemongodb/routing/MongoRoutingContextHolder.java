@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.routing;
+
+
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Holder for the routing key of the current thread
+ * <p>
+ * For reactive operations, write the routing key into the Reactor context with {@link #CONTEXT_KEY}, such as {@code contextWrite(Context.of(MongoRoutingContextHolder.CONTEXT_KEY, "foo"))}
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
+public abstract class MongoRoutingContextHolder {
+    public static final String CONTEXT_KEY = MongoRoutingContextHolder.class.getName() + ".KEY";    // $NON-NLS-1$
+    private static final ThreadLocal<String> ROUTING_KEY = new ThreadLocal<>();
+
+    @Nullable
+    public static String getKey() {
+        return ROUTING_KEY.get();
+    }
+
+    public static void setKey(@Nullable String key) {
+        if (key == null) {
+            ROUTING_KEY.remove();
+        } else {
+            ROUTING_KEY.set(key);
+        }
+    }
+
+    public static void clearKey() {
+        ROUTING_KEY.remove();
+    }
+}
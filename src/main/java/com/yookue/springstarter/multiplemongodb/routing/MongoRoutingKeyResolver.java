@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.routing;
+
+
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Resolver for the routing key of the current operation
+ * <p>
+ * The resolver runs on every operation, so implementations should avoid allocations
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.multiplemongodb.routing.MongoRoutingContextHolder
+ */
+@FunctionalInterface
+public interface MongoRoutingKeyResolver {
+    /**
+     * Returns the routing key of the current operation, such as a tenant id or a data source name
+     *
+     * @return the routing key of the current operation, or {@code null} to use the default data source
+     */
+    @Nullable
+    String resolveKey();
+}
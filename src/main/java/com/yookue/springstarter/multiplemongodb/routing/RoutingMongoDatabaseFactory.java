@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.routing;
+
+
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+
+
+/**
+ * Classic database factory that routes every operation to a data source by the key of {@link MongoRoutingKeyResolver}
+ *
+ * @author David Hsing
+ */
+public class RoutingMongoDatabaseFactory extends AbstractRoutingMongoDatabaseFactory<MongoDatabaseFactory> implements MongoDatabaseFactory {
+    public RoutingMongoDatabaseFactory(@Nonnull Map<String, MongoDatabaseFactory> sources, @Nullable Map<String, String> tenants, @Nonnull String defaultSource, @Nonnull MongoRoutingKeyResolver resolver) {
+        super(sources, tenants, defaultSource, resolver);
+    }
+
+    @Override
+    @Nonnull
+    public MongoDatabase getMongoDatabase() throws DataAccessException {
+        return determineTarget().getMongoDatabase();
+    }
+
+    @Override
+    @Nonnull
+    public MongoDatabase getMongoDatabase(@Nonnull String dbName) throws DataAccessException {
+        return determineTarget().getMongoDatabase(dbName);
+    }
+
+    @Override
+    @Nonnull
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+        return getDefaultTarget().getExceptionTranslator();
+    }
+
+    @Override
+    @Nonnull
+    public CodecRegistry getCodecRegistry() {
+        return determineTarget().getCodecRegistry();
+    }
+
+    @Override
+    @Nonnull
+    public ClientSession getSession(@Nonnull ClientSessionOptions options) {
+        MongoDatabaseFactory target = determineTarget();
+        ClientSession session = target.getSession(options);
+        bindSession(session, target);
+        return session;
+    }
+
+    @Override
+    @Nonnull
+    public MongoDatabaseFactory withSession(@Nonnull ClientSession session) {
+        return determineSessionTarget(session).withSession(session);
+    }
+}
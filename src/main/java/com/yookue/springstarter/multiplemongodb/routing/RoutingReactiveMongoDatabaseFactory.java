@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.routing;
+
+
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+
+/**
+ * Reactive database factory that routes every operation to a data source
+ * <p>
+ * The routing key is read from the Reactor context by {@link MongoRoutingContextHolder#CONTEXT_KEY}, and falls back to {@link MongoRoutingKeyResolver}.
+ * The sessions are bound to the data source that opened them, which is determined by the Reactor context of {@link #getSession(ClientSessionOptions)}
+ *
+ * @author David Hsing
+ */
+public class RoutingReactiveMongoDatabaseFactory extends AbstractRoutingMongoDatabaseFactory<ReactiveMongoDatabaseFactory> implements ReactiveMongoDatabaseFactory {
+    public RoutingReactiveMongoDatabaseFactory(@Nonnull Map<String, ReactiveMongoDatabaseFactory> sources, @Nullable Map<String, String> tenants, @Nonnull String defaultSource, @Nonnull MongoRoutingKeyResolver resolver) {
+        super(sources, tenants, defaultSource, resolver);
+    }
+
+    @Override
+    @Nonnull
+    public Mono<MongoDatabase> getMongoDatabase() throws DataAccessException {
+        return Mono.deferContextual(context -> determineTarget(context).getMongoDatabase());
+    }
+
+    @Override
+    @Nonnull
+    public Mono<MongoDatabase> getMongoDatabase(@Nonnull String dbName) throws DataAccessException {
+        return Mono.deferContextual(context -> determineTarget(context).getMongoDatabase(dbName));
+    }
+
+    @Override
+    @Nonnull
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+        return getDefaultTarget().getExceptionTranslator();
+    }
+
+    @Override
+    @Nonnull
+    public CodecRegistry getCodecRegistry() {
+        return determineTarget().getCodecRegistry();
+    }
+
+    @Override
+    @Nonnull
+    public Mono<ClientSession> getSession(@Nonnull ClientSessionOptions options) {
+        return Mono.deferContextual(context -> {
+            ReactiveMongoDatabaseFactory target = determineTarget(context);
+            return target.getSession(options).doOnNext(session -> bindSession(session, target));
+        });
+    }
+
+    @Override
+    @Nonnull
+    public ReactiveMongoDatabaseFactory withSession(@Nonnull ClientSession session) {
+        return determineSessionTarget(session).withSession(session);
+    }
+
+    @Nonnull
+    private ReactiveMongoDatabaseFactory determineTarget(@Nonnull ContextView context) {
+        String key = context.getOrDefault(MongoRoutingContextHolder.CONTEXT_KEY, null);
+        return determineTarget((key != null) ? key : resolver.resolveKey());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.scatter;
+
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+
+/**
+ * Utilities for the queries of the scatter-gather templates
+ *
+ * @author David Hsing
+ */
+abstract class MongoScatterGatherQueries {
+    /**
+     * Returns the query that runs on each data source, the skip of the query is applied after merging, so each data source returns the first {@code skip + limit} documents
+     */
+    @Nonnull
+    static Query sourceQuery(@Nonnull Query query) {
+        if (query.getSkip() <= 0L) {
+            return query;
+        }
+        Query result = Query.of(query).skip(0L);
+        if (query.isLimited()) {
+            result.limit((int) Math.min(query.getSkip() + query.getLimit(), Integer.MAX_VALUE));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the comparator of the entities by the sort of the query, or {@code null} if the query is not sorted
+     * <p>
+     * The sort keys may be the names or the field names of the properties, the values are compared in their natural order, with nulls first like MongoDB
+     */
+    @Nullable
+    static <T> Comparator<T> comparator(@Nonnull MongoConverter converter, @Nonnull Class<T> entityClass, @Nonnull Query query) {
+        if (!query.isSorted()) {
+            return null;
+        }
+        Comparator<T> result = null;
+        for (Map.Entry<String, Object> entry : query.getSortObject().entrySet()) {
+            Function<Object, Object> accessor = valueAccessor(converter.getMappingContext(), entityClass, entry.getKey());
+            Comparator<T> comparator = Comparator.comparing(accessor::apply, MongoScatterGatherQueries::compareValues);
+            if (entry.getValue() instanceof Number direction && direction.intValue() < 0) {
+                comparator = comparator.reversed();
+            }
+            result = (result == null) ? comparator : result.thenComparing(comparator);
+        }
+        return result;
+    }
+
+    @Nonnull
+    private static Function<Object, Object> valueAccessor(@Nonnull MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> context, @Nonnull Class<?> entityClass, @Nonnull String path) {
+        List<MongoPersistentEntity<?>> entities = new ArrayList<>();
+        List<MongoPersistentProperty> properties = new ArrayList<>();
+        Class<?> type = entityClass;
+        for (String segment : StringUtils.delimitedListToStringArray(path, ".")) {    // $NON-NLS-1$
+            MongoPersistentEntity<?> entity = context.getPersistentEntity(type);
+            MongoPersistentProperty property = (entity == null) ? null : findProperty(entity, segment);
+            Assert.notNull(property, () -> "Unknown sort key '" + path + "' of " + entityClass.getName());
+            entities.add(entity);
+            properties.add(property);
+            type = property.getActualType();
+        }
+        return bean -> {
+            Object value = bean;
+            for (int i = 0; i < properties.size() && value != null; i++) {
+                value = entities.get(i).getPropertyAccessor(value).getProperty(properties.get(i));
+            }
+            return value;
+        };
+    }
+
+    @Nullable
+    private static MongoPersistentProperty findProperty(@Nonnull MongoPersistentEntity<?> entity, @Nonnull String name) {
+        MongoPersistentProperty property = entity.getPersistentProperty(name);
+        if (property != null) {
+            return property;
+        }
+        for (MongoPersistentProperty candidate : entity) {
+            if (name.equals(candidate.getFieldName())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(@Nullable Object former, @Nullable Object latter) {
+        if (former == null || latter == null) {
+            return (former == null) ? ((latter == null) ? 0 : -1) : 1;
+        }
+        if (former instanceof Number alias && latter instanceof Number other) {
+            try {
+                return new BigDecimal(alias.toString()).compareTo(new BigDecimal(other.toString()));
+            } catch (NumberFormatException ignored) {
+                return Double.compare(alias.doubleValue(), other.doubleValue());
+            }
+        }
+        if (former instanceof Comparable alias && former.getClass().isInstance(latter)) {
+            return alias.compareTo(latter);
+        }
+        return former.toString().compareTo(latter.toString());
+    }
+}
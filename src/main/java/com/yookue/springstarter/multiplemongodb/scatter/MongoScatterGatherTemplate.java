@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.scatter;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+
+/**
+ * Template that runs a query on many data sources in parallel, and gathers the results into one stream
+ * <p>
+ * Each data source is read by its own thread, which buffers at most {@code prefetch} entities ahead of the consumer.
+ * The results are merged by the sort of the query if sorted, or in the order of arrival if not. The skip and the limit of the query apply to the merged results,
+ * the cursors of all the data sources are closed as soon as the limit is reached, or the stream is closed.
+ * <p>
+ * The streams must be closed (such as by try-with-resources) if they are not consumed to the end.
+ * The threads are capped at the count of the data sources times {@code maxConcurrentQueries}, a query beyond the cap is rejected instead of queued.
+ * All the data sources are expected to map the entity class to the same collection
+ *
+ * @author David Hsing
+ */
+public class MongoScatterGatherTemplate implements AutoCloseable {
+    private final Map<String, MongoTemplate> templates;
+    private final int prefetch;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructs a new scatter-gather template
+     *
+     * @param templates the templates keyed by the names of the data sources
+     * @param prefetch the max count of the entities that buffered per data source
+     * @param maxConcurrentQueries the max count of the queries that run at the same time
+     */
+    public MongoScatterGatherTemplate(@Nonnull Map<String, MongoTemplate> templates, int prefetch, int maxConcurrentQueries) {
+        Assert.isTrue(prefetch > 0, "Prefetch must be positive");
+        Assert.isTrue(maxConcurrentQueries > 0, "Max concurrent queries must be positive");
+        this.templates = new LinkedHashMap<>(templates);
+        this.prefetch = prefetch;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mongo-scatter-");    // $NON-NLS-1$
+        threadFactory.setDaemon(true);
+        int poolSize = Math.max(templates.size(), 1) * maxConcurrentQueries;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Nonnull
+    public Set<String> getSources() {
+        return Collections.unmodifiableSet(templates.keySet());
+    }
+
+    /**
+     * Runs the query on all the data sources
+     *
+     * @param query the query to run
+     * @param entityClass the class of the entities
+     *
+     * @return a stream of the gathered entities
+     */
+    @Nonnull
+    public <T> Stream<T> find(@Nonnull Query query, @Nonnull Class<T> entityClass) {
+        return find(query, entityClass, templates.keySet());
+    }
+
+    /**
+     * Runs the query on the specified data sources
+     *
+     * @param query the query to run
+     * @param entityClass the class of the entities
+     * @param sources the names of the data sources
+     *
+     * @return a stream of the gathered entities
+     * @throws RejectedExecutionException if the max count of the concurrent queries is reached
+     */
+    @Nonnull
+    public <T> Stream<T> find(@Nonnull Query query, @Nonnull Class<T> entityClass, @Nonnull Collection<String> sources) {
+        Assert.notEmpty(sources, "Sources must not be empty");
+        Query sourceQuery = MongoScatterGatherQueries.sourceQuery(query);
+        Comparator<T> comparator = null;
+        BlockingQueue<Signal<T>> sharedQueue = null;
+        List<SourceCursor<T>> cursors = new ArrayList<>(sources.size());
+        for (String source : sources) {
+            MongoTemplate template = templates.get(source);
+            Assert.notNull(template, () -> "Unknown data source '" + source + "'");
+            if (cursors.isEmpty()) {
+                comparator = MongoScatterGatherQueries.comparator(template.getConverter(), entityClass, query);
+                sharedQueue = (comparator == null) ? new ArrayBlockingQueue<>(prefetch * sources.size()) : null;
+            }
+            BlockingQueue<Signal<T>> queue = (sharedQueue != null) ? sharedQueue : new ArrayBlockingQueue<>(prefetch);
+            cursors.add(new SourceCursor<>(cursors.size(), template, sourceQuery, entityClass, queue));
+        }
+        long limit = query.isLimited() ? query.getLimit() : Long.MAX_VALUE;
+        GatheringIterator<T> iterator = (comparator == null) ? new InterleavingIterator<>(cursors, sharedQueue, query.getSkip(), limit) : new MergingIterator<>(cursors, comparator, query.getSkip(), limit);
+        try {
+            cursors.forEach(executor::execute);
+        } catch (RejectedExecutionException ex) {
+            iterator.close();
+            throw ex;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(iterator::close);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * An entity, a failure or the end of a data source
+     */
+    private record Signal<T>(@Nonnull SourceCursor<T> cursor, @Nullable T value, @Nullable RuntimeException error) {
+    }
+
+
+    /**
+     * Reader of a data source, which runs on its own thread
+     */
+    private static final class SourceCursor<T> implements Runnable {
+        private final int index;
+        private final MongoTemplate template;
+        private final Query query;
+        private final Class<T> entityClass;
+        private final BlockingQueue<Signal<T>> queue;
+        private volatile boolean cancelled;
+
+        private SourceCursor(int index, @Nonnull MongoTemplate template, @Nonnull Query query, @Nonnull Class<T> entityClass, @Nonnull BlockingQueue<Signal<T>> queue) {
+            this.index = index;
+            this.template = template;
+            this.query = query;
+            this.entityClass = entityClass;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            RuntimeException error = null;
+            try (Stream<T> stream = template.stream(query, entityClass)) {
+                Iterator<T> iterator = stream.iterator();
+                while (!cancelled && iterator.hasNext()) {
+                    if (!offer(new Signal<>(this, iterator.next(), null))) {
+                        return;
+                    }
+                }
+            } catch (RuntimeException ex) {
+                error = ex;
+            }
+            offer(new Signal<>(this, null, error));
+        }
+
+        private boolean offer(@Nonnull Signal<T> signal) {
+            try {
+                while (!cancelled) {
+                    if (queue.offer(signal, 100L, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            queue.clear();
+        }
+    }
+
+
+    /**
+     * Iterator of the gathered entities, which applies the skip and the limit, and cancels all the data sources at the end
+     */
+    private abstract static class GatheringIterator<T> implements Iterator<T>, AutoCloseable {
+        protected final List<SourceCursor<T>> cursors;
+        private long skip;
+        private long remaining;
+        private T next;
+        private boolean closed;
+
+        protected GatheringIterator(@Nonnull List<SourceCursor<T>> cursors, long skip, long limit) {
+            this.cursors = cursors;
+            this.skip = Math.max(skip, 0L);
+            this.remaining = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            for (; skip > 0L; skip--) {
+                if (pull() == null) {
+                    close();
+                    return false;
+                }
+            }
+            next = (remaining > 0L) ? pull() : null;
+            if (next == null || --remaining <= 0L) {
+                close();
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            cursors.forEach(SourceCursor::cancel);
+        }
+
+        /**
+         * Returns the next entity of the data sources, or {@code null} if all the data sources are exhausted
+         */
+        @Nullable
+        protected abstract T pull();
+
+        @Nullable
+        protected T unwrap(@Nonnull Signal<T> signal) {
+            if (signal.error() != null) {
+                close();
+                throw signal.error();
+            }
+            return signal.value();
+        }
+
+        @Nonnull
+        protected Signal<T> take(@Nonnull BlockingQueue<Signal<T>> queue) {
+            try {
+                return queue.take();
+            } catch (InterruptedException ex) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the data sources", ex);
+            }
+        }
+    }
+
+
+    /**
+     * Iterator that returns the entities in the order of arrival
+     */
+    private static final class InterleavingIterator<T> extends GatheringIterator<T> {
+        private final BlockingQueue<Signal<T>> queue;
+        private int active;
+
+        private InterleavingIterator(@Nonnull List<SourceCursor<T>> cursors, @Nonnull BlockingQueue<Signal<T>> queue, long skip, long limit) {
+            super(cursors, skip, limit);
+            this.queue = queue;
+            this.active = cursors.size();
+        }
+
+        @Nullable
+        @Override
+        protected T pull() {
+            while (active > 0) {
+                T value = unwrap(take(queue));
+                if (value != null) {
+                    return value;
+                }
+                active--;
+            }
+            return null;
+        }
+    }
+
+
+    /**
+     * Iterator that merges the sorted entities of the data sources, by holding the head entity of each data source
+     */
+    private static final class MergingIterator<T> extends GatheringIterator<T> {
+        private final PriorityQueue<Signal<T>> heads;
+        private SourceCursor<T> pending;
+        private boolean primed;
+
+        private MergingIterator(@Nonnull List<SourceCursor<T>> cursors, @Nonnull Comparator<T> comparator, long skip, long limit) {
+            super(cursors, skip, limit);
+            Comparator<Signal<T>> byValue = (former, latter) -> comparator.compare(former.value(), latter.value());
+            this.heads = new PriorityQueue<>(cursors.size(), byValue.thenComparingInt(signal -> signal.cursor().index));
+        }
+
+        @Nullable
+        @Override
+        protected T pull() {
+            if (!primed) {
+                cursors.forEach(this::advance);
+                primed = true;
+            } else if (pending != null) {
+                advance(pending);
+            }
+            Signal<T> head = heads.poll();
+            pending = (head == null) ? null : head.cursor();
+            return (head == null) ? null : head.value();
+        }
+
+        private void advance(@Nonnull SourceCursor<T> cursor) {
+            Signal<T> signal = take(cursor.queue);
+            if (unwrap(signal) != null) {
+                heads.add(signal);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.scatter;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+
+
+/**
+ * Reactive template that runs a query on many data sources in parallel, and gathers the results into one flux
+ * <p>
+ * The results are merged by the sort of the query if sorted, or in the order of arrival if not, each data source is requested at most {@code prefetch} entities ahead.
+ * The skip and the limit of the query apply to the merged results, the subscriptions of all the data sources are cancelled as soon as the limit is reached.
+ * All the data sources are expected to map the entity class to the same collection
+ *
+ * @author David Hsing
+ */
+public class ReactiveMongoScatterGatherTemplate {
+    private final Map<String, ReactiveMongoTemplate> templates;
+    private final int prefetch;
+
+    /**
+     * Constructs a new reactive scatter-gather template
+     *
+     * @param templates the reactive templates keyed by the names of the data sources
+     * @param prefetch the max count of the entities that requested ahead per data source
+     */
+    public ReactiveMongoScatterGatherTemplate(@Nonnull Map<String, ReactiveMongoTemplate> templates, int prefetch) {
+        Assert.isTrue(prefetch > 0, "Prefetch must be positive");
+        this.templates = new LinkedHashMap<>(templates);
+        this.prefetch = prefetch;
+    }
+
+    @Nonnull
+    public Set<String> getSources() {
+        return Collections.unmodifiableSet(templates.keySet());
+    }
+
+    /**
+     * Runs the query on all the data sources
+     *
+     * @param query the query to run
+     * @param entityClass the class of the entities
+     *
+     * @return a flux of the gathered entities
+     */
+    @Nonnull
+    public <T> Flux<T> find(@Nonnull Query query, @Nonnull Class<T> entityClass) {
+        return find(query, entityClass, templates.keySet());
+    }
+
+    /**
+     * Runs the query on the specified data sources
+     *
+     * @param query the query to run
+     * @param entityClass the class of the entities
+     * @param sources the names of the data sources
+     *
+     * @return a flux of the gathered entities
+     */
+    @Nonnull
+    public <T> Flux<T> find(@Nonnull Query query, @Nonnull Class<T> entityClass, @Nonnull Collection<String> sources) {
+        Assert.notEmpty(sources, "Sources must not be empty");
+        Query sourceQuery = MongoScatterGatherQueries.sourceQuery(query);
+        List<Flux<T>> publishers = new ArrayList<>(sources.size());
+        Comparator<T> comparator = null;
+        for (String source : sources) {
+            ReactiveMongoTemplate template = templates.get(source);
+            Assert.notNull(template, () -> "Unknown data source '" + source + "'");
+            if (publishers.isEmpty()) {
+                comparator = MongoScatterGatherQueries.comparator(template.getConverter(), entityClass, query);
+            }
+            publishers.add(template.find(sourceQuery, entityClass));
+        }
+        Publisher<? extends T>[] alias = toArray(publishers);
+        Flux<T> result = (comparator == null) ? Flux.merge(prefetch, alias) : Flux.mergeComparing(prefetch, comparator, alias);
+        if (query.getSkip() > 0L) {
+            result = result.skip(query.getSkip());
+        }
+        return query.isLimited() ? result.take(query.getLimit(), true) : result;
+    }
+
+    @Nonnull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Publisher<? extends T>[] toArray(@Nonnull List<Flux<T>> publishers) {
+        return publishers.toArray(new Publisher[0]);
+    }
+}
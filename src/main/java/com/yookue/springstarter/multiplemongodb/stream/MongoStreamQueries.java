@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.stream;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.BsonReader;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.conversions.Bson;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.Assert;
+import com.mongodb.MongoCursorNotFoundException;
+import com.mongodb.MongoNodeIsRecoveringException;
+import com.mongodb.MongoNotPrimaryException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+
+
+/**
+ * Utilities for the queries of the stream templates
+ * <p>
+ * A stream reads the documents by pages in the order of the id, each page is a query that starts after the last id, so a failed page resumes from the last id
+ *
+ * @author David Hsing
+ */
+abstract class MongoStreamQueries {
+    static final String ID_FIELD = "_id";    // $NON-NLS-1$
+    static final Bson ID_ASCENDING = Sorts.ascending(ID_FIELD);
+
+    static void validate(@Nonnull ExtendedMongoProperties.Streaming properties) {
+        Assert.isTrue(properties.getBatchSize() != null && properties.getBatchSize() > 0, "Batch size must be positive");
+        Assert.isTrue(properties.getMaxPrefetchSize() != null && properties.getMaxPrefetchSize().toBytes() > 0L, "Max prefetch size must be positive");
+        Assert.isTrue(properties.getMaxResumeAttempts() != null && properties.getMaxResumeAttempts() >= 0, "Max resume attempts must not be negative");
+    }
+
+    @Nonnull
+    static Document mappedFilter(@Nonnull MongoConverter converter, @Nonnull Query query, @Nullable MongoPersistentEntity<?> entity) {
+        Assert.isTrue(!query.isSorted(), "Streaming queries are sorted by id, the sort of the query is not supported");
+        return new QueryMapper(converter).getMappedObject(query.getQueryObject(), entity);
+    }
+
+    @Nonnull
+    static Document mappedFields(@Nonnull MongoConverter converter, @Nonnull Query query, @Nullable MongoPersistentEntity<?> entity) {
+        Document fields = new QueryMapper(converter).getMappedFields(query.getFieldsObject(), entity);
+        Object id = fields.get(ID_FIELD);
+        Assert.isTrue(!(Boolean.FALSE.equals(id) || (id instanceof Number alias && alias.intValue() == 0)), "Streaming queries resume by id, the id must not be excluded");
+        return fields;
+    }
+
+    @Nonnull
+    static <T> T read(@Nonnull MongoConverter converter, @Nonnull Codec<Document> codec, @Nonnull Class<T> entityClass, @Nonnull RawBsonDocument document) {
+        try (BsonReader reader = document.asBsonReader()) {
+            return converter.read(entityClass, codec.decode(reader, DecoderContext.builder().build()));
+        }
+    }
+
+    /**
+     * Returns whether the page can be resumed after the error, which is a network error, a lost cursor, or a failover of the server
+     */
+    static boolean isResumable(@Nonnull Throwable cause) {
+        return cause instanceof MongoSocketException || cause instanceof MongoCursorNotFoundException || cause instanceof MongoNotPrimaryException || cause instanceof MongoNodeIsRecoveringException;
+    }
+
+    @Nonnull
+    static RuntimeException translate(@Nonnull PersistenceExceptionTranslator translator, @Nonnull RuntimeException cause) {
+        RuntimeException translated = translator.translateExceptionIfPossible(cause);
+        return (translated == null) ? cause : translated;
+    }
+
+
+    /**
+     * The position of a stream, which is accessed by one consumer at a time
+     * <p>
+     * The count of a page is the batch size at first, then shrinks to fit the max prefetch size by the average size of the documents that have been read
+     *
+     * @author David Hsing
+     */
+    static final class Position {
+        private final int batchSize;
+        private final long maxPrefetchBytes;
+        private final long skip;
+        private long remaining;
+        private BsonValue lastId;
+        private int pageLimit = -1;
+        private int pageCount;
+        private long totalCount;
+        private long totalBytes;
+
+        Position(@Nonnull ExtendedMongoProperties.Streaming properties, @Nonnull Query query) {
+            this.batchSize = properties.getBatchSize();
+            this.maxPrefetchBytes = properties.getMaxPrefetchSize().toBytes();
+            this.skip = query.getSkip();
+            this.remaining = query.isLimited() ? query.getLimit() : Long.MAX_VALUE;
+        }
+
+        /**
+         * Returns whether there may be more documents, which means no page has been read yet, or the last page was full
+         */
+        boolean hasNextPage() {
+            return remaining > 0L && (pageLimit < 0 || pageCount >= pageLimit);
+        }
+
+        /**
+         * Starts a new page, and returns the max count of its documents
+         */
+        int startPage() {
+            int pageSize = batchSize;
+            if (totalCount > 0L) {
+                long averageBytes = Math.max(totalBytes / totalCount, 1L);
+                pageSize = (int) Math.max(Math.min(maxPrefetchBytes / averageBytes, batchSize), 1L);
+            }
+            pageCount = 0;
+            pageLimit = (int) Math.min(pageSize, remaining);
+            return pageLimit;
+        }
+
+        /**
+         * Marks the current page as failed, so that it restarts from the last id
+         */
+        void resume() {
+            pageLimit = -1;
+        }
+
+        void advance(@Nonnull RawBsonDocument document) {
+            lastId = document.get(ID_FIELD);
+            pageCount++;
+            totalCount++;
+            totalBytes += document.getByteBuffer().remaining();
+            remaining--;
+        }
+
+        @Nonnull
+        Bson filter(@Nonnull Document filter) {
+            if (lastId == null) {
+                return filter;
+            }
+            return filter.isEmpty() ? Filters.gt(ID_FIELD, lastId) : Filters.and(filter, Filters.gt(ID_FIELD, lastId));
+        }
+
+        /**
+         * Returns the skip of the current page, the skip of the query applies until the first document is read
+         */
+        int skip() {
+            return (lastId == null) ? (int) Math.min(skip, Integer.MAX_VALUE) : 0;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.stream;
+
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Query;
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+
+
+/**
+ * Stream template of a data source, which reads the large results within a bound of memory
+ * <p>
+ * The documents are read by pages in the order of the id, the count of a page shrinks to fit the max prefetch size, and a failed page resumes from the last id.
+ * The raw streams pass the bytes of the documents through without conversion, the entity streams convert the documents lazily, both of them bypass the entity callbacks and the lifecycle events of the template.
+ * The streams must be closed after use
+ *
+ * @author David Hsing
+ */
+public class MongoStreamTemplate {
+    private final MongoTemplate template;
+    private final Codec<Document> codec;
+    private final PersistenceExceptionTranslator translator;
+    private final ExtendedMongoProperties.Streaming properties;
+
+    /**
+     * Constructs a new stream template
+     *
+     * @param template the template of the data source
+     * @param properties the properties of the stream template
+     */
+    public MongoStreamTemplate(@Nonnull MongoTemplate template, @Nonnull ExtendedMongoProperties.Streaming properties) {
+        MongoStreamQueries.validate(properties);
+        this.template = template;
+        this.codec = template.getMongoDatabaseFactory().getCodecRegistry().get(Document.class);
+        this.translator = template.getMongoDatabaseFactory().getExceptionTranslator();
+        this.properties = properties;
+    }
+
+    /**
+     * Streams the entities that match the query, from the collection of the entity class
+     *
+     * @param query the query, which must not be sorted
+     * @param entityClass the class of the entities
+     *
+     * @return a stream of the entities, which must be closed after use
+     */
+    @Nonnull
+    public <T> Stream<T> stream(@Nonnull Query query, @Nonnull Class<T> entityClass) {
+        return stream(query, entityClass, template.getCollectionName(entityClass));
+    }
+
+    /**
+     * Streams the entities that match the query, from the collection
+     *
+     * @param query the query, which must not be sorted
+     * @param entityClass the class of the entities
+     * @param collectionName the name of the collection
+     *
+     * @return a stream of the entities, which must be closed after use
+     */
+    @Nonnull
+    public <T> Stream<T> stream(@Nonnull Query query, @Nonnull Class<T> entityClass, @Nonnull String collectionName) {
+        return documents(query, template.getConverter().getMappingContext().getPersistentEntity(entityClass), collectionName)
+            .map(document -> MongoStreamQueries.read(template.getConverter(), codec, entityClass, document));
+    }
+
+    /**
+     * Streams the raw documents that match the query, from the collection of the entity class, the query is mapped by the entity class
+     *
+     * @param query the query, which must not be sorted
+     * @param entityClass the class of the entities
+     *
+     * @return a stream of the raw documents, which must be closed after use
+     */
+    @Nonnull
+    public Stream<RawBsonDocument> streamRaw(@Nonnull Query query, @Nonnull Class<?> entityClass) {
+        return documents(query, template.getConverter().getMappingContext().getPersistentEntity(entityClass), template.getCollectionName(entityClass));
+    }
+
+    /**
+     * Streams the raw documents that match the query, from the collection
+     *
+     * @param query the query, which must not be sorted
+     * @param collectionName the name of the collection
+     *
+     * @return a stream of the raw documents, which must be closed after use
+     */
+    @Nonnull
+    public Stream<RawBsonDocument> streamRaw(@Nonnull Query query, @Nonnull String collectionName) {
+        return documents(query, null, collectionName);
+    }
+
+    @Nonnull
+    private Stream<RawBsonDocument> documents(@Nonnull Query query, @Nullable MongoPersistentEntity<?> entity, @Nonnull String collectionName) {
+        Document filter = MongoStreamQueries.mappedFilter(template.getConverter(), query, entity);
+        Document fields = MongoStreamQueries.mappedFields(template.getConverter(), query, entity);
+        MongoCollection<RawBsonDocument> collection = template.getCollection(collectionName).withDocumentClass(RawBsonDocument.class);
+        PageIterator iterator = new PageIterator(collection, filter, fields, query);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(iterator::close);
+    }
+
+
+    /**
+     * An iterator that reads the pages one after another, and resumes a failed page from the last id
+     *
+     * @author David Hsing
+     */
+    private final class PageIterator implements Iterator<RawBsonDocument> {
+        private final MongoCollection<RawBsonDocument> collection;
+        private final Document filter;
+        private final Document fields;
+        private final com.mongodb.client.model.Collation collation;
+        private final MongoStreamQueries.Position position;
+        private MongoCursor<RawBsonDocument> cursor;
+        private int attempts;
+
+        private PageIterator(@Nonnull MongoCollection<RawBsonDocument> collection, @Nonnull Document filter, @Nonnull Document fields, @Nonnull Query query) {
+            this.collection = collection;
+            this.filter = filter;
+            this.fields = fields;
+            this.collation = query.getCollation().map(Collation::toMongoCollation).orElse(null);
+            this.position = new MongoStreamQueries.Position(properties, query);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                try {
+                    if (cursor == null) {
+                        if (!position.hasNextPage()) {
+                            return false;
+                        }
+                        cursor = openPage();
+                    }
+                    if (cursor.hasNext()) {
+                        return true;
+                    }
+                    close();
+                    attempts = 0;
+                } catch (MongoException ex) {
+                    close();
+                    if (!MongoStreamQueries.isResumable(ex) || ++attempts > properties.getMaxResumeAttempts()) {
+                        throw MongoStreamQueries.translate(translator, ex);
+                    }
+                    position.resume();
+                }
+            }
+        }
+
+        @Override
+        public RawBsonDocument next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RawBsonDocument document = cursor.next();
+            position.advance(document);
+            return document;
+        }
+
+        private void close() {
+            if (cursor != null) {
+                cursor.close();
+                cursor = null;
+            }
+        }
+
+        @Nonnull
+        private MongoCursor<RawBsonDocument> openPage() {
+            int limit = position.startPage();
+            FindIterable<RawBsonDocument> iterable = collection.find(position.filter(filter)).sort(MongoStreamQueries.ID_ASCENDING).skip(position.skip()).limit(limit).batchSize(limit);
+            if (!fields.isEmpty()) {
+                iterable.projection(fields);
+            }
+            if (collation != null) {
+                iterable.collation(collation);
+            }
+            return iterable.cursor();
+        }
+    }
+}
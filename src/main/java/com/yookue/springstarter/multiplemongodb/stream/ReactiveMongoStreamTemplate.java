@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.stream;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Query;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+
+/**
+ * Reactive stream template of a data source, which reads the large results within a bound of memory
+ * <p>
+ * The documents are read by pages in the order of the id, the count of a page shrinks to fit the max prefetch size, and a failed page resumes from the last id.
+ * The pages are requested only as fast as the subscriber consumes them.
+ * The raw streams pass the bytes of the documents through without conversion, both of the raw streams and the entity streams bypass the entity callbacks and the lifecycle events of the template
+ *
+ * @author David Hsing
+ */
+public class ReactiveMongoStreamTemplate {
+    private final ReactiveMongoTemplate template;
+    private final Codec<Document> codec;
+    private final PersistenceExceptionTranslator translator;
+    private final ExtendedMongoProperties.Streaming properties;
+
+    /**
+     * Constructs a new reactive stream template
+     *
+     * @param template the template of the data source
+     * @param properties the properties of the stream template
+     */
+    public ReactiveMongoStreamTemplate(@Nonnull ReactiveMongoTemplate template, @Nonnull ExtendedMongoProperties.Streaming properties) {
+        MongoStreamQueries.validate(properties);
+        this.template = template;
+        this.codec = template.getMongoDatabaseFactory().getCodecRegistry().get(Document.class);
+        this.translator = template.getMongoDatabaseFactory().getExceptionTranslator();
+        this.properties = properties;
+    }
+
+    /**
+     * Streams the entities that match the query, from the collection of the entity class
+     *
+     * @param query the query, which must not be sorted
+     * @param entityClass the class of the entities
+     *
+     * @return a flux of the entities
+     */
+    @Nonnull
+    public <T> Flux<T> stream(@Nonnull Query query, @Nonnull Class<T> entityClass) {
+        return stream(query, entityClass, template.getCollectionName(entityClass));
+    }
+
+    /**
+     * Streams the entities that match the query, from the collection
+     *
+     * @param query the query, which must not be sorted
+     * @param entityClass the class of the entities
+     * @param collectionName the name of the collection
+     *
+     * @return a flux of the entities
+     */
+    @Nonnull
+    public <T> Flux<T> stream(@Nonnull Query query, @Nonnull Class<T> entityClass, @Nonnull String collectionName) {
+        return documents(query, template.getConverter().getMappingContext().getPersistentEntity(entityClass), collectionName)
+            .map(document -> MongoStreamQueries.read(template.getConverter(), codec, entityClass, document));
+    }
+
+    /**
+     * Streams the raw documents that match the query, from the collection of the entity class, the query is mapped by the entity class
+     *
+     * @param query the query, which must not be sorted
+     * @param entityClass the class of the entities
+     *
+     * @return a flux of the raw documents
+     */
+    @Nonnull
+    public Flux<RawBsonDocument> streamRaw(@Nonnull Query query, @Nonnull Class<?> entityClass) {
+        return documents(query, template.getConverter().getMappingContext().getPersistentEntity(entityClass), template.getCollectionName(entityClass));
+    }
+
+    /**
+     * Streams the raw documents that match the query, from the collection
+     *
+     * @param query the query, which must not be sorted
+     * @param collectionName the name of the collection
+     *
+     * @return a flux of the raw documents
+     */
+    @Nonnull
+    public Flux<RawBsonDocument> streamRaw(@Nonnull Query query, @Nonnull String collectionName) {
+        return documents(query, null, collectionName);
+    }
+
+    @Nonnull
+    private Flux<RawBsonDocument> documents(@Nonnull Query query, @Nullable MongoPersistentEntity<?> entity, @Nonnull String collectionName) {
+        Document filter = MongoStreamQueries.mappedFilter(template.getConverter(), query, entity);
+        Document fields = MongoStreamQueries.mappedFields(template.getConverter(), query, entity);
+        com.mongodb.client.model.Collation collation = query.getCollation().map(Collation::toMongoCollation).orElse(null);
+        Retry retry = Retry.max(properties.getMaxResumeAttempts()).filter(MongoStreamQueries::isResumable).onRetryExhaustedThrow((spec, signal) -> signal.failure());
+        return Flux.defer(() -> {
+            MongoStreamQueries.Position position = new MongoStreamQueries.Position(properties, query);
+            return template.getCollection(collectionName)
+                .flatMapMany(collection -> openPage(collection.withDocumentClass(RawBsonDocument.class), filter, fields, collation, position))
+                .doOnNext(position::advance)
+                .retryWhen(retry)
+                .repeat(position::hasNextPage);
+        }).onErrorMap(RuntimeException.class, ex -> MongoStreamQueries.translate(translator, ex));
+    }
+
+    @Nonnull
+    private FindPublisher<RawBsonDocument> openPage(@Nonnull MongoCollection<RawBsonDocument> collection, @Nonnull Document filter, @Nonnull Document fields, @Nullable com.mongodb.client.model.Collation collation, @Nonnull MongoStreamQueries.Position position) {
+        int limit = position.startPage();
+        FindPublisher<RawBsonDocument> publisher = collection.find(position.filter(filter)).sort(MongoStreamQueries.ID_ASCENDING).skip(position.skip()).limit(limit).batchSize(limit);
+        if (!fields.isEmpty()) {
+            publisher.projection(fields);
+        }
+        if (collation != null) {
+            publisher.collation(collation);
+        }
+        return publisher;
+    }
+}
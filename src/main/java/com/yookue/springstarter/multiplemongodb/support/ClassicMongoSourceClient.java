@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.support;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.ListableBeanFactory;
+import com.mongodb.client.MongoClient;
+import com.mongodb.connection.ClusterDescription;
+import com.yookue.springstarter.multiplemongodb.config.MongoSourcesRegistrar;
+
+
+/**
+ * Classic client of a data source
+ *
+ * @author David Hsing
+ */
+public class ClassicMongoSourceClient extends MongoSourceClient {
+    private final MongoClient client;
+
+    public ClassicMongoSourceClient(@Nonnull String source, @Nonnull MongoClient client) {
+        super(source, CLASSIC);
+        this.client = client;
+    }
+
+    @Nonnull
+    @Override
+    public ClusterDescription getClusterDescription() {
+        return client.getClusterDescription();
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<Document> runAdminCommand(@Nonnull Bson command, @Nonnull Duration timeout, @Nonnull Executor executor) {
+        return CompletableFuture.supplyAsync(() -> client.getDatabase(ADMIN_DATABASE).withTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).runCommand(command), executor);
+    }
+
+    @Nonnull
+    static List<MongoSourceClient> collectClients(@Nonnull ListableBeanFactory beanFactory) {
+        List<MongoSourceClient> result = new ArrayList<>();
+        beanFactory.getBeansOfType(MongoClient.class).forEach((beanName, client) -> {
+            String source = MongoSourcesRegistrar.sourceName(beanName, MongoSourcesRegistrar.MONGO_CLIENT);
+            if (source != null) {
+                result.add(new ClassicMongoSourceClient(source, client));
+            }
+        });
+        return result;
+    }
+}
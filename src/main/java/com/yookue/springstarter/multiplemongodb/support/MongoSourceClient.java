@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb.support;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import jakarta.annotation.Nonnull;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.util.ClassUtils;
+import com.mongodb.connection.ClusterDescription;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+
+/**
+ * Client of a data source, either classic or reactive
+ * <p>
+ * This hides the flavor of the driver from the features that work on all the clients, such as health checks and warm-up
+ *
+ * @author David Hsing
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+public abstract class MongoSourceClient {
+    public static final String CLASSIC = "classic";    // $NON-NLS-1$
+    public static final String REACTIVE = "reactive";    // $NON-NLS-1$
+    public static final String ADMIN_DATABASE = "admin";    // $NON-NLS-1$
+
+    /**
+     * The name of the data source, such as {@code primary}
+     */
+    private final String source;
+
+    /**
+     * The flavor of the client, either {@link #CLASSIC} or {@link #REACTIVE}
+     */
+    private final String flavor;
+
+    /**
+     * Returns the current description of the cluster, which never blocks
+     *
+     * @return the current description of the cluster
+     */
+    @Nonnull
+    public abstract ClusterDescription getClusterDescription();
+
+    /**
+     * Runs the command on the admin database asynchronously
+     * <p>
+     * The timeout covers the server selection, the connection checkout and the socket reads of the command, so a hung cluster never holds the executor longer than it
+     *
+     * @param command the command to run
+     * @param timeout the timeout of the command
+     * @param executor the executor for the blocking clients
+     *
+     * @return the future of the response
+     */
+    @Nonnull
+    public abstract CompletableFuture<Document> runAdminCommand(@Nonnull Bson command, @Nonnull Duration timeout, @Nonnull Executor executor);
+
+    /**
+     * Returns the classic and the reactive clients of all the data sources
+     *
+     * @param beanFactory the bean factory that holds the clients
+     *
+     * @return the classic and the reactive clients of all the data sources
+     */
+    @Nonnull
+    public static List<MongoSourceClient> collect(@Nonnull ListableBeanFactory beanFactory) {
+        List<MongoSourceClient> result = new ArrayList<>(ClassicMongoSourceClient.collectClients(beanFactory));
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        if (ClassUtils.isPresent("com.mongodb.reactivestreams.client.MongoClient", classLoader) && ClassUtils.isPresent("reactor.core.publisher.Mono", classLoader)) {    // $NON-NLS-1$ // $NON-NLS-2$
+            result.addAll(ReactiveMongoSourceClient.collectClients(beanFactory));
+        }
+        return result;
+    }
+}
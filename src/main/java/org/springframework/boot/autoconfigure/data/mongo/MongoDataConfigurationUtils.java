@@ -17,23 +17,58 @@
 package org.springframework.boot.autoconfigure.data.mongo;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.mongo.MongoConfigurationUtils;
 import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 import org.springframework.context.ApplicationContext;
+import org.springframework.data.convert.ConfigurableTypeInformationMapper;
+import org.springframework.data.convert.MappingContextTypeInformationMapper;
+import org.springframework.data.convert.SimpleTypeInformationMapper;
+import org.springframework.data.convert.TypeInformationMapper;
 import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.MongoManagedTypes;
+import org.springframework.data.mongodb.MongoTransactionManager;
 import org.springframework.data.mongodb.core.MongoDatabaseFactorySupport;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
 import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
 import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.MongoTypeMapper;
 import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.CollectionUtils;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.Tag;
+import com.mongodb.TagSet;
+import com.mongodb.TransactionOptions;
 import com.mongodb.client.MongoClient;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.yookue.springstarter.multiplemongodb.async.MongoAsyncTemplate;
+import com.yookue.springstarter.multiplemongodb.batch.MongoBatchWriter;
+import com.yookue.springstarter.multiplemongodb.bulkhead.BulkheadMongoDatabaseFactory;
+import com.yookue.springstarter.multiplemongodb.bulkhead.MongoSourceBulkhead;
+import com.yookue.springstarter.multiplemongodb.cache.CachingMongoTemplate;
+import com.yookue.springstarter.multiplemongodb.cache.MongoQueryCache;
+import com.yookue.springstarter.multiplemongodb.gridfs.MongoGridFsChannelTemplate;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import com.yookue.springstarter.multiplemongodb.raw.MongoRawTemplate;
+import com.yookue.springstarter.multiplemongodb.stream.MongoStreamTemplate;
 import com.yookue.commonplexus.springutil.support.SingletonObjectProvider;
 
 
@@ -52,31 +87,336 @@ public abstract class MongoDataConfigurationUtils {
         return new MongoDataConfiguration().mongoCustomConversions();
     }
 
+    /**
+     * Returns the conversions of a data source that needs its own converters
+     * <p>
+     * The specified converters take precedence over the store converters, which are the same as the shared conversions
+     *
+     * @param converters the converters of the data source
+     *
+     * @return the conversions of a data source that needs its own converters
+     */
+    @Nonnull
+    public static MongoCustomConversions mongoCustomConversions(@Nullable Collection<?> converters) {
+        return CollectionUtils.isEmpty(converters) ? mongoCustomConversions() : new MongoCustomConversions(List.copyOf(converters));
+    }
+
     @Nonnull
     public static MongoManagedTypes mongoManagedTypes(@Nonnull ApplicationContext context) throws ClassNotFoundException {
         return MongoDataConfiguration.mongoManagedTypes(context);
     }
 
+    /**
+     * Returns a view of the scanned types, which belongs to the entity packages of the specified properties
+     *
+     * @param properties the properties of the data source
+     * @param types the types that scanned from all the packages
+     *
+     * @return a view of the scanned types, which belongs to the entity packages of the specified properties
+     */
+    @Nonnull
+    public static MongoManagedTypes mongoManagedTypes(@Nonnull MongoProperties properties, @Nonnull MongoManagedTypes types) {
+        List<String> packages = (properties instanceof ExtendedMongoProperties alias) ? alias.getEntityPackages() : null;
+        return mongoManagedTypes(types, packages);
+    }
+
+    @Nonnull
+    public static MongoManagedTypes mongoManagedTypes(@Nonnull MongoManagedTypes types, @Nullable Collection<String> packages) {
+        if (CollectionUtils.isEmpty(packages)) {
+            return types;
+        }
+        List<Class<?>> entities = types.toList().stream().filter(type -> isEntityPackage(type, packages)).toList();
+        return MongoManagedTypes.fromIterable(entities);
+    }
+
     @Nonnull
     public static MongoMappingContext mongoMappingContext(@Nonnull MongoProperties properties, @Nonnull MongoCustomConversions conversions, @Nonnull MongoManagedTypes types) {
         return new MongoDataConfiguration().mongoMappingContext(properties, conversions, types);
     }
 
+    @Nonnull
+    public static MongoTransactionManager mongoTransactionManager(@Nonnull MongoDatabaseFactory factory, @Nullable TransactionOptions options) {
+        return new MongoTransactionManager(factory, options);
+    }
+
     @Nonnull
     public static MongoDatabaseFactorySupport<?> mongoDatabaseFactory(@Nonnull MongoClient client, @Nonnull MongoProperties properties, @Nullable MongoConnectionDetails details) {
         MongoConnectionDetails alias = ObjectUtils.defaultIfNull(details, MongoConfigurationUtils.mongoConnectionDetails(properties));
         return new MongoDatabaseFactoryConfiguration().mongoDatabaseFactory(client, properties, alias);
     }
 
+    /**
+     * Returns a database factory that admits each operation by the bulkhead, or a plain one if the bulkhead is absent
+     *
+     * @param client the classic client of the data source
+     * @param properties the properties of the data source
+     * @param details the connection details of the data source
+     * @param bulkhead the bulkhead of the classic client
+     *
+     * @return a database factory that admits each operation by the bulkhead
+     */
     @Nonnull
-    public static MappingMongoConverter mappingMongoConverter(@Nonnull MongoDatabaseFactory factory, @Nonnull MongoMappingContext context, @Nonnull MongoCustomConversions conversions) {
-        ObjectProvider<MongoDatabaseFactory> provider = SingletonObjectProvider.of(factory);
+    public static MongoDatabaseFactorySupport<?> mongoDatabaseFactory(@Nonnull MongoClient client, @Nonnull MongoProperties properties, @Nullable MongoConnectionDetails details, @Nullable MongoSourceBulkhead bulkhead) {
+        if (bulkhead == null) {
+            return mongoDatabaseFactory(client, properties, details);
+        }
+        MongoConnectionDetails alias = ObjectUtils.defaultIfNull(details, MongoConfigurationUtils.mongoConnectionDetails(properties));
+        String database = StringUtils.defaultIfBlank(properties.getDatabase(), alias.getConnectionString().getDatabase());
+        return new BulkheadMongoDatabaseFactory(client, database, bulkhead);
+    }
+
+    /**
+     * Returns a converter that is built the same way as Spring Boot does
+     * <p>
+     * Without a database factory, the converter resolves no db refs, which suits the off-line usages, such as benchmarks of mapping
+     *
+     * @param factory the database factory of the data source, or {@code null} to build a converter without db refs
+     * @param context the mapping context of the data source
+     * @param conversions the custom conversions of the data source
+     *
+     * @return a converter that is built the same way as Spring Boot does
+     */
+    @Nonnull
+    public static MappingMongoConverter mappingMongoConverter(@Nullable MongoDatabaseFactory factory, @Nonnull MongoMappingContext context, @Nonnull MongoCustomConversions conversions) {
+        ObjectProvider<MongoDatabaseFactory> provider = SingletonObjectProvider.ofNullable(factory);
         return new MongoDataConfiguration().mappingMongoConverter(provider, context, conversions);
     }
 
+    /**
+     * Returns a converter that is built the same way as Spring Boot does, with the type mapper of the specified properties
+     *
+     * @param properties the properties of the data source
+     * @param factory the database factory of the data source, or {@code null} to build a converter without db refs
+     * @param context the mapping context of the data source
+     * @param conversions the custom conversions of the data source
+     *
+     * @return a converter that is built the same way as Spring Boot does, with the type mapper of the specified properties
+     */
+    @Nonnull
+    public static MappingMongoConverter mappingMongoConverter(@Nonnull MongoProperties properties, @Nullable MongoDatabaseFactory factory, @Nonnull MongoMappingContext context, @Nonnull MongoCustomConversions conversions) {
+        MappingMongoConverter converter = mappingMongoConverter(factory, context, conversions);
+        MongoTypeMapper typeMapper = mongoTypeMapper(properties, context);
+        if (typeMapper != null) {
+            converter.setTypeMapper(typeMapper);
+        }
+        return converter;
+    }
+
+    /**
+     * Returns the type mapper of the specified properties
+     * <p>
+     * With {@code nullTypeKey}, no type information is written or read. With {@code typeAliases}, the aliases are resolved from a precomputed table first,
+     * then from the {@code @TypeAlias} of the entities, and at last from the class names
+     *
+     * @param properties the properties of the data source
+     * @param context the mapping context of the data source
+     *
+     * @return the type mapper of the specified properties, or {@code null} to use the default one
+     */
+    @Nullable
+    public static MongoTypeMapper mongoTypeMapper(@Nonnull MongoProperties properties, @Nonnull MongoMappingContext context) {
+        if (!(properties instanceof ExtendedMongoProperties alias)) {
+            return null;
+        }
+        if (BooleanUtils.isTrue(alias.getNullTypeKey())) {
+            return new DefaultMongoTypeMapper(null, context);
+        }
+        if (StringUtils.isBlank(alias.getTypeKey()) && CollectionUtils.isEmpty(alias.getTypeAliases())) {
+            return null;
+        }
+        List<TypeInformationMapper> mappers = new ArrayList<>(3);
+        if (!CollectionUtils.isEmpty(alias.getTypeAliases())) {
+            mappers.add(new ConfigurableTypeInformationMapper(typeAliases(alias.getTypeAliases())));
+        }
+        mappers.add(new MappingContextTypeInformationMapper(context));
+        mappers.add(new SimpleTypeInformationMapper());
+        return new DefaultMongoTypeMapper(StringUtils.defaultIfBlank(alias.getTypeKey(), DefaultMongoTypeMapper.DEFAULT_TYPE_KEY), mappers);
+    }
+
+    @Nonnull
+    public static MongoTemplate mongoTemplate(@Nonnull MongoDatabaseFactory factory, @Nonnull MongoConverter converter) {
+        return new MongoTemplate(factory, converter);
+    }
+
+    /**
+     * Returns a template of the data source, which serves the queries on the cached collections from the query cache if present
+     *
+     * @param factory the database factory of the data source
+     * @param converter the converter of the data source
+     * @param queryCache the query cache of the data source
+     *
+     * @return a template of the data source
+     */
+    @Nonnull
+    public static MongoTemplate mongoTemplate(@Nonnull MongoDatabaseFactory factory, @Nonnull MongoConverter converter, @Nullable MongoQueryCache queryCache) {
+        return (queryCache == null) ? mongoTemplate(factory, converter) : new CachingMongoTemplate(factory, converter, queryCache);
+    }
+
+    /**
+     * Returns a query cache of the data source
+     *
+     * @param source the name of the data source
+     * @param properties the properties of the data source
+     * @param factory the database factory of the data source, which opens the change stream
+     *
+     * @return a query cache of the data source
+     */
+    @Nonnull
+    public static MongoQueryCache mongoQueryCache(@Nonnull String source, @Nonnull MongoProperties properties, @Nonnull MongoDatabaseFactory factory) {
+        ExtendedMongoProperties.QueryCache cache = (properties instanceof ExtendedMongoProperties alias) ? alias.getQueryCache() : new ExtendedMongoProperties.QueryCache();
+        List<String> collections = CollectionUtils.isEmpty(cache.getCollections()) ? Collections.emptyList() : cache.getCollections();
+        return new MongoQueryCache(source, factory, collections, cache.getTtl(), cache.getMaxEntries(), cache.getMaxResultSize());
+    }
+
+    /**
+     * Returns a template that reads with the read preference of the specified properties
+     * <p>
+     * The template shares the database factory (and the client) with the default template, the writes are always sent to the primary
+     *
+     * @param properties the properties of the data source
+     * @param factory the database factory of the data source
+     * @param converter the converter of the data source
+     *
+     * @return a template that reads with the read preference of the specified properties
+     */
+    @Nonnull
+    public static MongoTemplate readMongoTemplate(@Nonnull MongoProperties properties, @Nonnull MongoDatabaseFactory factory, @Nonnull MongoConverter converter) {
+        MongoTemplate template = new MongoTemplate(factory, converter);
+        template.setReadPreference(readPreference(properties));
+        return template;
+    }
+
+    @Nonnull
+    public static ReadPreference readPreference(@Nonnull MongoProperties properties) {
+        if (!(properties instanceof ExtendedMongoProperties alias)) {
+            return ReadPreference.secondaryPreferred();
+        }
+        ExtendedMongoProperties.Read read = alias.getRead();
+        String mode = StringUtils.defaultIfBlank(read.getPreference(), "secondaryPreferred");    // $NON-NLS-1$
+        List<TagSet> tagSets = CollectionUtils.isEmpty(read.getTagSets()) ? Collections.emptyList() : read.getTagSets().stream().map(tags -> new TagSet(tags.entrySet().stream().map(entry -> new Tag(entry.getKey(), entry.getValue())).toList())).toList();
+        if (read.getMaxStaleness() == null) {
+            return ReadPreference.valueOf(mode, tagSets);
+        }
+        return ReadPreference.valueOf(mode, tagSets, read.getMaxStaleness().toSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns a batch writer of the template
+     *
+     * @param properties the properties of the data source
+     * @param template the template of the data source
+     *
+     * @return a batch writer of the template
+     */
+    @Nonnull
+    public static MongoBatchWriter mongoBatchWriter(@Nonnull MongoProperties properties, @Nonnull MongoTemplate template) {
+        return new MongoBatchWriter(template, batchProperties(properties));
+    }
+
+    @Nonnull
+    public static ExtendedMongoProperties.Batch batchProperties(@Nonnull MongoProperties properties) {
+        return (properties instanceof ExtendedMongoProperties alias) ? alias.getBatch() : new ExtendedMongoProperties.Batch();
+    }
+
+    /**
+     * Returns an async template of the template
+     * <p>
+     * The max concurrency defaults to the max size of the connection pool of the classic client
+     *
+     * @param source the name of the data source
+     * @param properties the properties of the data source
+     * @param settings the settings of the classic client of the data source
+     * @param template the template of the data source
+     *
+     * @return an async template of the template
+     */
+    @Nonnull
+    public static MongoAsyncTemplate mongoAsyncTemplate(@Nonnull String source, @Nonnull MongoProperties properties, @Nonnull MongoClientSettings settings, @Nonnull MongoTemplate template) {
+        ExtendedMongoProperties alias = (properties instanceof ExtendedMongoProperties instance) ? instance : null;
+        ExtendedMongoProperties.Async async = (alias == null) ? new ExtendedMongoProperties.Async() : alias.getAsync();
+        int maxConcurrency = settings.getConnectionPoolSettings().getMaxSize();
+        if (async.getMaxConcurrency() != null && async.getMaxConcurrency() > 0) {
+            maxConcurrency = async.getMaxConcurrency();
+        } else if (alias != null && alias.getClassicMaxPoolSize() != null && alias.getClassicMaxPoolSize() > 0) {
+            maxConcurrency = alias.getClassicMaxPoolSize();
+        } else if (maxConcurrency <= 0) {
+            maxConcurrency = ConnectionPoolSettings.builder().build().getMaxSize();
+        }
+        return new MongoAsyncTemplate(source, template, maxConcurrency, BooleanUtils.isNotFalse(async.getVirtualThreads()));
+    }
+
+    /**
+     * Returns a stream template of the template
+     *
+     * @param properties the properties of the data source
+     * @param template the template of the data source
+     *
+     * @return a stream template of the template
+     */
+    @Nonnull
+    public static MongoStreamTemplate mongoStreamTemplate(@Nonnull MongoProperties properties, @Nonnull MongoTemplate template) {
+        return new MongoStreamTemplate(template, streamingProperties(properties));
+    }
+
+    @Nonnull
+    public static ExtendedMongoProperties.Streaming streamingProperties(@Nonnull MongoProperties properties) {
+        return (properties instanceof ExtendedMongoProperties alias) ? alias.getStreaming() : new ExtendedMongoProperties.Streaming();
+    }
+
+    /**
+     * Returns a raw template of the template
+     *
+     * @param properties the properties of the data source
+     * @param template the template of the data source
+     *
+     * @return a raw template of the template
+     */
+    @Nonnull
+    public static MongoRawTemplate mongoRawTemplate(@Nonnull MongoProperties properties, @Nonnull MongoTemplate template) {
+        return new MongoRawTemplate(template, rawProperties(properties));
+    }
+
+    @Nonnull
+    public static ExtendedMongoProperties.Raw rawProperties(@Nonnull MongoProperties properties) {
+        return (properties instanceof ExtendedMongoProperties alias) ? alias.getRaw() : new ExtendedMongoProperties.Raw();
+    }
+
     @Nonnull
     public static GridFsTemplate gridFsTemplate(@Nonnull MongoProperties properties, @Nonnull MongoDatabaseFactory factory, @Nonnull MongoTemplate template, @Nullable MongoConnectionDetails details) {
         MongoConnectionDetails alias = ObjectUtils.defaultIfNull(details, MongoConfigurationUtils.mongoConnectionDetails(properties));
         return new MongoDatabaseFactoryDependentConfiguration().gridFsTemplate(properties, factory, template, alias);
     }
+
+    /**
+     * Returns a channel template of GridFS, which shares the database and the bucket of GridFS with the {@code GridFsTemplate}
+     *
+     * @param properties the properties of the data source
+     * @param factory the database factory of the data source
+     * @param details the connection details of the data source
+     *
+     * @return a channel template of GridFS
+     */
+    @Nonnull
+    public static MongoGridFsChannelTemplate mongoGridFsChannelTemplate(@Nonnull MongoProperties properties, @Nonnull MongoDatabaseFactory factory, @Nullable MongoConnectionDetails details) {
+        MongoConnectionDetails alias = ObjectUtils.defaultIfNull(details, MongoConfigurationUtils.mongoConnectionDetails(properties));
+        String bucket = (alias.getGridFs() == null) ? null : alias.getGridFs().getBucket();
+        return new MongoGridFsChannelTemplate(new MongoDatabaseFactoryDependentConfiguration.GridFsMongoDatabaseFactory(factory, alias), bucket, gridFsChannelProperties(properties));
+    }
+
+    @Nonnull
+    public static ExtendedMongoProperties.GridFsChannel gridFsChannelProperties(@Nonnull MongoProperties properties) {
+        return (properties instanceof ExtendedMongoProperties alias) ? alias.getGridFsChannel() : new ExtendedMongoProperties.GridFsChannel();
+    }
+
+    @Nonnull
+    private static Map<Class<?>, String> typeAliases(@Nonnull Map<String, String> aliases) {
+        Map<Class<?>, String> result = new LinkedHashMap<>(aliases.size());
+        aliases.forEach((alias, className) -> result.put(ClassUtils.resolveClassName(className, ClassUtils.getDefaultClassLoader()), alias.intern()));
+        return result;
+    }
+
+    private static boolean isEntityPackage(@Nonnull Class<?> type, @Nonnull Collection<String> packages) {
+        String typePackage = ClassUtils.getPackageName(type);
+        return packages.stream().anyMatch(pkg -> typePackage.equals(pkg) || typePackage.startsWith(pkg + '.'));
+    }
 }
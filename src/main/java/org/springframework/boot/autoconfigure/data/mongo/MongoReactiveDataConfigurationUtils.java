@@ -20,6 +20,7 @@ package org.springframework.boot.autoconfigure.data.mongo;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.autoconfigure.mongo.MongoConfigurationUtils;
 import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
@@ -31,6 +32,16 @@ import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.data.mongodb.core.convert.MongoConverter;
 import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
 import com.mongodb.reactivestreams.client.MongoClient;
+import com.yookue.springstarter.multiplemongodb.batch.ReactiveMongoBatchWriter;
+import com.yookue.springstarter.multiplemongodb.bulkhead.BulkheadReactiveMongoDatabaseFactory;
+import com.yookue.springstarter.multiplemongodb.bulkhead.MongoSourceBulkhead;
+import com.yookue.springstarter.multiplemongodb.cache.CachingReactiveMongoTemplate;
+import com.yookue.springstarter.multiplemongodb.cache.MongoQueryCache;
+import com.yookue.springstarter.multiplemongodb.changestream.ReactiveMongoChangeStreamHub;
+import com.yookue.springstarter.multiplemongodb.gridfs.ReactiveMongoGridFsChannelTemplate;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import com.yookue.springstarter.multiplemongodb.raw.ReactiveMongoRawTemplate;
+import com.yookue.springstarter.multiplemongodb.stream.ReactiveMongoStreamTemplate;
 
 
 /**
@@ -52,13 +63,55 @@ public abstract class MongoReactiveDataConfigurationUtils {
         return new MongoReactiveDataAutoConfiguration(alias).reactiveMongoDatabaseFactory(client, properties);
     }
 
+    @Nonnull
+    public static SimpleReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory(@Nonnull MongoClient client, @Nonnull MongoProperties properties, @Nullable MongoConnectionDetails details, @Nullable MongoSourceBulkhead bulkhead) {
+        if (bulkhead == null) {
+            return reactiveMongoDatabaseFactory(client, properties, details);
+        }
+        MongoConnectionDetails alias = ObjectUtils.defaultIfNull(details, MongoConfigurationUtils.mongoConnectionDetails(properties));
+        String database = StringUtils.defaultIfBlank(properties.getDatabase(), alias.getConnectionString().getDatabase());
+        return new BulkheadReactiveMongoDatabaseFactory(client, database, bulkhead);
+    }
+
     @Nonnull
     public static ReactiveMongoTemplate reactiveMongoTemplate(@Nonnull MongoConnectionDetails details, @Nonnull ReactiveMongoDatabaseFactory factory, @Nonnull MongoConverter converter) {
         return new MongoReactiveDataAutoConfiguration(details).reactiveMongoTemplate(factory, converter);
     }
 
+    @Nonnull
+    public static ReactiveMongoTemplate reactiveMongoTemplate(@Nonnull MongoConnectionDetails details, @Nonnull ReactiveMongoDatabaseFactory factory, @Nonnull MongoConverter converter, @Nullable MongoQueryCache queryCache) {
+        return (queryCache == null) ? reactiveMongoTemplate(details, factory, converter) : new CachingReactiveMongoTemplate(factory, converter, queryCache);
+    }
+
     @Nonnull
     public static ReactiveGridFsTemplate reactiveGridFsTemplate(@Nonnull MongoConnectionDetails details, @Nonnull ReactiveMongoDatabaseFactory databaseFactory, @Nonnull MappingMongoConverter converter, @Nonnull DataBufferFactory bufferFactory) {
         return new MongoReactiveDataAutoConfiguration(details).reactiveGridFsTemplate(databaseFactory, converter, bufferFactory);
     }
+
+    @Nonnull
+    public static ReactiveMongoGridFsChannelTemplate reactiveMongoGridFsChannelTemplate(@Nonnull MongoProperties properties, @Nonnull MongoConnectionDetails details, @Nonnull ReactiveMongoDatabaseFactory databaseFactory, @Nonnull DataBufferFactory bufferFactory) {
+        String bucket = (details.getGridFs() == null) ? null : details.getGridFs().getBucket();
+        return new ReactiveMongoGridFsChannelTemplate(new MongoReactiveDataAutoConfiguration.GridFsReactiveMongoDatabaseFactory(databaseFactory, details), bucket, bufferFactory, MongoDataConfigurationUtils.gridFsChannelProperties(properties));
+    }
+
+    @Nonnull
+    public static ReactiveMongoBatchWriter reactiveMongoBatchWriter(@Nonnull MongoProperties properties, @Nonnull ReactiveMongoTemplate template) {
+        return new ReactiveMongoBatchWriter(template, MongoDataConfigurationUtils.batchProperties(properties));
+    }
+
+    @Nonnull
+    public static ReactiveMongoStreamTemplate reactiveMongoStreamTemplate(@Nonnull MongoProperties properties, @Nonnull ReactiveMongoTemplate template) {
+        return new ReactiveMongoStreamTemplate(template, MongoDataConfigurationUtils.streamingProperties(properties));
+    }
+
+    @Nonnull
+    public static ReactiveMongoRawTemplate reactiveMongoRawTemplate(@Nonnull MongoProperties properties, @Nonnull ReactiveMongoTemplate template, @Nonnull DataBufferFactory bufferFactory) {
+        return new ReactiveMongoRawTemplate(template, bufferFactory, MongoDataConfigurationUtils.rawProperties(properties));
+    }
+
+    @Nonnull
+    public static ReactiveMongoChangeStreamHub reactiveMongoChangeStreamHub(@Nonnull String source, @Nonnull MongoProperties properties, @Nonnull ReactiveMongoTemplate template) {
+        ExtendedMongoProperties.ChangeStream changeStream = (properties instanceof ExtendedMongoProperties alias) ? alias.getChangeStream() : new ExtendedMongoProperties.ChangeStream();
+        return new ReactiveMongoChangeStreamHub(source, template, changeStream);
+    }
 }
@@ -17,12 +17,18 @@
 package org.springframework.boot.autoconfigure.mongo;
 
 
+import java.util.ArrayList;
+import java.util.List;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.ssl.SslBundles;
 import com.mongodb.MongoClientSettings;
 import com.yookue.commonplexus.springutil.support.SingletonObjectProvider;
+import com.yookue.springstarter.multiplemongodb.bulkhead.MongoSourceBulkhead;
+import com.yookue.springstarter.multiplemongodb.customizer.MongoSourceSettingsCustomizer;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
 
 
 /**
@@ -52,4 +58,72 @@ public abstract class MongoConfigurationUtils {
         MongoConnectionDetails alias = ObjectUtils.defaultIfNull(details, mongoConnectionDetails(properties));
         return new MongoAutoConfiguration.MongoClientSettingsConfiguration().standardMongoSettingsCustomizer(properties, details, SingletonObjectProvider.ofNullable(bundles));
     }
+
+    @Nonnull
+    public static com.mongodb.client.MongoClient mongoClient(@Nonnull MongoClientFactory factory, @Nonnull MongoClientSettings settings) {
+        return factory.createMongoClient(settings);
+    }
+
+    @Nonnull
+    public static com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient(@Nonnull ReactiveMongoClientFactory factory, @Nonnull MongoClientSettings settings) {
+        return factory.createMongoClient(settings);
+    }
+
+    @Nonnull
+    public static MongoClientFactory mongoClientFactory(@Nonnull String source, @Nonnull MongoProperties properties, @Nonnull MongoClientSettingsBuilderCustomizer customizer, @Nullable MongoSourceBulkhead bulkhead, @Nullable ObjectProvider<MongoSourceSettingsCustomizer> customizers) {
+        Integer maxPoolSize = (properties instanceof ExtendedMongoProperties alias) ? alias.getClassicMaxPoolSize() : null;
+        return new MongoClientFactory(mongoClientSettingsCustomizers(source, customizer, maxPoolSize, bulkhead, customizers));
+    }
+
+    @Nonnull
+    public static ReactiveMongoClientFactory reactiveMongoClientFactory(@Nonnull String source, @Nonnull MongoProperties properties, @Nonnull MongoClientSettingsBuilderCustomizer customizer, @Nullable MongoSourceBulkhead bulkhead, @Nullable ObjectProvider<MongoSourceSettingsCustomizer> customizers) {
+        Integer maxPoolSize = (properties instanceof ExtendedMongoProperties alias) ? alias.getReactiveMaxPoolSize() : null;
+        return new ReactiveMongoClientFactory(mongoClientSettingsCustomizers(source, customizer, maxPoolSize, bulkhead, customizers));
+    }
+
+    /**
+     * Returns a bulkhead of a client of the data source
+     *
+     * @param source the name of the data source
+     * @param flavor the flavor of the client, such as {@code classic} or {@code reactive}
+     * @param properties the properties of the data source
+     *
+     * @return a bulkhead of a client of the data source
+     */
+    @Nonnull
+    public static MongoSourceBulkhead mongoSourceBulkhead(@Nonnull String source, @Nonnull String flavor, @Nonnull MongoProperties properties) {
+        ExtendedMongoProperties.Bulkhead bulkhead = (properties instanceof ExtendedMongoProperties alias) ? alias.getBulkhead() : new ExtendedMongoProperties.Bulkhead();
+        int maxWaitQueueSize = (bulkhead.getMaxWaitQueueSize() == null) ? 0 : bulkhead.getMaxWaitQueueSize();
+        double lowPriorityRatio = (bulkhead.getLowPriorityRatio() == null) ? 1.0D : bulkhead.getLowPriorityRatio();
+        return new MongoSourceBulkhead(source, flavor, maxWaitQueueSize, lowPriorityRatio);
+    }
+
+    /**
+     * Returns the customizers for creating a client, the max pool size is applied after the standard customizer, so that it takes precedence over the uri
+     * <p>
+     * The min pool size of the uri is lowered to the max pool size, if it is greater
+     *
+     * @param source the name of the data source
+     * @param customizer the standard customizer of the data source
+     * @param maxPoolSize the max size of the connection pool of the client
+     * @param bulkhead the bulkhead that listens to the connection pool of the client
+     * @param customizers the customizers that apply to every data source
+     *
+     * @return the customizers for creating a client
+     */
+    @Nonnull
+    public static List<MongoClientSettingsBuilderCustomizer> mongoClientSettingsCustomizers(@Nonnull String source, @Nonnull MongoClientSettingsBuilderCustomizer customizer, @Nullable Integer maxPoolSize, @Nullable MongoSourceBulkhead bulkhead, @Nullable ObjectProvider<MongoSourceSettingsCustomizer> customizers) {
+        List<MongoClientSettingsBuilderCustomizer> result = new ArrayList<>();
+        result.add(customizer);
+        if (maxPoolSize != null && maxPoolSize > 0) {
+            result.add(builder -> builder.applyToConnectionPoolSettings(pool -> pool.minSize(Math.min(pool.build().getMinSize(), maxPoolSize)).maxSize(maxPoolSize)));
+        }
+        if (bulkhead != null) {
+            result.add(builder -> builder.applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(bulkhead)));
+        }
+        if (customizers != null) {
+            customizers.orderedStream().forEach(element -> result.add(builder -> element.customize(source, builder)));
+        }
+        return result;
+    }
 }
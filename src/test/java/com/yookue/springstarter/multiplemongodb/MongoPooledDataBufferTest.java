@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.multiplemongodb;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.unit.DataSize;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import com.yookue.springstarter.multiplemongodb.gridfs.ReactiveMongoGridFsChannelTemplate;
+import com.yookue.springstarter.multiplemongodb.property.ExtendedMongoProperties;
+import com.yookue.springstarter.multiplemongodb.raw.ReactiveMongoRawTemplate;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Tests of the pooled data buffers, over the raw JSON and the GridFS upload paths
+ * <p>
+ * Each test allocates from its own pooled allocator without thread caches, so every buffer that is not released remains an active allocation of the arena.
+ * The leak detector of netty runs in the paranoid level, and records the leaks with their access records
+ *
+ * @author David Hsing
+ */
+class MongoPooledDataBufferTest {
+    private static final Queue<String> LEAKS = new ConcurrentLinkedQueue<>();
+    private static final int CHUNK_SIZE = (int) DataSize.ofKilobytes(256L).toBytes();
+    private static final Mono<InsertManyResult> INSERTED = Mono.just(InsertManyResult.acknowledged(Map.of()));
+
+    static {
+        // The detector of the buffers is created once, when netty initializes its buffer classes
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(new RecordingLeakDetectorFactory());
+    }
+
+    private PooledByteBufAllocator allocator;
+    private NettyDataBufferFactory bufferFactory;
+
+    @BeforeEach
+    void setUp() {
+        allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 9, 0, 0, false);
+        bufferFactory = new NettyDataBufferFactory(allocator);
+    }
+
+    @AfterEach
+    void tearDown() {
+        PoolArenaMetric arena = allocator.metric().heapArenas().get(0);
+        Assertions.assertEquals(0L, arena.numActiveAllocations(), "Buffers are not released");
+        for (int i = 0; i < 10 && LEAKS.isEmpty(); i++) {
+            System.gc();
+            // The detector reports the collected leaks when it tracks a new buffer
+            allocator.heapBuffer(1).release();
+        }
+        Assertions.assertTrue(LEAKS.isEmpty(), () -> String.join(System.lineSeparator(), LEAKS));
+    }
+
+    @Test
+    void findJsonConsumed() {
+        List<RawBsonDocument> documents = documents(50);
+        ReactiveMongoRawTemplate template = rawTemplate(Flux.fromIterable(documents));
+        String json = template.findJson(new Query(), "test").map(this::readAndRelease).collect(Collectors.joining()).block();    // $NON-NLS-1$
+        String expected = documents.stream().map(template::toJson).collect(Collectors.joining(",", "[", "]"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals(expected, json);
+    }
+
+    @Test
+    void findJsonCancelled() {
+        List<DataBuffer> taken = new ArrayList<>();
+        rawTemplate(Flux.fromIterable(documents(50))).findJson(new Query(), "test").limitRate(4).take(6L, true).doOnNext(taken::add).blockLast();    // $NON-NLS-1$
+        taken.forEach(DataBufferUtils::release);
+        Assertions.assertEquals(6, taken.size());
+    }
+
+    @Test
+    void findJsonFailed() {
+        Flux<RawBsonDocument> documents = Flux.fromIterable(documents(20)).concatWith(Mono.error(new MongoException("Cursor killed")));    // $NON-NLS-1$
+        AtomicInteger consumed = new AtomicInteger();
+        Flux<DataBuffer> json = rawTemplate(documents).findJson(new Query(), "test").doOnNext(buffer -> {    // $NON-NLS-1$
+            consumed.incrementAndGet();
+            DataBufferUtils.release(buffer);
+        });
+        Assertions.assertThrows(RuntimeException.class, json::blockLast);
+        Assertions.assertTrue(consumed.get() > 0);
+    }
+
+    @Test
+    void uploadCompleted() {
+        AtomicInteger chunks = new AtomicInteger();
+        ReactiveMongoGridFsChannelTemplate template = gridFsTemplate(chunks, batch -> INSERTED);
+        Assertions.assertNotNull(template.upload(content(4), "test.bin").block());    // $NON-NLS-1$
+        Assertions.assertEquals(4, chunks.get());
+    }
+
+    @Test
+    void uploadFailed() {
+        AtomicInteger chunks = new AtomicInteger();
+        ReactiveMongoGridFsChannelTemplate template = gridFsTemplate(chunks, batch -> (chunks.get() > 2) ? Mono.error(new MongoException("Insert failed")) : INSERTED);    // $NON-NLS-1$
+        Mono<?> upload = template.upload(content(16), "test.bin");    // $NON-NLS-1$
+        Assertions.assertThrows(RuntimeException.class, upload::block);
+    }
+
+    @Test
+    void uploadCancelled() {
+        AtomicInteger chunks = new AtomicInteger();
+        ReactiveMongoGridFsChannelTemplate template = gridFsTemplate(chunks, batch -> (chunks.get() > 2) ? Mono.never() : INSERTED);
+        Disposable upload = template.upload(content(16), "test.bin").subscribe();    // $NON-NLS-1$
+        Assertions.assertTrue(chunks.get() > 2);
+        upload.dispose();
+    }
+
+    @Nonnull
+    private String readAndRelease(@Nonnull DataBuffer buffer) {
+        try {
+            return buffer.toString(StandardCharsets.UTF_8);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    /**
+     * Returns the content of the specified count of chunks, whose buffers are allocated from the pool on demand
+     * <p>
+     * The content is hidden as a request body, so the upload prefetches its buffers into a queue instead of polling them
+     */
+    @Nonnull
+    private Flux<DataBuffer> content(int count) {
+        byte[] data = new byte[CHUNK_SIZE];
+        return Flux.range(0, count).<DataBuffer>map(index -> bufferFactory.allocateBuffer(CHUNK_SIZE).write(data)).hide();
+    }
+
+    @Nonnull
+    private ReactiveMongoRawTemplate rawTemplate(@Nonnull Flux<RawBsonDocument> documents) {
+        return new ReactiveMongoRawTemplate(new ReactiveMongoTemplate(databaseFactory(documents, new AtomicInteger(), null)), bufferFactory, new ExtendedMongoProperties.Raw());
+    }
+
+    @Nonnull
+    private ReactiveMongoGridFsChannelTemplate gridFsTemplate(@Nonnull AtomicInteger chunks, @Nonnull Function<List<?>, Mono<InsertManyResult>> inserter) {
+        ExtendedMongoProperties.GridFsChannel properties = new ExtendedMongoProperties.GridFsChannel();
+        properties.setChunkSize(DataSize.ofBytes(CHUNK_SIZE));
+        return new ReactiveMongoGridFsChannelTemplate(databaseFactory(Flux.empty(), chunks, inserter), null, bufferFactory, properties);
+    }
+
+    @Nonnull
+    private static List<RawBsonDocument> documents(int count) {
+        List<RawBsonDocument> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BsonDocument document = new BsonDocument("_id", new BsonInt32(i)).append("name", new BsonString("caf\u00e9 " + i)).append("text", new BsonString("x".repeat(i * 100)));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$
+            result.add(new RawBsonDocument(document, new BsonDocumentCodec()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a stand-in database factory, whose collections answer every find with the documents and insert the chunks by the inserter
+     */
+    @Nonnull
+    private static ReactiveMongoDatabaseFactory databaseFactory(@Nonnull Flux<RawBsonDocument> documents, @Nonnull AtomicInteger chunks, @Nullable Function<List<?>, Mono<InsertManyResult>> inserter) {
+        MongoExceptionTranslator translator = new MongoExceptionTranslator();
+        MongoDatabase database = proxy(MongoDatabase.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> "test";    // $NON-NLS-1$ // $NON-NLS-2$
+            case "getCollection" -> proxy(MongoCollection.class, (collection, operation, values) -> switch (operation.getName()) {    // $NON-NLS-1$
+                case "getNamespace" -> new MongoNamespace("test", (String) args[0]);    // $NON-NLS-1$ // $NON-NLS-2$
+                case "find" -> proxy(FindPublisher.class, (publisher, call, parameters) -> switch (call.getName()) {    // $NON-NLS-1$
+                    case "first" -> Mono.empty();    // $NON-NLS-1$
+                    case "subscribe" -> subscribe(documents, parameters[0]);    // $NON-NLS-1$
+                    default -> unsupported(call.getName());
+                });
+                case "insertMany" -> Mono.defer(() -> {    // $NON-NLS-1$
+                    List<?> batch = (List<?>) values[0];
+                    chunks.addAndGet(batch.size());
+                    return inserter.apply(batch);
+                });
+                case "insertOne" -> Mono.just(InsertOneResult.unacknowledged());    // $NON-NLS-1$
+                case "deleteMany" -> Mono.just(DeleteResult.unacknowledged());    // $NON-NLS-1$
+                case "createIndex" -> Mono.just(operation.getName());    // $NON-NLS-1$
+                default -> unsupported(operation.getName());
+            });
+            default -> unsupported(method.getName());
+        });
+        return proxy(ReactiveMongoDatabaseFactory.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getMongoDatabase" -> Mono.just(database);    // $NON-NLS-1$
+            case "getExceptionTranslator" -> translator;    // $NON-NLS-1$
+            case "getCodecRegistry" -> MongoClientSettings.getDefaultCodecRegistry();    // $NON-NLS-1$
+            case "isTransactionActive" -> false;    // $NON-NLS-1$
+            default -> unsupported(method.getName());
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object subscribe(@Nonnull Publisher<RawBsonDocument> documents, @Nonnull Object subscriber) {
+        documents.subscribe((Subscriber<RawBsonDocument>) subscriber);
+        return null;
+    }
+
+    /**
+     * Returns a proxy of the specified type, which returns itself for the fluent methods, such as {@code withDocumentClass}
+     */
+    @Nonnull
+    private static <T> T proxy(@Nonnull Class<T> type, @Nonnull InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];    // $NON-NLS-1$
+                    case "hashCode" -> System.identityHashCode(proxy);    // $NON-NLS-1$
+                    default -> type.getSimpleName();
+                };
+            }
+            if (method.getReturnType().isInstance(proxy) && method.getReturnType() != Object.class) {
+                return proxy;
+            }
+            return handler.invoke(proxy, method, args);
+        }));
+    }
+
+    private static Object unsupported(@Nonnull String method) {
+        throw new UnsupportedOperationException("The stand-in server does not support " + method);    // $NON-NLS-1$
+    }
+
+
+    /**
+     * A factory of the leak detectors, which record the leaks instead of logging them
+     *
+     * @author David Hsing
+     */
+    private static final class RecordingLeakDetectorFactory extends ResourceLeakDetectorFactory {
+        @Override
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval) {
+            return new ResourceLeakDetector<>(resource, samplingInterval) {
+                @Override
+                protected void reportTracedLeak(String resourceType, String records) {
+                    LEAKS.add(resourceType + " leaked:" + records);    // $NON-NLS-1$
+                }
+
+                @Override
+                protected void reportUntracedLeak(String resourceType) {
+                    LEAKS.add(resourceType + " leaked");    // $NON-NLS-1$
+                }
+            };
+        }
+
+        @Override
+        @Deprecated
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval, long maxActive) {
+            return newResourceLeakDetector(resource, samplingInterval);
+        }
+    }
+}